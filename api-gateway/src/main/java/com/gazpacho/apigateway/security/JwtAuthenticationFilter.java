@@ -0,0 +1,91 @@
+package com.gazpacho.apigateway.security;
+
+import com.gazpacho.sharedlib.security.IdentitySigner;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Verifies the access token of every routed request once, here, and forwards who the caller is.
+ * Identity headers sent by the client are always removed; when the Authorization header holds a
+ * valid access token, X-User-Id and its signature (see {@link IdentitySigner}) are added for the
+ * services to trust. Requests without a valid token pass through unchanged otherwise: public
+ * routes need none, and the services still answer 401 where one is required.
+ */
+@Component
+public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
+
+  private static final String BEARER = "Bearer ";
+
+  private final JwtParser parser;
+  private final IdentitySigner signer;
+
+  public JwtAuthenticationFilter(@Value("${JWT_ACCESS_SECRET:}") String accessSecret,
+      @Value("${identity.secret:}") String identitySecret,
+      @Value("${identity.max-age:60s}") Duration maxAge) {
+    this.signer = new IdentitySigner(identitySecret, maxAge);
+    if (signer.isEnabled() && accessSecret.isBlank()) {
+      throw new IllegalStateException("identity.secret is set but JWT_ACCESS_SECRET is not");
+    }
+    // parsers are immutable and thread-safe: built once, not per request
+    this.parser = signer.isEnabled()
+        ? Jwts.parserBuilder()
+            .setSigningKey(Keys.hmacShaKeyFor(accessSecret.getBytes(StandardCharsets.UTF_8)))
+            .build()
+        : null;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+    Optional<Long> userId = signer.isEnabled()
+        ? userId(exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
+        : Optional.empty();
+    ServerWebExchange forwarded = exchange.mutate()
+        .request(request -> request.headers(headers -> {
+          headers.remove(IdentitySigner.USER_ID);
+          headers.remove(IdentitySigner.SIGNATURE);
+          userId.ifPresent(id -> {
+            headers.set(IdentitySigner.USER_ID, id.toString());
+            headers.set(IdentitySigner.SIGNATURE, signer.sign(id));
+          });
+        }))
+        .build();
+    return chain.filter(forwarded);
+  }
+
+  // the subject of a valid access token; refresh tokens and anything unparsable give none
+  Optional<Long> userId(String authorization) {
+    if (authorization == null || !authorization.startsWith(BEARER)) {
+      return Optional.empty();
+    }
+    try {
+      Claims claims = parser.parseClaimsJws(authorization.substring(BEARER.length())).getBody();
+      if (!"access".equals(claims.get("type", String.class))) {
+        return Optional.empty();
+      }
+      return Optional.of(Long.valueOf(claims.getSubject()));
+    } catch (JwtException | IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  // before routing, so the forwarded request carries the headers
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+}
@@ -0,0 +1,102 @@
+package com.gazpacho.apigateway;
+
+import com.gazpacho.apigateway.security.JwtAuthenticationFilter;
+import com.gazpacho.sharedlib.security.IdentitySigner;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtAuthenticationFilterTest {
+
+    private static final String ACCESS_SECRET = "access-secret-access-secret-access-secret-0123";
+    private static final String IDENTITY_SECRET = "identity-secret";
+
+    private final JwtAuthenticationFilter filter =
+            new JwtAuthenticationFilter(ACCESS_SECRET, IDENTITY_SECRET, Duration.ofSeconds(60));
+    private final IdentitySigner verifier = new IdentitySigner(IDENTITY_SECRET, Duration.ofSeconds(60));
+
+    private static String token(String type, String secret, long expiresInMillis) {
+        return Jwts.builder()
+                .setSubject("42")
+                .claim("type", type)
+                .setExpiration(new Date(System.currentTimeMillis() + expiresInMillis))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    // the request as forwarded to the route
+    private ServerHttpRequest forward(JwtAuthenticationFilter filter, MockServerHttpRequest request) {
+        AtomicReference<ServerHttpRequest> forwarded = new AtomicReference<>();
+        filter.filter(MockServerWebExchange.from(request), exchange -> {
+            forwarded.set(exchange.getRequest());
+            return Mono.empty();
+        }).block();
+        return forwarded.get();
+    }
+
+    @Test
+    void testValidAccessTokenForwardsSignedUserId() {
+        ServerHttpRequest forwarded = forward(filter, MockServerHttpRequest.get("/users")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token("access", ACCESS_SECRET, 60_000))
+                .build());
+
+        HttpHeaders headers = forwarded.getHeaders();
+        assertEquals("42", headers.getFirst(IdentitySigner.USER_ID));
+        assertEquals(42L, verifier.verify(headers.getFirst(IdentitySigner.USER_ID),
+                headers.getFirst(IdentitySigner.SIGNATURE)).getAsLong());
+    }
+
+    @Test
+    void testClientIdentityHeadersAreStripped() {
+        ServerHttpRequest forwarded = forward(filter, MockServerHttpRequest.get("/users")
+                .header(IdentitySigner.USER_ID, "1")
+                .header(IdentitySigner.SIGNATURE, verifier.sign(1L))
+                .build());
+
+        assertNull(forwarded.getHeaders().getFirst(IdentitySigner.USER_ID));
+        assertNull(forwarded.getHeaders().getFirst(IdentitySigner.SIGNATURE));
+    }
+
+    @Test
+    void testInvalidTokensForwardNoIdentity() {
+        for (String token : new String[] {
+                token("refresh", ACCESS_SECRET, 60_000),
+                token("access", ACCESS_SECRET + "-other", 60_000),
+                token("access", ACCESS_SECRET, -60_000),
+                "not.a.jwt" }) {
+            ServerHttpRequest forwarded = forward(filter, MockServerHttpRequest.get("/users")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                    .header(IdentitySigner.USER_ID, "1")
+                    .build());
+
+            assertNull(forwarded.getHeaders().getFirst(IdentitySigner.USER_ID));
+            // the token itself still reaches the service
+            assertEquals("Bearer " + token, forwarded.getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        }
+    }
+
+    @Test
+    void testDisabledWithoutIdentitySecret() {
+        JwtAuthenticationFilter disabled = new JwtAuthenticationFilter("", "", Duration.ofSeconds(60));
+        ServerHttpRequest forwarded = forward(disabled, MockServerHttpRequest.get("/users")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token("access", ACCESS_SECRET, 60_000))
+                .header(IdentitySigner.USER_ID, "1")
+                .build());
+
+        assertNull(forwarded.getHeaders().getFirst(IdentitySigner.USER_ID));
+        assertThrows(IllegalStateException.class,
+                () -> new JwtAuthenticationFilter("", IDENTITY_SECRET, Duration.ofSeconds(60)));
+    }
+}
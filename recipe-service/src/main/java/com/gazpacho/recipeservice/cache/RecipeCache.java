@@ -0,0 +1,89 @@
+package com.gazpacho.recipeservice.cache;
+
+import com.gazpacho.sharedlib.cache.TinyLfuCache;
+import com.gazpacho.sharedlib.cache.TinyLfuCacheMetrics;
+import com.gazpacho.sharedlib.dto.RecipeDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// RecipeDTOs by recipe id, bounded by an estimate of their heap size (recipes.cache.max-weight).
+// Cached DTOs are shared between requests and must not be modified.
+@Component
+public class RecipeCache implements MeterBinder {
+
+    private final TinyLfuCache<Long, RecipeDTO> cache;
+
+    // bumped by every invalidation; a load that overlapped one is not stored
+    private long version;
+
+    public RecipeCache(@Value("${recipes.cache.max-weight:64MB}") DataSize maxWeight) {
+        this.cache = new TinyLfuCache<>(maxWeight.toBytes(), RecipeCache::weigh);
+    }
+
+    public Optional<RecipeDTO> get(Long recipeId) {
+        return Optional.ofNullable(cache.get(recipeId));
+    }
+
+    public Map<Long, RecipeDTO> getAll(Collection<Long> recipeIds) {
+        return cache.getAll(recipeIds);
+    }
+
+    // Read before loading from the database and passed back to put, so a recipe deleted or changed
+    // while it was being loaded is not cached again.
+    public synchronized long version() {
+        return version;
+    }
+
+    public synchronized void put(RecipeDTO recipe, long loadVersion) {
+        if (loadVersion == version) {
+            cache.put(recipe.getId(), recipe);
+        }
+    }
+
+    public synchronized void invalidate(Long recipeId) {
+        version++;
+        cache.invalidate(recipeId);
+    }
+
+    public synchronized void invalidateAll(Collection<Long> recipeIds) {
+        version++;
+        cache.invalidateAll(recipeIds);
+    }
+
+    // cache.gets / cache.puts / cache.evictions / cache.size tagged cache=recipes, under /actuator/metrics
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new TinyLfuCacheMetrics(cache, "recipes", Tags.empty()).bindTo(registry);
+    }
+
+    // Rough heap footprint in bytes: object headers plus two bytes per character.
+    static int weigh(RecipeDTO recipe) {
+        long bytes = 64 + weigh(recipe.getName()) + weigh(recipe.getImage()) + weigh(recipe.getDescription());
+        bytes += weigh(recipe.getIngredients()) + weigh(recipe.getAllergens()) + weigh(recipe.getSteps());
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static long weigh(String value) {
+        return value == null ? 0 : 48 + 2L * value.length();
+    }
+
+    private static long weigh(Collection<String> values) {
+        if (values == null) {
+            return 0;
+        }
+        long bytes = 32 + 16L * values.size();
+        for (String value : values) {
+            bytes += weigh(value);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,97 @@
+package com.gazpacho.recipeservice.cache;
+
+import com.gazpacho.recipeservice.index.PostingList;
+import com.gazpacho.recipeservice.search.RecipeQuery;
+import com.gazpacho.sharedlib.cache.TinyLfuCache;
+import com.gazpacho.sharedlib.cache.TinyLfuCacheMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Ids matching a search, keyed by the normalised {@link RecipeQuery}. Only ids are kept;
+ * callers hydrate them (through the RecipeCache), so an entry costs about four bytes per hit.
+ * <p>
+ * Entries expire after recipes.search.cache.ttl. Adding a recipe drops the entries whose
+ * query it matches, deleting one drops the entries that contain it.
+ */
+@Component
+public class SearchResultCache implements MeterBinder {
+
+    private final TinyLfuCache<RecipeQuery, Entry> cache;
+    private final long ttlNanos;
+
+    // bumped by every invalidation; a load that overlapped one is not stored
+    private long version;
+
+    public SearchResultCache(@Value("${recipes.search.cache.max-weight:16MB}") DataSize maxWeight,
+                             @Value("${recipes.search.cache.ttl:5m}") Duration ttl) {
+        this.cache = new TinyLfuCache<>(maxWeight.toBytes(), SearchResultCache::weigh);
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    private record Entry(PostingList ids, long expiresAt) {
+    }
+
+    // Cached ids, or the loader's result, which is stored unless the cache was invalidated meanwhile.
+    public PostingList get(RecipeQuery query, Supplier<PostingList> loader) {
+        Optional<PostingList> cached = getIfPresent(query);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        long loadVersion = version();
+        PostingList ids = loader.get();
+        put(query, ids, loadVersion);
+        return ids;
+    }
+
+    // The returned list is shared and must not be modified.
+    public Optional<PostingList> getIfPresent(RecipeQuery query) {
+        long now = System.nanoTime();
+        Entry entry = cache.get(query, e -> now - e.expiresAt() < 0);
+        return entry == null ? Optional.empty() : Optional.of(entry.ids());
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    public synchronized void put(RecipeQuery query, PostingList ids, long loadVersion) {
+        if (loadVersion == version) {
+            cache.put(query, new Entry(ids, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    // a new or re-added recipe: drop the searches it now appears in
+    public synchronized void invalidateMatching(String name, Collection<String> ingredients,
+                                                Collection<String> allergens) {
+        version++;
+        cache.invalidateIf((query, entry) -> query.matches(name, ingredients, allergens));
+    }
+
+    // a deleted recipe: drop the searches that returned it
+    public synchronized void invalidateContaining(Long recipeId) {
+        version++;
+        int id = Math.toIntExact(recipeId);
+        cache.invalidateIf((key, entry) -> entry.ids().contains(id));
+    }
+
+    // same meters as the RecipeCache, tagged cache=recipe-searches
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new TinyLfuCacheMetrics(cache, "recipe-searches", Tags.empty()).bindTo(registry);
+    }
+
+    // entry, key and list headers plus the id array
+    private static int weigh(Entry entry) {
+        return 160 + 4 * entry.ids().size();
+    }
+}
@@ -0,0 +1,179 @@
+package com.gazpacho.recipeservice.controller;
+
+import com.gazpacho.recipeservice.storage.ImageStore;
+import com.gazpacho.recipeservice.storage.ImageVariant;
+import com.gazpacho.recipeservice.storage.ThumbnailGenerator;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+// Serves blobs and their resized variants from the ImageStore. Both are immutable, so the hash
+// doubles as a strong ETag and responses may be cached forever.
+@RestController
+@RequestMapping("/recipes/images")
+public class ImageController {
+
+  private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+  // Tomcat's sendfile hand-off: the connector streams the file with FileChannel.transferTo
+  // after the request thread has returned.
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  // below this, a plain copy is cheaper than setting up sendfile (same cut-off as Tomcat's DefaultServlet)
+  private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+  private static final long[] UNSATISFIABLE = new long[0];
+
+  private final ImageStore imageStore;
+  private final ThumbnailGenerator thumbnailGenerator;
+
+  public ImageController(ImageStore imageStore, ThumbnailGenerator thumbnailGenerator) {
+    this.imageStore = imageStore;
+    this.thumbnailGenerator = thumbnailGenerator;
+  }
+
+  @GetMapping("/{hash}")
+  public void viewImage(@PathVariable("hash") String hash,
+                        HttpServletRequest request,
+                        HttpServletResponse response) throws IOException {
+    serve(imageStore.find(hash), "\"" + hash + "\"", request, response);
+  }
+
+  // missing variants are generated on the first request and kept for the next ones
+  @GetMapping("/{hash}/{variant}")
+  public void viewImageVariant(@PathVariable("hash") String hash,
+                               @PathVariable("variant") String variant,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+    Optional<ImageVariant> maybeVariant = ImageVariant.fromSuffix(variant);
+    Optional<Path> blob = maybeVariant.isEmpty()
+        ? Optional.empty()
+        : thumbnailGenerator.variant(hash, maybeVariant.get());
+    serve(blob, "\"" + hash + "-" + variant + "\"", request, response);
+  }
+
+  private void serve(Optional<Path> maybeBlob, String etag,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+    if (maybeBlob.isEmpty()) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    Path blob = maybeBlob.get();
+    response.setHeader(HttpHeaders.ETAG, etag);
+    response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+    response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+    if (matchesAny(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    long length = Files.size(blob);
+    long start = 0;
+    long end = length - 1;
+    String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+    String range = request.getHeader(HttpHeaders.RANGE);
+    if (range != null && (ifRange == null || ifRange.equals(etag))) {
+      long[] bounds = parseRange(range, length);
+      if (bounds == UNSATISFIABLE) {
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+        response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        return;
+      }
+      if (bounds != null) {
+        start = bounds[0];
+        end = bounds[1];
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+      }
+    }
+
+    long count = end - start + 1;
+    response.setContentType(imageStore.contentType(blob));
+    response.setHeader("X-Content-Type-Options", "nosniff");
+    response.setContentLengthLong(count);
+    if ("HEAD".equalsIgnoreCase(request.getMethod()) || count == 0) {
+      return;
+    }
+    if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      request.setAttribute(SENDFILE_FILENAME, blob.toString());
+      request.setAttribute(SENDFILE_START, start);
+      request.setAttribute(SENDFILE_END, end + 1);
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ)) {
+      WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+      long position = start;
+      while (count > 0) {
+        long sent = channel.transferTo(position, count, out);
+        if (sent <= 0) {
+          break;
+        }
+        position += sent;
+        count -= sent;
+      }
+    }
+  }
+
+  // Single "bytes=" ranges only; multi-range and malformed headers get the whole blob (RFC 9110 allows ignoring Range).
+  static long[] parseRange(String header, long length) {
+    if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+      return null;
+    }
+    String spec = header.substring("bytes=".length()).trim();
+    int dash = spec.indexOf('-');
+    if (dash < 0) {
+      return null;
+    }
+    try {
+      String first = spec.substring(0, dash).trim();
+      String last = spec.substring(dash + 1).trim();
+      if (first.isEmpty()) {
+        // suffix range: the last n bytes
+        long suffix = Long.parseLong(last);
+        if (suffix <= 0 || length == 0) {
+          return UNSATISFIABLE;
+        }
+        return new long[] { Math.max(0, length - suffix), length - 1 };
+      }
+      long start = Long.parseLong(first);
+      // an open-ended range runs to the last byte, however long the blob is
+      long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+      if (start < 0 || end < start) {
+        return null;
+      }
+      if (start >= length) {
+        return UNSATISFIABLE;
+      }
+      return new long[] { start, Math.min(end, length - 1) };
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static boolean matchesAny(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      // If-None-Match uses weak comparison
+      if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -1,13 +1,26 @@
 package com.gazpacho.recipeservice.controller;
 
 import com.gazpacho.sharedlib.dto.RecipeDTO;
-import com.gazpacho.recipeservice.model.RecipeEntity;
+import com.gazpacho.sharedlib.dto.RecipeSummaryDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gazpacho.recipeservice.model.PantryMatch;
+import com.gazpacho.sharedlib.dto.RankedRecipeDTO;
+import com.gazpacho.recipeservice.model.RecipeSummaryPage;
+import com.gazpacho.recipeservice.model.SimilarRecipe;
+import com.gazpacho.recipeservice.search.RecipeQuery;
 import com.gazpacho.recipeservice.service.RecipeService;
+import com.gazpacho.recipeservice.storage.DataUri;
+import com.gazpacho.recipeservice.storage.ImageStore;
+import com.gazpacho.sharedlib.dto.RecommendationRequestDTO;
 import com.gazpacho.sharedlib.dto.RequestRecipeDTO;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,32 +28,43 @@ import java.util.Optional;
 @RequestMapping("/recipes")
 public class RecipeController {
 
+  private static final String NEXT_CURSOR = "X-Next-Cursor";
+
   private final RecipeService recipeService;
+  private final ObjectMapper objectMapper;
 
-  public RecipeController(RecipeService recipeService) {
+  public RecipeController(RecipeService recipeService, ObjectMapper objectMapper) {
     this.recipeService = recipeService;
+    this.objectMapper = objectMapper;
   }
 
   @PutMapping("/batch")
   public ResponseEntity<?> addRecipes(@RequestBody List<RequestRecipeDTO> request) {
-    return ResponseEntity.status(HttpStatus.CREATED).body(recipeService.addRecipe(request));
+    try {
+      return ResponseEntity.status(HttpStatus.CREATED).body(recipeService.addRecipe(request));
+    } catch (IllegalArgumentException e) {
+      // inline image that is not a base64 data URI
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
   }
 
   @GetMapping("/batch")
   public ResponseEntity<?> getRecipesBatch(@RequestParam("ids") List<Long> recipeIds) {
-    List<RecipeDTO> recipes = recipeService.getRecipes(recipeIds);
-    return ResponseEntity.ok(recipes);
+    try {
+      List<RecipeDTO> recipes = recipeService.getRecipes(recipeIds);
+      return ResponseEntity.ok(recipes);
+    } catch (IllegalArgumentException e) {
+      // batch larger than recipes.batch.max-size
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
   }
 
   @GetMapping("/{id}")
   public ResponseEntity<?> viewRecipe(@PathVariable("id") Long recipeId) {
     // unwrapping optional
-    Optional<RecipeEntity> maybeRecipe = recipeService.viewRecipe(recipeId);
+    Optional<RecipeDTO> maybeRecipe = recipeService.viewRecipe(recipeId);
     if (maybeRecipe.isPresent()) {
-      RecipeEntity recipe = maybeRecipe.get();
-      // convert RecipeEntity to RecipeDTO.
-      RecipeDTO dto = recipe.toDto();
-      return ResponseEntity.ok(dto);
+      return ResponseEntity.ok(maybeRecipe.get());
     } else {
       // Return 404 Not Found with an error message.
       return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -48,6 +72,65 @@ public class RecipeController {
     }
   }
 
+  // legacy per-recipe image URL: inline images not yet moved to the ImageStore are decoded, URLs are redirected to
+  @GetMapping("/{id}/image")
+  public ResponseEntity<?> viewRecipeImage(@PathVariable("id") Long recipeId) {
+    Optional<String> maybeImage = recipeService.getRecipeImage(recipeId);
+    if (maybeImage.isEmpty() || maybeImage.get().isBlank()) {
+      return ResponseEntity.notFound().build();
+    }
+    String image = maybeImage.get();
+    if (!DataUri.isDataUri(image)) {
+      // stored value that is not a URL we are willing to send clients to
+      return redirectTarget(image)
+          .<ResponseEntity<?>>map(location -> ResponseEntity.status(HttpStatus.FOUND).location(location).build())
+          .orElseGet(() -> ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build());
+    }
+    try {
+      DataUri dataUri = DataUri.parse(image);
+      return ResponseEntity.ok()
+          .contentType(MediaType.parseMediaType(dataUri.mediaType()))
+          .body(dataUri.content());
+    } catch (IllegalArgumentException e) {
+      // data URI that does not decode
+      return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+    }
+  }
+
+  // Image URLs are stored as given, so only our own /recipes/images/{hash} URLs and absolute
+  // http(s) URLs are redirected to; javascript:, file:, scheme-relative and unparseable values are not.
+  private static Optional<URI> redirectTarget(String image) {
+    if (ImageStore.hashOf(image).isPresent()) {
+      return Optional.of(URI.create(image));
+    }
+    URI uri;
+    try {
+      uri = new URI(image);
+    } catch (URISyntaxException e) {
+      return Optional.empty();
+    }
+    boolean web = "http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme());
+    return web && uri.getHost() != null ? Optional.of(uri) : Optional.empty();
+  }
+
+  // More like this: recipes sharing most of this one's ingredients, most similar first.
+  @GetMapping("/{id}/similar")
+  public ResponseEntity<?> similarRecipes(
+          @PathVariable("id") Long recipeId,
+          @RequestParam(name = "limit", required = false) Integer limit) {
+    try {
+      Optional<List<SimilarRecipe>> similar = recipeService.findSimilar(recipeId, limit);
+      if (similar.isEmpty()) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+            .body("Recipe with id " + recipeId + " not found");
+      }
+      return ResponseEntity.ok(similar.get());
+    } catch (IllegalArgumentException e) {
+      // limit outside 1..recipes.search.max-limit
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+  }
+
     //DELETE endpoint for deleting a recipe:
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteRecipe(@PathVariable("id") Long recipeId) {
@@ -61,11 +144,125 @@ public class RecipeController {
     }
 
   //segmented search: by recipe, ingredient, or allergen.(Added recipe as default)
+  // Criteria combine: e.g. ?q=soup&ingredient=leek&ingredient=potato&excludeAllergen=milk finds soups
+  // with both leek and potato and no milk, in one call.
+  // Results come a page at a time in id order; X-Next-Cursor holds the cursor of the next page.
+  // With sort=relevance, q is instead matched against names and ingredients and only the `limit`
+  // best results come back, each with its score; type is ignored and there is no next page.
+  // fuzzy=true first corrects misspelt words ("gaspacho" -> "gazpacho") against the known names.
+  // type=text searches q in names, descriptions and steps instead, returning the `limit` best
+  // matches with their scores, like sort=relevance.
   @GetMapping("/search")
-  public ResponseEntity<List<RecipeDTO>> searchRecipes(
-          @RequestParam("q") String query,
-          @RequestParam(name = "type", required = false, defaultValue = "recipe") String type) {
-    List<RecipeDTO> recipes = recipeService.searchRecipes(query, type);
-    return ResponseEntity.ok(recipes);
+  public ResponseEntity<?> searchRecipes(
+          @RequestParam(name = "q", required = false) String query,
+          @RequestParam(name = "type", required = false, defaultValue = "recipe") String type,
+          @RequestParam(name = "ingredient", required = false) List<String> ingredients,
+          @RequestParam(name = "excludeAllergen", required = false) List<String> excludedAllergens,
+          @RequestParam(name = "sort", required = false, defaultValue = "id") String sort,
+          @RequestParam(name = "fuzzy", required = false, defaultValue = "false") boolean fuzzy,
+          @RequestParam(name = "cursor", required = false) Long cursor,
+          @RequestParam(name = "limit", required = false) Integer limit) {
+    try {
+      if ("relevance".equalsIgnoreCase(sort)) {
+        RecipeQuery filters = RecipeQuery.of(null, "recipe", ingredients, excludedAllergens);
+        List<RankedRecipeDTO> ranked = fuzzy
+            ? recipeService.rankRecipes(recipeService.correct(query), recipeService.correct(filters), limit)
+            : recipeService.rankRecipes(query, filters, limit);
+        return ResponseEntity.ok(ranked);
+      }
+      if ("text".equalsIgnoreCase(type)) {
+        RecipeQuery filters = RecipeQuery.of(null, "recipe", ingredients, excludedAllergens);
+        return ResponseEntity.ok(recipeService.searchFullText(
+            fuzzy ? recipeService.correct(query) : query, filters, limit));
+      }
+      RecipeQuery recipeQuery = RecipeQuery.of(query, type, ingredients, excludedAllergens);
+      RecipeSummaryPage page = recipeService.searchRecipes(
+          fuzzy ? recipeService.correct(recipeQuery) : recipeQuery, cursor, limit);
+      ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+      if (page.nextCursor() != null) {
+        response.header(NEXT_CURSOR, page.nextCursor().toString());
+      }
+      return response.body(page.results());
+    } catch (IllegalArgumentException e) {
+      // limit outside 1..recipes.search.max-limit, or relevance sort / text search without q
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+  }
+
+  // Called by user-service with a user's taste profile; see RecommendationRequestDTO.
+  @PostMapping("/recommendations")
+  public ResponseEntity<?> recommend(@RequestBody RecommendationRequestDTO request) {
+    try {
+      return ResponseEntity.ok(recipeService.recommend(request.profile(), request.exclude(), request.limit()));
+    } catch (IllegalArgumentException e) {
+      // limit outside 1..recipes.search.max-limit
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+  }
+
+  // Typeahead for the search box: ?q=pa&type=ingredient returns the most popular ingredient names
+  // starting with "pa". type is recipe (default), ingredient or allergen.
+  @GetMapping("/suggest")
+  public ResponseEntity<?> suggest(
+          @RequestParam(name = "q") String prefix,
+          @RequestParam(name = "type", required = false, defaultValue = "recipe") String type,
+          @RequestParam(name = "limit", required = false) Integer limit) {
+    try {
+      return ResponseEntity.ok(recipeService.suggest(prefix, type, limit));
+    } catch (IllegalArgumentException e) {
+      // unknown type, or limit outside 1..recipes.suggest.max-results
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+  }
+
+  // What can I make? ?ingredient=rice&ingredient=egg ranks recipes by the fraction of their
+  // ingredients on hand and lists what is missing from each.
+  @GetMapping("/pantry")
+  public ResponseEntity<?> matchPantry(
+          @RequestParam(name = "ingredient") List<String> ingredients,
+          @RequestParam(name = "limit", required = false) Integer limit) {
+    try {
+      List<PantryMatch> matches = recipeService.matchPantry(ingredients, limit);
+      return ResponseEntity.ok(matches);
+    } catch (IllegalArgumentException e) {
+      // limit outside 1..recipes.search.max-limit
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+  }
+
+  // Same search as newline-delimited JSON. Pages are fetched and flushed one after another, so
+  // memory stays at one page and the first results go out before the rest are read. Here
+  // `limit` caps the total number of results instead of the page size.
+  @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamSearchRecipes(
+          @RequestParam(name = "q", required = false) String query,
+          @RequestParam(name = "type", required = false, defaultValue = "recipe") String type,
+          @RequestParam(name = "ingredient", required = false) List<String> ingredients,
+          @RequestParam(name = "excludeAllergen", required = false) List<String> excludedAllergens,
+          @RequestParam(name = "fuzzy", required = false, defaultValue = "false") boolean fuzzy,
+          @RequestParam(name = "cursor", required = false) Long cursor,
+          @RequestParam(name = "limit", required = false) Long limit) {
+    if (limit != null && limit < 1) {
+      return ResponseEntity.badRequest().build();
+    }
+    RecipeQuery parsed = RecipeQuery.of(query, type, ingredients, excludedAllergens);
+    RecipeQuery recipeQuery = fuzzy ? recipeService.correct(parsed) : parsed;
+    StreamingResponseBody body = out -> {
+      long remaining = limit == null ? Long.MAX_VALUE : limit;
+      Long next = cursor;
+      do {
+        RecipeSummaryPage page = recipeService.searchRecipes(recipeQuery, next, null);
+        for (RecipeSummaryDTO recipe : page.results()) {
+          if (remaining-- == 0) {
+            return;
+          }
+          out.write(objectMapper.writeValueAsBytes(recipe));
+          out.write('\n');
+        }
+        out.flush();
+        next = page.nextCursor();
+      } while (next != null && remaining > 0);
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
   }
 }
@@ -0,0 +1,35 @@
+package com.gazpacho.recipeservice.controller;
+
+import com.gazpacho.recipeservice.service.RecipeService;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.stereotype.Component;
+
+// POST /actuator/saves/{id} with {"count": n}: called by user-service with the number of users
+// that saved the recipe, after each save or unsave; feeds relevance ranking. Setting the count,
+// rather than moving it, makes repeats harmless and lets a missed call be corrected by the next one.
+// It lives on the management port, which only listens on localhost and is not routed by the gateway.
+@Component
+@WebEndpoint(id = "saves")
+public class SaveCountEndpoint {
+
+  private final RecipeService recipeService;
+
+  public SaveCountEndpoint(RecipeService recipeService) {
+    this.recipeService = recipeService;
+  }
+
+  @WriteOperation
+  public WebEndpointResponse<String> setSaveCount(@Selector Long id, int count) {
+    try {
+      return recipeService.setSaveCount(id, count)
+          ? new WebEndpointResponse<>(WebEndpointResponse.STATUS_NO_CONTENT)
+          : new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+    } catch (IllegalArgumentException e) {
+      // negative count
+      return new WebEndpointResponse<>(e.getMessage(), WebEndpointResponse.STATUS_BAD_REQUEST);
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package com.gazpacho.recipeservice.index;
+
+import com.gazpacho.recipeservice.model.AllergenEntity;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Allergen bitsets for exclusion search. Every allergen gets a dense bit
+ * position; each recipe keeps the set of allergen bits it contains and each
+ * allergen bit keeps the set of recipes (by id) containing it. Excluding a
+ * list of allergens is then one OR over the matching allergens followed by
+ * an AND-NOT against all recipes, with no entity loading.
+ */
+@Component
+public class AllergenIndex implements SmartInitializingSingleton {
+
+    private final RecipeRepository recipeRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final BitSet allRecipes = new BitSet();
+    // allergen id -> dense bit position
+    private final Map<Long, Integer> allergenBits = new HashMap<>();
+    // bit position -> normalised allergen name / recipes containing that allergen
+    private final List<String> bitNames = new ArrayList<>();
+    private final List<BitSet> recipesByAllergen = new ArrayList<>();
+    // recipe id -> allergen bits, so deletes can unlink without a DB read
+    private final Map<Integer, BitSet> recipeAllergens = new HashMap<>();
+
+    public AllergenIndex(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    // before the server starts, as for IngredientIndex
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    // Reads under the write lock, so adds and deletes committed meanwhile are applied after it.
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            List<Long> recipeIds = recipeRepository.findAllIds();
+            List<Object[]> rows = recipeRepository.findRecipeAllergens();
+            allRecipes.clear();
+            allergenBits.clear();
+            bitNames.clear();
+            recipesByAllergen.clear();
+            recipeAllergens.clear();
+            recipeIds.forEach(id -> allRecipes.set(IngredientIndex.toIndexId(id)));
+            for (Object[] row : rows) {
+                link(IngredientIndex.toIndexId((Long) row[0]), (Long) row[1], (String) row[2]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addRecipe(Long recipeId, Collection<AllergenEntity> allergens) {
+        int id = IngredientIndex.toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+            allRecipes.set(id);
+            for (AllergenEntity allergen : allergens) {
+                link(id, allergen.getId(), allergen.getName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeRecipe(Long recipeId) {
+        int id = IngredientIndex.toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+            allRecipes.clear(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ids of recipes containing none of the allergens whose name contains any of the queries.
+    public PostingList excluding(Collection<String> queries) {
+        List<String> needles = needles(queries);
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) allRecipes.clone();
+            result.andNot(excludedRecipes(needles));
+            return PostingList.fromBitSet(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // excluding(queries).size(), without building the list
+    public int countExcluding(Collection<String> queries) {
+        List<String> needles = needles(queries);
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) allRecipes.clone();
+            result.andNot(excludedRecipes(needles));
+            return result.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The candidates containing none of the matching allergens; one bitset test per candidate.
+    public PostingList filterExcluding(PostingList candidates, Collection<String> queries) {
+        List<String> needles = needles(queries);
+        lock.readLock().lock();
+        try {
+            BitSet bits = matchingBits(needles);
+            return candidates.filter(id -> {
+                BitSet allergens = recipeAllergens.get(id);
+                return allergens == null || !allergens.intersects(bits);
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<String> needles(Collection<String> queries) {
+        return queries.stream()
+                .map(IngredientIndex::normalize)
+                .filter(q -> !q.isEmpty())
+                .toList();
+    }
+
+    // bits of the allergens whose name contains any needle; caller holds the read lock
+    private BitSet matchingBits(List<String> needles) {
+        BitSet bits = new BitSet();
+        for (int bit = 0; bit < bitNames.size(); bit++) {
+            String name = bitNames.get(bit);
+            if (name != null && needles.stream().anyMatch(name::contains)) {
+                bits.set(bit);
+            }
+        }
+        return bits;
+    }
+
+    private BitSet excludedRecipes(List<String> needles) {
+        BitSet excluded = new BitSet();
+        matchingBits(needles).stream().forEach(bit -> excluded.or(recipesByAllergen.get(bit)));
+        return excluded;
+    }
+
+    private void link(int recipeId, Long allergenId, String allergenName) {
+        if (allergenId == null || allergenName == null) {
+            return;
+        }
+        int bit = allergenBits.computeIfAbsent(allergenId, k -> {
+            bitNames.add(IngredientIndex.normalize(allergenName));
+            recipesByAllergen.add(new BitSet());
+            return bitNames.size() - 1;
+        });
+        recipesByAllergen.get(bit).set(recipeId);
+        recipeAllergens.computeIfAbsent(recipeId, k -> new BitSet()).set(bit);
+    }
+
+    private void unlink(int recipeId) {
+        BitSet bits = recipeAllergens.remove(recipeId);
+        if (bits == null) {
+            return;
+        }
+        bits.stream().forEach(bit -> recipesByAllergen.get(bit).clear(recipeId));
+    }
+}
@@ -0,0 +1,283 @@
+package com.gazpacho.recipeservice.index;
+
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Spelling correction for search terms. The words of all recipe, ingredient and allergen names
+ * are kept in one BK-tree per kind, so the dictionary words within edit distance k of a query
+ * word are found by visiting only the subtrees the triangle inequality allows, not every word.
+ * <p>
+ * A word is corrected only when it is not in the dictionary itself, to the closest word within
+ * distance 1 (words of up to four letters) or 2 (longer ones); ties go to the word used by more
+ * recipes. BK-trees cannot delete, so words whose last recipe is gone stay as tombstones that
+ * lookups skip until the next rebuild.
+ */
+@Component
+public class FuzzyIndex implements SmartInitializingSingleton {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    // shorter words are left alone: almost any correction would be a different word
+    private static final int MIN_LENGTH = 3;
+
+    private final RecipeRepository recipeRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<SuggestIndex.Kind, BkTree> trees = new EnumMap<>(SuggestIndex.Kind.class);
+    // recipe id -> the names it contributed, so deletes can unlink without a DB read
+    private final Map<Integer, Map<SuggestIndex.Kind, List<String>>> recipes = new HashMap<>();
+
+    public FuzzyIndex(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+        for (SuggestIndex.Kind kind : SuggestIndex.Kind.values()) {
+            trees.put(kind, new BkTree());
+        }
+    }
+
+    // before the server starts, as for IngredientIndex
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    // Reads under the write lock, so adds and deletes committed meanwhile are applied after it.
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            Map<Integer, Map<SuggestIndex.Kind, List<String>>> byRecipe = new HashMap<>();
+            for (Object[] row : recipeRepository.findAllIdsAndNames()) {
+                names(byRecipe, (Long) row[0], SuggestIndex.Kind.RECIPE).add((String) row[1]);
+            }
+            for (Object[] row : recipeRepository.findRecipeIngredientNames()) {
+                names(byRecipe, (Long) row[0], SuggestIndex.Kind.INGREDIENT).add((String) row[1]);
+            }
+            for (Object[] row : recipeRepository.findRecipeAllergens()) {
+                names(byRecipe, (Long) row[0], SuggestIndex.Kind.ALLERGEN).add((String) row[2]);
+            }
+
+            recipes.clear();
+            for (SuggestIndex.Kind kind : SuggestIndex.Kind.values()) {
+                trees.put(kind, new BkTree());
+            }
+            byRecipe.forEach(this::link);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addRecipe(Long recipeId, String name, Collection<String> ingredientNames,
+                          Collection<String> allergenNames) {
+        Map<SuggestIndex.Kind, List<String>> names = new EnumMap<>(SuggestIndex.Kind.class);
+        names.put(SuggestIndex.Kind.RECIPE, name == null ? List.of() : List.of(name));
+        names.put(SuggestIndex.Kind.INGREDIENT, List.copyOf(ingredientNames));
+        names.put(SuggestIndex.Kind.ALLERGEN, List.copyOf(allergenNames));
+        int id = IngredientIndex.toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+            link(id, names);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeRecipe(Long recipeId) {
+        int id = IngredientIndex.toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The text with each word unknown to all the given kinds replaced by the closest word of any
+    // of them, if one is close enough. Everything between the words is kept, so substring search
+    // still applies.
+    public String correct(String text, SuggestIndex.Kind... kinds) {
+        lock.readLock().lock();
+        try {
+            Matcher words = WORD.matcher(text);
+            StringBuilder corrected = new StringBuilder(text.length());
+            while (words.find()) {
+                String replacement = closest(words.group().toLowerCase(), kinds);
+                words.appendReplacement(corrected, Matcher.quoteReplacement(
+                        replacement == null ? words.group() : replacement));
+            }
+            words.appendTail(corrected);
+            return corrected.toString();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // null when the word is known, too short, or nothing is close enough
+    private String closest(String word, SuggestIndex.Kind... kinds) {
+        if (word.length() < MIN_LENGTH) {
+            return null;
+        }
+        for (SuggestIndex.Kind kind : kinds) {
+            if (trees.get(kind).refs(word) > 0) {
+                return null;
+            }
+        }
+        int maxDistance = word.length() <= 4 ? 1 : 2;
+        BkTree.Node best = null;
+        int bestDistance = maxDistance + 1;
+        for (SuggestIndex.Kind kind : kinds) {
+            BkTree.Node node = trees.get(kind).closest(word, maxDistance);
+            if (node == null) {
+                continue;
+            }
+            int d = distance(word, node.word);
+            if (d < bestDistance || d == bestDistance && node.refs > best.refs) {
+                best = node;
+                bestDistance = d;
+            }
+        }
+        return best == null ? null : best.word;
+    }
+
+    private static List<String> names(Map<Integer, Map<SuggestIndex.Kind, List<String>>> byRecipe,
+                                      Long recipeId, SuggestIndex.Kind kind) {
+        return byRecipe.computeIfAbsent(IngredientIndex.toIndexId(recipeId),
+                        k -> new EnumMap<>(SuggestIndex.Kind.class))
+                .computeIfAbsent(kind, k -> new ArrayList<>());
+    }
+
+    private void link(int recipeId, Map<SuggestIndex.Kind, List<String>> names) {
+        recipes.put(recipeId, names);
+        names.forEach((kind, list) -> list.forEach(name ->
+                forEachWord(name, word -> trees.get(kind).add(word, 1))));
+    }
+
+    private void unlink(int recipeId) {
+        Map<SuggestIndex.Kind, List<String>> names = recipes.remove(recipeId);
+        if (names != null) {
+            names.forEach((kind, list) -> list.forEach(name ->
+                    forEachWord(name, word -> trees.get(kind).add(word, -1))));
+        }
+    }
+
+    private static void forEachWord(String name, Consumer<String> action) {
+        if (name == null) {
+            return;
+        }
+        Matcher words = WORD.matcher(name.toLowerCase());
+        while (words.find()) {
+            action.accept(words.group());
+        }
+    }
+
+    // Levenshtein distance, two rows
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitute = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    // BK-tree of words with the number of recipe names each occurs in; children keyed by distance
+    private static final class BkTree {
+
+        private static final class Node {
+            final String word;
+            int refs;
+            final Map<Integer, Node> children = new HashMap<>(4);
+
+            Node(String word) {
+                this.word = word;
+            }
+        }
+
+        private Node root;
+        // exact lookups skip the tree
+        private final Map<String, Node> nodes = new HashMap<>();
+
+        int refs(String word) {
+            Node node = nodes.get(word);
+            return node == null ? 0 : node.refs;
+        }
+
+        void add(String word, int refs) {
+            Node existing = nodes.get(word);
+            if (existing != null) {
+                existing.refs += refs;
+                return;
+            }
+            if (refs <= 0) {
+                return;
+            }
+            Node node = new Node(word);
+            node.refs = refs;
+            nodes.put(word, node);
+            if (root == null) {
+                root = node;
+                return;
+            }
+            Node parent = root;
+            while (true) {
+                int d = distance(word, parent.word);
+                Node child = parent.children.get(d);
+                if (child == null) {
+                    parent.children.put(d, node);
+                    return;
+                }
+                parent = child;
+            }
+        }
+
+        // closest live word within maxDistance: smallest distance, then most refs, then alphabetical
+        Node closest(String word, int maxDistance) {
+            if (root == null) {
+                return null;
+            }
+            Node best = null;
+            int bestDistance = maxDistance + 1;
+            List<Node> stack = new ArrayList<>();
+            stack.add(root);
+            while (!stack.isEmpty()) {
+                Node node = stack.remove(stack.size() - 1);
+                int d = distance(word, node.word);
+                if (node.refs > 0 && d <= maxDistance && (d < bestDistance
+                        || d == bestDistance && (node.refs > best.refs
+                        || node.refs == best.refs && node.word.compareTo(best.word) < 0))) {
+                    best = node;
+                    bestDistance = d;
+                }
+                // only children at distance d - k .. d + k can be within k of the word
+                for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                    if (Math.abs(child.getKey() - d) <= maxDistance) {
+                        stack.add(child.getValue());
+                    }
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.gazpacho.recipeservice.index;
+
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index from ingredient name to the recipes that use it.
+ * Built once at startup, before the web server takes requests, and kept current
+ * by RecipeService on add/delete, so ingredient search never has to load the
+ * recipes table.
+ */
+@Component
+public class IngredientIndex implements SmartInitializingSingleton {
+
+    private final RecipeRepository recipeRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // normalised ingredient name -> ids of recipes using it
+    private final Map<String, PostingList> postings = new HashMap<>();
+    // recipe id -> its normalised ingredient names, so deletes can unlink without a DB read
+    private final Map<Integer, String[]> recipeTerms = new HashMap<>();
+
+    public IngredientIndex(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    // Runs after all beans are created but before the server starts, so no search sees an empty index.
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    // The rows are read under the write lock: an add or delete committed meanwhile waits for the
+    // rebuild and is applied on top of it, instead of being wiped by it.
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            Map<Integer, List<String>> byRecipe = new HashMap<>();
+            for (Object[] row : recipeRepository.findRecipeIngredientNames()) {
+                byRecipe.computeIfAbsent(toIndexId((Long) row[0]), k -> new ArrayList<>())
+                        .add((String) row[1]);
+            }
+            postings.clear();
+            recipeTerms.clear();
+            byRecipe.forEach(this::link);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addRecipe(Long recipeId, Collection<String> ingredientNames) {
+        int id = toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+            link(id, ingredientNames);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeRecipe(Long recipeId) {
+        int id = toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ids of recipes with at least one ingredient whose name contains the query.
+    // Scans the ingredient dictionary, which is far smaller than the recipe table.
+    public PostingList search(String query) {
+        String needle = normalize(query);
+        lock.readLock().lock();
+        try {
+            List<PostingList> matches = new ArrayList<>();
+            postings.forEach((name, recipes) -> {
+                if (name.contains(needle)) {
+                    matches.add(recipes);
+                }
+            });
+            return PostingList.unionAll(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Upper bound on search(query).size(): the posting sizes are summed without merging them.
+    public int estimate(String query) {
+        String needle = normalize(query);
+        lock.readLock().lock();
+        try {
+            int total = 0;
+            for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                if (entry.getKey().contains(needle)) {
+                    total += entry.getValue().size();
+                }
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The candidates with an ingredient whose name contains the query; one map lookup per candidate.
+    public PostingList filter(PostingList candidates, String query) {
+        String needle = normalize(query);
+        lock.readLock().lock();
+        try {
+            return candidates.filter(id -> {
+                String[] terms = recipeTerms.get(id);
+                if (terms != null) {
+                    for (String term : terms) {
+                        if (term.contains(needle)) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void link(int recipeId, Collection<String> ingredientNames) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String name : ingredientNames) {
+            if (name != null) {
+                terms.add(normalize(name));
+            }
+        }
+        if (terms.isEmpty()) {
+            return;
+        }
+        for (String term : terms) {
+            postings.computeIfAbsent(term, k -> new PostingList()).add(recipeId);
+        }
+        recipeTerms.put(recipeId, terms.toArray(new String[0]));
+    }
+
+    private void unlink(int recipeId) {
+        String[] terms = recipeTerms.remove(recipeId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            PostingList recipes = postings.get(term);
+            if (recipes != null && recipes.remove(recipeId) && recipes.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    static int toIndexId(Long recipeId) {
+        return Math.toIntExact(recipeId);
+    }
+
+    static String normalize(String text) {
+        return text.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,250 @@
+package com.gazpacho.recipeservice.index;
+
+import com.gazpacho.recipeservice.model.IngredientEntity;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ranks recipes by how much of them a set of ingredients on hand covers.
+ * <p>
+ * Keyed by ingredient id: each ingredient keeps the recipes using it, and each recipe keeps
+ * its ingredient ids, whose count is the denominator of its coverage. Matching walks only the
+ * postings of the ingredients on hand, counting hits per recipe, and keeps the best K in a
+ * bounded heap; missing ingredients are listed for those K alone. Unlike IngredientIndex,
+ * names match exactly (ignoring case), so "rice" on hand does not cover "rice vinegar".
+ * <p>
+ * The same postings score recommendations: a weighted ingredient profile against each recipe's
+ * ingredient set, by cosine similarity.
+ */
+@Component
+public class PantryIndex implements SmartInitializingSingleton {
+
+    private final RecipeRepository recipeRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ingredient id -> recipes using it
+    private final Map<Long, PostingList> recipesByIngredient = new HashMap<>();
+    // recipe id -> its ingredient ids
+    private final Map<Integer, long[]> recipeIngredients = new HashMap<>();
+    // ingredient id -> display name, and normalised name -> ingredient ids
+    private final Map<Long, String> ingredientNames = new HashMap<>();
+    private final Map<String, Set<Long>> ingredientIds = new HashMap<>();
+
+    public PantryIndex(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    // One ranked recipe: `have` of its `total` ingredients are on hand; `missing` names the rest.
+    public record Match(long recipeId, int have, int total, List<String> missing) {
+
+        public double coverage() {
+            return (double) have / total;
+        }
+    }
+
+    public record Recommendation(long recipeId, double score) {
+    }
+
+    // best first: higher score, then lower id
+    private static final Comparator<Recommendation> BY_SCORE = Comparator
+            .comparingDouble(Recommendation::score).reversed()
+            .thenComparingLong(Recommendation::recipeId);
+
+    // best first: higher coverage, then more ingredients used, then lower id
+    private static final Comparator<Match> RANKING = Comparator
+            .comparingDouble(Match::coverage).reversed()
+            .thenComparing(Comparator.comparingInt(Match::have).reversed())
+            .thenComparingLong(Match::recipeId);
+
+    // before the server starts, as for IngredientIndex
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    // Reads under the write lock, so adds and deletes committed meanwhile are applied after it.
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            Map<Integer, Map<Long, String>> byRecipe = new HashMap<>();
+            for (Object[] row : recipeRepository.findRecipeIngredients()) {
+                byRecipe.computeIfAbsent(IngredientIndex.toIndexId((Long) row[0]), k -> new LinkedHashMap<>())
+                        .put((Long) row[1], (String) row[2]);
+            }
+            recipesByIngredient.clear();
+            recipeIngredients.clear();
+            ingredientNames.clear();
+            ingredientIds.clear();
+            byRecipe.forEach(this::link);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addRecipe(Long recipeId, Collection<IngredientEntity> ingredients) {
+        int id = IngredientIndex.toIndexId(recipeId);
+        Map<Long, String> names = new LinkedHashMap<>();
+        ingredients.forEach(ingredient -> names.put(ingredient.getId(), ingredient.getName()));
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+            link(id, names);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeRecipe(Long recipeId) {
+        int id = IngredientIndex.toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The limit best-covered recipes using at least one of the named ingredients, best first.
+    public List<Match> match(Collection<String> onHand, int limit) {
+        lock.readLock().lock();
+        try {
+            Set<Long> pantry = new LinkedHashSet<>();
+            for (String name : onHand) {
+                pantry.addAll(ingredientIds.getOrDefault(IngredientIndex.normalize(name), Set.of()));
+            }
+
+            // one pass over the postings of the pantry: hits per recipe
+            Map<Integer, int[]> hits = new HashMap<>();
+            for (Long ingredient : pantry) {
+                PostingList recipes = recipesByIngredient.get(ingredient);
+                for (int i = 0; i < recipes.size(); i++) {
+                    hits.computeIfAbsent(recipes.get(i), k -> new int[1])[0]++;
+                }
+            }
+
+            // worst of the current top K at the head, so each candidate costs at most log K
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            hits.forEach((recipeId, have) -> {
+                best.add(new Match(recipeId, have[0], recipeIngredients.get(recipeId).length, List.of()));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            });
+
+            List<Match> ranked = new ArrayList<>(best.size());
+            for (Match match : best) {
+                ranked.add(new Match(match.recipeId(), match.have(), match.total(),
+                        missing(IngredientIndex.toIndexId(match.recipeId()), pantry)));
+            }
+            ranked.sort(RANKING);
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The limit recipes closest to a profile of ingredient name -> weight, best first, leaving
+    // out the excluded ones. A recipe scores the cosine between the profile and its ingredients
+    // (each weight 1), so it rises with the profile weight it covers and falls with every
+    // ingredient the profile does not know. Only the postings of profile ingredients are walked.
+    public List<Recommendation> recommend(Map<String, Double> profile, Collection<Long> excluded, int limit) {
+        Set<Integer> skip = new HashSet<>();
+        excluded.forEach(id -> skip.add(IngredientIndex.toIndexId(id)));
+        lock.readLock().lock();
+        try {
+            // ingredient id -> weight; names of one ingredient in different case add up
+            Map<Long, Double> weights = new HashMap<>();
+            profile.forEach((name, weight) -> {
+                if (name == null || weight == null || weight <= 0) {
+                    return;
+                }
+                for (Long ingredient : ingredientIds.getOrDefault(IngredientIndex.normalize(name), Set.of())) {
+                    weights.merge(ingredient, weight, Double::sum);
+                }
+            });
+            double norm = Math.sqrt(weights.values().stream().mapToDouble(w -> w * w).sum());
+
+            Map<Integer, double[]> dot = new HashMap<>();
+            weights.forEach((ingredient, weight) -> {
+                PostingList recipes = recipesByIngredient.get(ingredient);
+                for (int i = 0; i < recipes.size(); i++) {
+                    if (!skip.contains(recipes.get(i))) {
+                        dot.computeIfAbsent(recipes.get(i), k -> new double[1])[0] += weight;
+                    }
+                }
+            });
+
+            PriorityQueue<Recommendation> best = new PriorityQueue<>(limit + 1, BY_SCORE.reversed());
+            dot.forEach((recipeId, sum) -> {
+                double score = sum[0] / (norm * Math.sqrt(recipeIngredients.get(recipeId).length));
+                best.add(new Recommendation(recipeId, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            });
+            List<Recommendation> ranked = new ArrayList<>(best);
+            ranked.sort(BY_SCORE);
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<String> missing(int recipeId, Set<Long> pantry) {
+        List<String> missing = new ArrayList<>();
+        for (long ingredient : recipeIngredients.get(recipeId)) {
+            if (!pantry.contains(ingredient)) {
+                missing.add(ingredientNames.get(ingredient));
+            }
+        }
+        return missing;
+    }
+
+    private void link(int recipeId, Map<Long, String> ingredients) {
+        if (ingredients.isEmpty()) {
+            return;
+        }
+        ingredients.forEach((ingredient, name) -> {
+            recipesByIngredient.computeIfAbsent(ingredient, k -> new PostingList()).add(recipeId);
+            if (ingredientNames.put(ingredient, name) == null) {
+                ingredientIds.computeIfAbsent(IngredientIndex.normalize(name), k -> new LinkedHashSet<>())
+                        .add(ingredient);
+            }
+        });
+        recipeIngredients.put(recipeId, ingredients.keySet().stream().mapToLong(Long::longValue).toArray());
+    }
+
+    // Ingredients no recipe uses any more are dropped from the dictionaries too.
+    private void unlink(int recipeId) {
+        long[] ingredients = recipeIngredients.remove(recipeId);
+        if (ingredients == null) {
+            return;
+        }
+        for (long ingredient : ingredients) {
+            PostingList recipes = recipesByIngredient.get(ingredient);
+            if (recipes != null && recipes.remove(recipeId) && recipes.isEmpty()) {
+                recipesByIngredient.remove(ingredient);
+                String name = ingredientNames.remove(ingredient);
+                Set<Long> ids = ingredientIds.get(IngredientIndex.normalize(name));
+                if (ids != null && ids.remove(ingredient) && ids.isEmpty()) {
+                    ingredientIds.remove(IngredientIndex.normalize(name));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.gazpacho.recipeservice.index;
+
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Save counts of recipes, held in memory so relevance ranking can weigh every candidate without
+ * reading the recipes table. Only saved recipes have an entry. Built at startup and kept current
+ * by RecipeService as user-service reports new counts.
+ */
+@Component
+public class PopularityIndex implements SmartInitializingSingleton {
+
+    private final RecipeRepository recipeRepository;
+    // recipe id -> save count, > 0
+    private final Map<Integer, Integer> saves = new ConcurrentHashMap<>();
+
+    public PopularityIndex(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    // before the server starts, as for IngredientIndex
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    // Reads while holding the monitor, so counts set meanwhile are applied after it.
+    public synchronized void rebuild() {
+        List<Object[]> rows = recipeRepository.findSaveCounts();
+        saves.clear();
+        for (Object[] row : rows) {
+            saves.put(IngredientIndex.toIndexId((Long) row[0]), (Integer) row[1]);
+        }
+    }
+
+    public synchronized void set(Long recipeId, int count) {
+        if (count > 0) {
+            saves.put(IngredientIndex.toIndexId(recipeId), count);
+        } else {
+            saves.remove(IngredientIndex.toIndexId(recipeId));
+        }
+    }
+
+    public void removeRecipe(Long recipeId) {
+        saves.remove(IngredientIndex.toIndexId(recipeId));
+    }
+
+    public int saves(int recipeId) {
+        return saves.getOrDefault(recipeId, 0);
+    }
+}
@@ -0,0 +1,209 @@
+package com.gazpacho.recipeservice.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Sorted, duplicate-free list of recipe ids backed by a primitive int array.
+ * Not thread-safe; owners guard it with their own lock.
+ */
+public class PostingList {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] ids;
+    private int size;
+
+    public PostingList() {
+        this.ids = EMPTY;
+    }
+
+    private PostingList(int[] ids, int size) {
+        this.ids = ids;
+        this.size = size;
+    }
+
+    public static PostingList of(int... ids) {
+        return ofOwned(ids.clone());
+    }
+
+    private static PostingList ofOwned(int[] sorted) {
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (size == 0 || sorted[size - 1] != sorted[i]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return new PostingList(sorted, size);
+    }
+
+    public static PostingList fromBitSet(BitSet bits) {
+        int[] ids = bits.stream().toArray();
+        return new PostingList(ids, ids.length);
+    }
+
+    public static PostingList unionAll(List<PostingList> lists) {
+        if (lists.isEmpty()) {
+            return new PostingList();
+        }
+        if (lists.size() == 1) {
+            return lists.get(0).copy();
+        }
+        int total = 0;
+        for (PostingList list : lists) {
+            total += list.size;
+        }
+        int[] all = new int[total];
+        int n = 0;
+        for (PostingList list : lists) {
+            System.arraycopy(list.ids, 0, all, n, list.size);
+            n += list.size;
+        }
+        return ofOwned(all);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return ids[index];
+    }
+
+    public boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    // Ids mostly arrive in increasing order, so this is an append in the common case.
+    public boolean add(int id) {
+        if (size > 0 && ids[size - 1] < id) {
+            ensureCapacity(size + 1);
+            ids[size++] = id;
+            return true;
+        }
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) {
+            return false;
+        }
+        int insertAt = -pos - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    public PostingList copy() {
+        return new PostingList(Arrays.copyOf(ids, size), size);
+    }
+
+    public PostingList union(PostingList other) {
+        int[] out = new int[size + other.size];
+        int i = 0, j = 0, n = 0;
+        while (i < size && j < other.size) {
+            int a = ids[i], b = other.ids[j];
+            if (a < b) {
+                out[n++] = a;
+                i++;
+            } else if (b < a) {
+                out[n++] = b;
+                j++;
+            } else {
+                out[n++] = a;
+                i++;
+                j++;
+            }
+        }
+        while (i < size) out[n++] = ids[i++];
+        while (j < other.size) out[n++] = other.ids[j++];
+        return new PostingList(out, n);
+    }
+
+    public PostingList intersect(PostingList other) {
+        int[] out = new int[Math.min(size, other.size)];
+        int i = 0, j = 0, n = 0;
+        while (i < size && j < other.size) {
+            int a = ids[i], b = other.ids[j];
+            if (a < b) {
+                i++;
+            } else if (b < a) {
+                j++;
+            } else {
+                out[n++] = a;
+                i++;
+                j++;
+            }
+        }
+        return new PostingList(out, n);
+    }
+
+    // The ids the predicate keeps, as a new list; used to check candidates against a further criterion.
+    public PostingList filter(IntPredicate keep) {
+        int[] out = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (keep.test(ids[i])) {
+                out[n++] = ids[i];
+            }
+        }
+        return new PostingList(out, n);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    public List<Long> toIdList() {
+        List<Long> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add((long) ids[i]);
+        }
+        return result;
+    }
+
+    // Keyset slice for pagination: up to max ids strictly greater than after.
+    public List<Long> toIdList(long after, int max) {
+        int from;
+        if (after >= Integer.MAX_VALUE) {
+            from = size;
+        } else if (after < Integer.MIN_VALUE) {
+            from = 0;
+        } else {
+            int found = Arrays.binarySearch(ids, 0, size, (int) after);
+            from = found >= 0 ? found + 1 : -found - 1;
+        }
+        int to = (int) Math.min(size, (long) from + max);
+        List<Long> result = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            result.add((long) ids[i]);
+        }
+        return result;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(capacity, ids.length * 2));
+        }
+    }
+}
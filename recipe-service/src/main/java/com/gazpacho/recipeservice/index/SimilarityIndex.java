@@ -0,0 +1,239 @@
+package com.gazpacho.recipeservice.index;
+
+import com.gazpacho.recipeservice.model.IngredientEntity;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "More like this" by ingredient overlap: recipes whose ingredient-id sets have a high Jaccard
+ * similarity to a given recipe's.
+ * <p>
+ * Each recipe keeps a MinHash signature of bands * rows values; two recipes agree on one value
+ * with probability equal to their Jaccard similarity. The signature is cut into bands and each
+ * band hashed to a bucket, so recipes sharing any whole band are candidates: likely above roughly
+ * (1 / bands) ^ (1 / rows) similarity, unlikely below it. Only candidates get an exact Jaccard,
+ * which is what ranks them, and pairs below minSimilarity are dropped.
+ */
+@Component
+public class SimilarityIndex implements SmartInitializingSingleton {
+
+    // fixed so signatures are comparable across rebuilds and instances
+    private static final long SEED = 0x5eed_1e55_c0ffeeL;
+
+    private final RecipeRepository recipeRepository;
+    private final int bands;
+    private final int rows;
+    private final double minSimilarity;
+    private final long[] hashSeeds;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // (band, band hash) -> recipes whose signature has that band
+    private final Map<Long, PostingList> buckets = new HashMap<>();
+    // recipe id -> sorted ingredient ids and signature, so deletes can unlink without a DB read
+    private final Map<Integer, long[]> recipeIngredients = new HashMap<>();
+    private final Map<Integer, long[]> signatures = new HashMap<>();
+
+    public SimilarityIndex(RecipeRepository recipeRepository,
+                           @Value("${recipes.similar.bands:20}") int bands,
+                           @Value("${recipes.similar.rows:3}") int rows,
+                           @Value("${recipes.similar.min-similarity:0.2}") double minSimilarity) {
+        this.recipeRepository = recipeRepository;
+        this.bands = bands;
+        this.rows = rows;
+        this.minSimilarity = minSimilarity;
+        SplittableRandom random = new SplittableRandom(SEED);
+        this.hashSeeds = new long[bands * rows];
+        for (int i = 0; i < hashSeeds.length; i++) {
+            hashSeeds[i] = random.nextLong();
+        }
+    }
+
+    public record Match(long recipeId, double similarity) {
+    }
+
+    // best first: higher similarity, then lower id
+    private static final Comparator<Match> RANKING = Comparator
+            .comparingDouble(Match::similarity).reversed()
+            .thenComparingLong(Match::recipeId);
+
+    // before the server starts, as for IngredientIndex
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    // Reads under the write lock, so adds and deletes committed meanwhile are applied after it.
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            Map<Integer, Set<Long>> byRecipe = new HashMap<>();
+            for (Object[] row : recipeRepository.findRecipeIngredients()) {
+                byRecipe.computeIfAbsent(IngredientIndex.toIndexId((Long) row[0]), k -> new HashSet<>())
+                        .add((Long) row[1]);
+            }
+
+            buckets.clear();
+            recipeIngredients.clear();
+            signatures.clear();
+            byRecipe.forEach(this::link);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addRecipe(Long recipeId, Collection<IngredientEntity> ingredients) {
+        int id = IngredientIndex.toIndexId(recipeId);
+        Set<Long> ingredientIds = new HashSet<>();
+        ingredients.forEach(ingredient -> ingredientIds.add(ingredient.getId()));
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+            link(id, ingredientIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeRecipe(Long recipeId) {
+        int id = IngredientIndex.toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The limit recipes most similar to the given one, best first; empty when it has no
+    // ingredients or is unknown.
+    public List<Match> similar(Long recipeId, int limit) {
+        int id = IngredientIndex.toIndexId(recipeId);
+        lock.readLock().lock();
+        try {
+            long[] signature = signatures.get(id);
+            if (signature == null) {
+                return List.of();
+            }
+            long[] ingredients = recipeIngredients.get(id);
+            // worst of the current top K at the head
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            Set<Integer> seen = new HashSet<>();
+            seen.add(id);
+            for (int band = 0; band < bands; band++) {
+                PostingList bucket = buckets.get(bucketKey(band, signature));
+                for (int i = 0; i < bucket.size(); i++) {
+                    int candidate = bucket.get(i);
+                    if (!seen.add(candidate)) {
+                        continue;
+                    }
+                    double similarity = jaccard(ingredients, recipeIngredients.get(candidate));
+                    if (similarity < minSimilarity) {
+                        continue;
+                    }
+                    best.add(new Match(candidate, similarity));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            List<Match> ranked = new ArrayList<>(best);
+            ranked.sort(RANKING);
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void link(int recipeId, Set<Long> ingredients) {
+        if (ingredients.isEmpty()) {
+            return;
+        }
+        long[] sorted = ingredients.stream().mapToLong(Long::longValue).sorted().toArray();
+        long[] signature = signature(sorted);
+        recipeIngredients.put(recipeId, sorted);
+        signatures.put(recipeId, signature);
+        for (int band = 0; band < bands; band++) {
+            buckets.computeIfAbsent(bucketKey(band, signature), k -> new PostingList()).add(recipeId);
+        }
+    }
+
+    private void unlink(int recipeId) {
+        long[] signature = signatures.remove(recipeId);
+        if (signature == null) {
+            return;
+        }
+        recipeIngredients.remove(recipeId);
+        for (int band = 0; band < bands; band++) {
+            long key = bucketKey(band, signature);
+            PostingList bucket = buckets.get(key);
+            if (bucket != null && bucket.remove(recipeId) && bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    // MinHash: per hash function, the smallest hash of any ingredient id
+    private long[] signature(long[] ingredients) {
+        long[] signature = new long[hashSeeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (long ingredient : ingredients) {
+            for (int i = 0; i < hashSeeds.length; i++) {
+                signature[i] = Math.min(signature[i], mix(ingredient ^ hashSeeds[i]));
+            }
+        }
+        return signature;
+    }
+
+    private long bucketKey(int band, long[] signature) {
+        long key = band;
+        for (int row = band * rows; row < (band + 1) * rows; row++) {
+            key = mix(key * 31 + signature[row]);
+        }
+        return key;
+    }
+
+    // |a & b| / |a | b| of two sorted id arrays, by merging
+    static double jaccard(long[] a, long[] b) {
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) shared / (a.length + b.length - shared);
+    }
+
+    // 64-bit finaliser of MurmurHash3
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
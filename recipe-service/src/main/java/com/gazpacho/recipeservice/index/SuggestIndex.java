@@ -0,0 +1,277 @@
+package com.gazpacho.recipeservice.index;
+
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typeahead over recipe, ingredient and allergen names: one trie per kind, keyed by the
+ * normalised name. Every node caches the best maxResults names below it, so a lookup is a walk
+ * down the prefix plus a copy of that list, whatever the number of matches.
+ * <p>
+ * Names are weighted by popularity: an ingredient or allergen by the number of recipes using it,
+ * a recipe name by the number of recipes with it plus their saves. Changing a name's weight
+ * re-derives the cached lists along its path only, from the node's own name and its children's
+ * lists, so adds, deletes and saves stay incremental.
+ */
+@Component
+public class SuggestIndex implements SmartInitializingSingleton {
+
+    public enum Kind { RECIPE, INGREDIENT, ALLERGEN }
+
+    private final RecipeRepository recipeRepository;
+    private final int maxResults;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Kind, Node> roots = new EnumMap<>(Kind.class);
+    // recipe id -> the names it contributed, so deletes can unlink without a DB read
+    private final Map<Integer, Contribution> recipes = new HashMap<>();
+
+    public SuggestIndex(RecipeRepository recipeRepository,
+                        @Value("${recipes.suggest.max-results:10}") int maxResults) {
+        this.recipeRepository = recipeRepository;
+        this.maxResults = maxResults;
+        for (Kind kind : Kind.values()) {
+            roots.put(kind, new Node());
+        }
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    // a name as shown, with its recipe count and total weight
+    private static final class Term {
+        final String key;
+        final String display;
+        int refs;
+        long weight;
+
+        Term(String key, String display) {
+            this.key = key;
+            this.display = display;
+        }
+    }
+
+    private static final class Node {
+        final Map<Character, Node> children = new HashMap<>(4);
+        Term term;
+        Term[] top = new Term[0];
+    }
+
+    private record Contribution(String name, List<String> ingredients, List<String> allergens, int saves) {
+
+        boolean hasName() {
+            return name != null && !name.isBlank();
+        }
+    }
+
+    // heaviest first, then shorter, then alphabetical
+    private static final Comparator<Term> RANKING = Comparator
+            .comparingLong((Term t) -> t.weight).reversed()
+            .thenComparingInt(t -> t.key.length())
+            .thenComparing(t -> t.key);
+
+    // before the server starts, as for IngredientIndex
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    // Reads under the write lock, so adds and deletes committed meanwhile are applied after it.
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            Map<Integer, String> names = new HashMap<>();
+            for (Object[] row : recipeRepository.findAllIdsAndNames()) {
+                names.put(IngredientIndex.toIndexId((Long) row[0]), (String) row[1]);
+            }
+            Map<Integer, List<String>> ingredients = new HashMap<>();
+            for (Object[] row : recipeRepository.findRecipeIngredientNames()) {
+                ingredients.computeIfAbsent(IngredientIndex.toIndexId((Long) row[0]), k -> new ArrayList<>())
+                        .add((String) row[1]);
+            }
+            Map<Integer, List<String>> allergens = new HashMap<>();
+            for (Object[] row : recipeRepository.findRecipeAllergens()) {
+                allergens.computeIfAbsent(IngredientIndex.toIndexId((Long) row[0]), k -> new ArrayList<>())
+                        .add((String) row[2]);
+            }
+            Map<Integer, Integer> saves = new HashMap<>();
+            for (Object[] row : recipeRepository.findSaveCounts()) {
+                saves.put(IngredientIndex.toIndexId((Long) row[0]), (Integer) row[1]);
+            }
+
+            recipes.clear();
+            for (Kind kind : Kind.values()) {
+                roots.put(kind, new Node());
+            }
+            names.forEach((id, name) -> link(id, new Contribution(name,
+                    distinct(ingredients.getOrDefault(id, List.of())),
+                    distinct(allergens.getOrDefault(id, List.of())),
+                    saves.getOrDefault(id, 0))));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addRecipe(Long recipeId, String name, Collection<String> ingredientNames,
+                          Collection<String> allergenNames) {
+        int id = IngredientIndex.toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            Contribution previous = unlink(id);
+            int saves = previous == null ? 0 : previous.saves();
+            link(id, new Contribution(name, distinct(ingredientNames), distinct(allergenNames), saves));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeRecipe(Long recipeId) {
+        int id = IngredientIndex.toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // a new save count of the recipe moves the weight of its name
+    public void setSaves(Long recipeId, int count) {
+        int id = IngredientIndex.toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            Contribution contribution = recipes.get(id);
+            if (contribution == null || !contribution.hasName()) {
+                return;
+            }
+            int saves = Math.max(0, count);
+            recipes.put(id, new Contribution(contribution.name(), contribution.ingredients(),
+                    contribution.allergens(), saves));
+            update(Kind.RECIPE, contribution.name(), 0, saves - contribution.saves());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Up to limit (at most maxResults) names of the kind starting with the prefix, best first.
+    public List<String> suggest(Kind kind, String prefix, int limit) {
+        String key = normalize(prefix);
+        lock.readLock().lock();
+        try {
+            Node node = roots.get(kind);
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            int n = Math.min(limit, node.top.length);
+            List<String> names = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                names.add(node.top[i].display);
+            }
+            return names;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void link(int recipeId, Contribution contribution) {
+        recipes.put(recipeId, contribution);
+        if (contribution.hasName()) {
+            update(Kind.RECIPE, contribution.name(), 1, 1 + contribution.saves());
+        }
+        contribution.ingredients().forEach(name -> update(Kind.INGREDIENT, name, 1, 1));
+        contribution.allergens().forEach(name -> update(Kind.ALLERGEN, name, 1, 1));
+    }
+
+    private Contribution unlink(int recipeId) {
+        Contribution contribution = recipes.remove(recipeId);
+        if (contribution == null) {
+            return null;
+        }
+        if (contribution.hasName()) {
+            update(Kind.RECIPE, contribution.name(), -1, -1 - contribution.saves());
+        }
+        contribution.ingredients().forEach(name -> update(Kind.INGREDIENT, name, -1, -1));
+        contribution.allergens().forEach(name -> update(Kind.ALLERGEN, name, -1, -1));
+        return contribution;
+    }
+
+    // Moves a name's recipe count and weight, dropping it at zero recipes, then re-derives the
+    // cached lists from its node back up to the root and prunes nodes left empty.
+    private void update(Kind kind, String name, int refs, long weight) {
+        String key = normalize(name);
+        Deque<Node> path = new ArrayDeque<>(key.length() + 1);
+        Node node = roots.get(kind);
+        path.push(node);
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+            path.push(node);
+        }
+        if (node.term == null) {
+            node.term = new Term(key, name.trim());
+        }
+        node.term.refs += refs;
+        node.term.weight += weight;
+        if (node.term.refs <= 0) {
+            node.term = null;
+        }
+
+        for (int depth = key.length(); depth >= 0; depth--) {
+            Node current = path.pop();
+            if (depth < key.length()) {
+                char c = key.charAt(depth);
+                Node child = current.children.get(c);
+                if (child.term == null && child.children.isEmpty()) {
+                    current.children.remove(c);
+                }
+            }
+            current.top = best(current);
+        }
+    }
+
+    // The best maxResults of the node's own name and its children's lists, which together
+    // hold the best maxResults of the whole subtree.
+    private Term[] best(Node node) {
+        List<Term> candidates = new ArrayList<>();
+        if (node.term != null) {
+            candidates.add(node.term);
+        }
+        for (Node child : node.children.values()) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        candidates.sort(RANKING);
+        return candidates.subList(0, Math.min(maxResults, candidates.size())).toArray(new Term[0]);
+    }
+
+    private static List<String> distinct(Collection<String> names) {
+        Map<String, String> byKey = new HashMap<>();
+        for (String name : names) {
+            if (name != null && !name.isBlank()) {
+                byKey.putIfAbsent(normalize(name), name);
+            }
+        }
+        return List.copyOf(byKey.values());
+    }
+
+    private static String normalize(String text) {
+        return IngredientIndex.normalize(text);
+    }
+}
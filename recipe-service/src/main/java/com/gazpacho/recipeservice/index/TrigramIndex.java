@@ -0,0 +1,227 @@
+package com.gazpacho.recipeservice.index;
+
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over recipe names, an alternative to the
+ * LIKE '%q%' query that idx_recipe_name cannot serve. The posting lists of
+ * the query's trigrams are intersected (rarest first) to get candidates,
+ * which are then verified against the stored names.
+ *
+ * Only active when recipes.search.name-engine is "trigram"; otherwise it
+ * stays empty and name search goes to the database.
+ */
+@Component
+public class TrigramIndex implements SmartInitializingSingleton {
+
+    public static final String ENGINE = "trigram";
+
+    private final RecipeRepository recipeRepository;
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // packed trigram -> ids of recipes whose name contains it
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    // recipe id -> normalised name, used for verification and unlinking
+    private final Map<Integer, String> names = new HashMap<>();
+
+    public TrigramIndex(RecipeRepository recipeRepository,
+                        @Value("${recipes.search.name-engine:sql}") String engine) {
+        this.recipeRepository = recipeRepository;
+        this.enabled = ENGINE.equalsIgnoreCase(engine);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    // Built before the server starts and read under the write lock, as IngredientIndex is.
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            List<Object[]> rows = recipeRepository.findAllIdsAndNames();
+            postings.clear();
+            names.clear();
+            for (Object[] row : rows) {
+                link(IngredientIndex.toIndexId((Long) row[0]), (String) row[1]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addRecipe(Long recipeId, String name) {
+        if (!enabled) {
+            return;
+        }
+        int id = IngredientIndex.toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+            link(id, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeRecipe(Long recipeId) {
+        if (!enabled) {
+            return;
+        }
+        int id = IngredientIndex.toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ids of recipes whose name contains the query, ignoring case.
+    public PostingList search(String query) {
+        String needle = query.toLowerCase();
+        lock.readLock().lock();
+        try {
+            if (needle.length() < 3) {
+                // too short to have a trigram; the name map is still much smaller than the rows
+                return verify(names.keySet(), needle);
+            }
+
+            List<PostingList> lists = new ArrayList<>();
+            for (int i = 0; i + 3 <= needle.length(); i++) {
+                PostingList list = postings.get(pack(needle, i));
+                if (list == null) {
+                    return new PostingList();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+
+            PostingList candidates = lists.get(0);
+            for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+                candidates = candidates.intersect(lists.get(i));
+            }
+            if (needle.length() == 3) {
+                return candidates.copy();
+            }
+            List<Integer> ids = new ArrayList<>(candidates.size());
+            for (int i = 0; i < candidates.size(); i++) {
+                ids.add(candidates.get(i));
+            }
+            return verify(ids, needle);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Upper bound on search(query).size(): the shortest posting list of the query's trigrams.
+    public int estimate(String query) {
+        String needle = query.toLowerCase();
+        lock.readLock().lock();
+        try {
+            int estimate = names.size();
+            for (int i = 0; i + 3 <= needle.length(); i++) {
+                PostingList list = postings.get(pack(needle, i));
+                estimate = Math.min(estimate, list == null ? 0 : list.size());
+            }
+            return estimate;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The candidates whose name contains the query, checked against the stored names.
+    public PostingList filter(PostingList candidates, String query) {
+        String needle = query.toLowerCase();
+        lock.readLock().lock();
+        try {
+            return candidates.filter(id -> {
+                String name = names.get(id);
+                return name != null && name.contains(needle);
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Stored (lower-cased) names of the given recipes, for relevance scoring.
+    public Map<Integer, String> names(PostingList ids) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, String> result = new HashMap<>();
+            for (int i = 0; i < ids.size(); i++) {
+                String name = names.get(ids.get(i));
+                if (name != null) {
+                    result.put(ids.get(i), name);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private PostingList verify(Collection<Integer> candidates, String needle) {
+        int[] matches = new int[candidates.size()];
+        int n = 0;
+        for (int id : candidates) {
+            if (names.get(id).contains(needle)) {
+                matches[n++] = id;
+            }
+        }
+        return PostingList.of(Arrays.copyOf(matches, n));
+    }
+
+    private void link(int recipeId, String name) {
+        if (name == null) {
+            return;
+        }
+        String normalised = name.toLowerCase();
+        names.put(recipeId, normalised);
+        for (int i = 0; i + 3 <= normalised.length(); i++) {
+            postings.computeIfAbsent(pack(normalised, i), k -> new PostingList()).add(recipeId);
+        }
+    }
+
+    private void unlink(int recipeId) {
+        String name = names.remove(recipeId);
+        if (name == null) {
+            return;
+        }
+        for (int i = 0; i + 3 <= name.length(); i++) {
+            Long key = pack(name, i);
+            PostingList list = postings.get(key);
+            if (list != null && list.remove(recipeId) && list.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    // three UTF-16 chars packed into the low 48 bits of a long
+    private static long pack(String text, int offset) {
+        return ((long) text.charAt(offset) << 32)
+                | ((long) text.charAt(offset + 1) << 16)
+                | text.charAt(offset + 2);
+    }
+}
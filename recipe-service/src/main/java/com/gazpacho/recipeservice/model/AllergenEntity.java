@@ -12,7 +12,8 @@ import java.util.Set;
 @Table(name = "allergens", indexes = { @Index(name = "idx_allergen_name", columnList = "name") })
 public class AllergenEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "allergen_seq")
+    @SequenceGenerator(name = "allergen_seq", sequenceName = "allergen_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true)
@@ -14,18 +14,21 @@ import java.util.Set;
 @Table(name = "ingredients", indexes = { @Index(name = "idx_ingredient_name", columnList = "name") })
 public class IngredientEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingredient_seq")
+    @SequenceGenerator(name = "ingredient_seq", sequenceName = "ingredient_seq", allocationSize = 50)
     //overridden equals and hashcode here to allow for matching ingredient on ID instead of reference
     @EqualsAndHashCode.Include
     private Long id;
 
     private String name;
 
+    // reverse index for allergen-first lookups; the primary key leads with ingredient_id
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(
             name = "ingredient_allergens",
             joinColumns = @JoinColumn(name = "ingredient_id"),
-            inverseJoinColumns = @JoinColumn(name = "allergen_id")
+            inverseJoinColumns = @JoinColumn(name = "allergen_id"),
+            indexes = { @Index(name = "idx_ingredient_allergens_allergen", columnList = "allergen_id, ingredient_id") }
     )
     private Set<AllergenEntity> allergens = new HashSet<>();
 }
@@ -0,0 +1,14 @@
+package com.gazpacho.recipeservice.model;
+
+import com.gazpacho.sharedlib.dto.RecipeSummaryDTO;
+
+import java.util.List;
+
+// One pantry-match result: coverage is the fraction of the recipe's ingredients on hand,
+// missing the names of the others.
+public record PantryMatch(Long id, String name, String thumbnail, double coverage, List<String> missing) {
+
+    public PantryMatch(RecipeSummaryDTO recipe, double coverage, List<String> missing) {
+        this(recipe.getId(), recipe.getName(), recipe.getThumbnail(), coverage, missing);
+    }
+}
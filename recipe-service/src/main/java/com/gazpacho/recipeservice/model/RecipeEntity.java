@@ -3,6 +3,7 @@ package com.gazpacho.recipeservice.model;
 import com.gazpacho.sharedlib.dto.RecipeDTO;
 import jakarta.persistence.*;
 import lombok.Getter;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.Setter;
 
 import java.util.HashSet;
@@ -17,24 +18,35 @@ import java.util.stream.Collectors;
 @Table(name = "recipes", indexes = { @Index(name = "idx_recipe_name", columnList = "name") })
 public class RecipeEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence ids let Hibernate batch inserts, which IDENTITY rules out
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipe_seq")
+    @SequenceGenerator(name = "recipe_seq", sequenceName = "recipe_seq", allocationSize = 50)
     private Long id;
 
     @Column
     private String name;
 
+    // URL of the image: /recipes/images/{hash} for uploads, or an external link. Older rows may
+    // still hold an inline data URI until RecipeService moves it into the ImageStore.
     @Column(columnDefinition = "TEXT")
     private String image;
 
     @Column
     private String description;
 
-    // Many-to-many ingredient-recipe relationship
+    // number of users who saved the recipe, reported by user-service; a ranking signal only
+    @Column(name = "save_count", nullable = false)
+    @ColumnDefault("0")
+    private int saveCount;
+
+    // Many-to-many ingredient-recipe relationship. The primary key leads with recipe_id; the
+    // reverse index serves ingredient-first lookups (ingredient search, EXISTS semi-joins).
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(
         name = "recipe_ingredients",
         joinColumns = @JoinColumn(name = "recipe_id"),
-        inverseJoinColumns = @JoinColumn(name = "ingredient_id")
+        inverseJoinColumns = @JoinColumn(name = "ingredient_id"),
+        indexes = { @Index(name = "idx_recipe_ingredients_ingredient", columnList = "ingredient_id, recipe_id") }
     )
     private Set<IngredientEntity> ingredients = new HashSet<>();
 
@@ -48,7 +60,7 @@ public class RecipeEntity {
         return new RecipeDTO(
                 getId(),
                 getName(),
-                getImage(),
+                imageUrl(getId(), getImage()),
                 getIngredients().stream().map(IngredientEntity::getName).toList(),
                 getIngredients().stream()
                         .flatMap(ing -> ing.getAllergens().stream().map(AllergenEntity::getName))
@@ -57,4 +69,12 @@ public class RecipeEntity {
                 getDescription()
         );
     }
+
+    // DTOs only ever carry a URL; inline images not yet moved to the store are served per recipe.
+    public static String imageUrl(Long id, String image) {
+        if (image != null && image.startsWith("data:")) {
+            return "/recipes/" + id + "/image";
+        }
+        return image;
+    }
 }
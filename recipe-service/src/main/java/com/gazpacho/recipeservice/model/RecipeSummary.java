@@ -0,0 +1,23 @@
+package com.gazpacho.recipeservice.model;
+
+import com.gazpacho.recipeservice.storage.ImageStore;
+import com.gazpacho.recipeservice.storage.ImageVariant;
+import com.gazpacho.sharedlib.dto.RecipeDTO;
+import com.gazpacho.sharedlib.dto.RecipeSummaryDTO;
+
+// Constructor projection for search result lists: only id, name and image URL are read, so
+// the ingredient/allergen/step collections are never loaded.
+public record RecipeSummary(Long id, String name, String image) {
+
+    // lists show the small variant; external and legacy inline images have no variants
+    public RecipeSummaryDTO toDto() {
+        return new RecipeSummaryDTO(id, name,
+                ImageStore.variantUrl(RecipeEntity.imageUrl(id, image), ImageVariant.SMALL));
+    }
+
+    // the same summary from a cached detail DTO, whose image is already a URL
+    public static RecipeSummaryDTO toDto(RecipeDTO recipe) {
+        return new RecipeSummaryDTO(recipe.getId(), recipe.getName(),
+                ImageStore.variantUrl(recipe.getImage(), ImageVariant.SMALL));
+    }
+}
@@ -0,0 +1,10 @@
+package com.gazpacho.recipeservice.model;
+
+import com.gazpacho.sharedlib.dto.RecipeSummaryDTO;
+
+import java.util.List;
+
+// One keyset page of search results, in id order. nextCursor is the last id of the page when
+// more results follow, null on the last page.
+public record RecipeSummaryPage(List<RecipeSummaryDTO> results, Long nextCursor) {
+}
@@ -0,0 +1,11 @@
+package com.gazpacho.recipeservice.model;
+
+import com.gazpacho.sharedlib.dto.RecipeSummaryDTO;
+
+// One "more like this" result: similarity is the Jaccard similarity of the two ingredient sets.
+public record SimilarRecipe(Long id, String name, String thumbnail, double similarity) {
+
+    public SimilarRecipe(RecipeSummaryDTO recipe, double similarity) {
+        this(recipe.getId(), recipe.getName(), recipe.getThumbnail(), similarity);
+    }
+}
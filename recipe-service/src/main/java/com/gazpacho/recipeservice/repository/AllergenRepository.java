@@ -5,6 +5,7 @@ import com.gazpacho.recipeservice.model.IngredientEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,6 +13,8 @@ import java.util.Optional;
 public interface AllergenRepository extends JpaRepository<AllergenEntity, Long> {
   Optional<AllergenEntity> findByName(String name);
 
+  List<AllergenEntity> findByNameIn(Collection<String> names);
+
   List<AllergenEntity> findByNameContainingIgnoreCase(String query);
   // findByID auto included in JPA
 }
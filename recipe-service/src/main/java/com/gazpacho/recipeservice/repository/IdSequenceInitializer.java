@@ -0,0 +1,84 @@
+package com.gazpacho.recipeservice.repository;
+
+import com.gazpacho.recipeservice.model.AllergenEntity;
+import com.gazpacho.recipeservice.model.IngredientEntity;
+import com.gazpacho.recipeservice.model.RecipeEntity;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Recipes, ingredients and allergens used to take IDENTITY ids and now take them from pooled
+ * sequences, which Hibernate creates starting at 1 next to tables that may already hold rows.
+ * Before the application takes any request, each sequence is moved past the largest id of its
+ * table, so the first allocated block cannot collide with an existing row. Already-seeded
+ * sequences are left alone, so this is a no-op on every start after the first.
+ * <p>
+ * On MySQL the sequences are emulated with single-row tables (recipe_seq etc.) holding next_val;
+ * databases with native sequences are restarted with ALTER SEQUENCE (reading them there takes a
+ * value, so each start skips one block of ids).
+ */
+@Component
+public class IdSequenceInitializer implements SmartInitializingSingleton {
+
+    private static final List<Class<?>> ENTITIES = List.of(RecipeEntity.class, IngredientEntity.class,
+            AllergenEntity.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, Dialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    @Autowired
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this(jdbcTemplate, entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (Class<?> entity : ENTITIES) {
+            seed(entity);
+        }
+    }
+
+    private void seed(Class<?> entity) {
+        SequenceGenerator generator = generatorOf(entity);
+        String table = entity.getAnnotation(Table.class).name();
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+        if (maxId == null) {
+            return;
+        }
+        // The pooled optimizer hands out the allocationSize ids below each value it reads, so
+        // the first block starts above maxId.
+        long floor = maxId + generator.allocationSize() + 1;
+        String sequence = generator.sequenceName();
+        if (dialect.getSequenceSupport().supportsSequences()) {
+            Long next = jdbcTemplate.queryForObject(
+                    dialect.getSequenceSupport().getSequenceNextValString(sequence), Long.class);
+            if (next != null && next < floor) {
+                jdbcTemplate.execute("alter sequence " + sequence + " restart with " + floor);
+            }
+        } else {
+            jdbcTemplate.update("update " + sequence + " set next_val = ? where next_val < ?", floor, floor);
+        }
+    }
+
+    private static SequenceGenerator generatorOf(Class<?> entity) {
+        try {
+            return entity.getDeclaredField("id").getAnnotation(SequenceGenerator.class);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(entity.getSimpleName() + " has no id field", e);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.gazpacho.recipeservice.model.RecipeEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,6 +13,8 @@ import java.util.Optional;
 public interface IngredientRepository extends JpaRepository<IngredientEntity, Long> {
   Optional<IngredientEntity> findByName(String name);
 
+  List<IngredientEntity> findByNameIn(Collection<String> names);
+
   List<IngredientEntity> findByNameContainingIgnoreCase(String query);
   // findByID auto included in JPA
 }
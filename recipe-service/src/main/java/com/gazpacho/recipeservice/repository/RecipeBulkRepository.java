@@ -0,0 +1,80 @@
+package com.gazpacho.recipeservice.repository;
+
+import com.gazpacho.recipeservice.model.IngredientEntity;
+import com.gazpacho.recipeservice.model.RecipeEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Write path for bulk recipe ingestion. Recipes are persisted through JPA so
+ * they get pooled sequence ids and batched inserts; their ingredient join
+ * rows and steps are then written with one JdbcTemplate batch per table.
+ * Letting Hibernate write the collections would interleave the two tables
+ * per recipe and break every JDBC batch after a handful of rows.
+ */
+@Repository
+public class RecipeBulkRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    public RecipeBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // On return every recipe has its id and is detached, with its ingredients and steps in place.
+    @Transactional
+    public List<RecipeEntity> insertAll(List<RecipeEntity> recipes) {
+        List<Set<IngredientEntity>> ingredients = new ArrayList<>(recipes.size());
+        List<List<String>> steps = new ArrayList<>(recipes.size());
+        for (RecipeEntity recipe : recipes) {
+            ingredients.add(recipe.getIngredients());
+            steps.add(recipe.getSteps());
+            recipe.setIngredients(new HashSet<>());
+            recipe.setSteps(new ArrayList<>());
+            entityManager.persist(recipe);
+        }
+        entityManager.flush();
+
+        List<Object[]> joinRows = new ArrayList<>();
+        List<Object[]> stepRows = new ArrayList<>();
+        for (int i = 0; i < recipes.size(); i++) {
+            Long recipeId = recipes.get(i).getId();
+            ingredients.get(i).forEach(ingredient -> joinRows.add(new Object[] { recipeId, ingredient.getId() }));
+            steps.get(i).forEach(step -> stepRows.add(new Object[] { recipeId, step }));
+        }
+        jdbcTemplate.batchUpdate("insert into recipe_ingredients (recipe_id, ingredient_id) values (?, ?)",
+                joinRows, batchSize, (ps, row) -> {
+                    ps.setLong(1, (Long) row[0]);
+                    ps.setLong(2, (Long) row[1]);
+                });
+        jdbcTemplate.batchUpdate("insert into recipe_steps (recipe_id, step) values (?, ?)",
+                stepRows, batchSize, (ps, row) -> {
+                    ps.setLong(1, (Long) row[0]);
+                    ps.setString(2, (String) row[1]);
+                });
+
+        // detach before restoring the collections, or the flush at commit would insert them again
+        for (int i = 0; i < recipes.size(); i++) {
+            RecipeEntity recipe = recipes.get(i);
+            entityManager.detach(recipe);
+            recipe.setIngredients(ingredients.get(i));
+            recipe.setSteps(steps.get(i));
+        }
+        return recipes;
+    }
+}
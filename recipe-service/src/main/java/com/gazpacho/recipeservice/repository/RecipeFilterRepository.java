@@ -0,0 +1,78 @@
+package com.gazpacho.recipeservice.repository;
+
+import com.gazpacho.recipeservice.model.AllergenEntity;
+import com.gazpacho.recipeservice.model.IngredientEntity;
+import com.gazpacho.recipeservice.model.RecipeEntity;
+import com.gazpacho.recipeservice.search.RecipeQuery;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recipe search run by the database as a single id query: the name is a LIKE on recipes,
+ * each required ingredient a correlated EXISTS through recipe_ingredients, and the allergen
+ * exclusion a NOT EXISTS through recipe_ingredients and ingredient_allergens, so no recipe
+ * row or collection is loaded. The number of criteria varies, hence Criteria rather than a
+ * fixed JPQL string.
+ */
+@Repository
+public class RecipeFilterRepository {
+
+    private static final char ESCAPE = '\\';
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Ids, ascending, of the recipes matching every criterion of the query.
+    public List<Long> findIds(RecipeQuery query) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> select = cb.createQuery(Long.class);
+        Root<RecipeEntity> recipe = select.from(RecipeEntity.class);
+        List<Predicate> where = new ArrayList<>();
+
+        if (query.name() != null) {
+            where.add(cb.like(cb.lower(recipe.get("name")), contains(query.name()), ESCAPE));
+        }
+        for (String name : query.ingredients()) {
+            Subquery<Integer> ingredient = select.subquery(Integer.class);
+            Join<RecipeEntity, IngredientEntity> ingredients = ingredient.correlate(recipe).join("ingredients");
+            ingredient.select(cb.literal(1))
+                    .where(cb.like(cb.lower(ingredients.get("name")), contains(name), ESCAPE));
+            where.add(cb.exists(ingredient));
+        }
+        if (!query.excludedAllergens().isEmpty()) {
+            Subquery<Integer> allergen = select.subquery(Integer.class);
+            Join<IngredientEntity, AllergenEntity> allergens = allergen.correlate(recipe)
+                    .<RecipeEntity, IngredientEntity>join("ingredients")
+                    .join("allergens");
+            Predicate[] anyMatch = query.excludedAllergens().stream()
+                    .map(name -> cb.like(cb.lower(allergens.get("name")), contains(name), ESCAPE))
+                    .toArray(Predicate[]::new);
+            allergen.select(cb.literal(1)).where(cb.or(anyMatch));
+            where.add(cb.not(cb.exists(allergen)));
+        }
+
+        select.select(recipe.get("id"))
+                .where(where.toArray(Predicate[]::new))
+                .orderBy(cb.asc(recipe.get("id")));
+        return entityManager.createQuery(select).getResultList();
+    }
+
+    // %term% with LIKE wildcards in the term taken literally
+    private static String contains(String term) {
+        String escaped = term.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
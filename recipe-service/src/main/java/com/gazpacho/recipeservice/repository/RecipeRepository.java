@@ -1,17 +1,94 @@
 package com.gazpacho.recipeservice.repository;
 
 import com.gazpacho.recipeservice.model.RecipeEntity;
+import com.gazpacho.recipeservice.model.RecipeSummary;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface RecipeRepository extends JpaRepository<RecipeEntity, Long> {
   Optional<RecipeEntity> findByName(String name);
 
   List<RecipeEntity> findByNameContainingIgnoreCase(String query);
+
+  // ids only, for the SearchResultCache; pages are then sliced from the cached list
+  @Query("select r.id from RecipeEntity r "
+      + "where upper(r.name) like upper(concat('%', :#{escape(#query)}, '%')) escape :#{escapeCharacter()}")
+  List<Long> findIdsByNameContaining(@Param("query") String query);
+
+  // (id, name) pairs of the same match, for relevance scoring
+  @Query("select r.id, r.name from RecipeEntity r "
+      + "where upper(r.name) like upper(concat('%', :#{escape(#query)}, '%')) escape :#{escapeCharacter()}")
+  List<Object[]> findIdsAndNamesByNameContaining(@Param("query") String query);
+
+  // the same match restricted to candidate ids, for multi-criteria search
+  @Query("select r.id from RecipeEntity r where r.id in :ids "
+      + "and upper(r.name) like upper(concat('%', :#{escape(#query)}, '%')) escape :#{escapeCharacter()}")
+  List<Long> findIdsByNameContainingAndIdIn(@Param("query") String query, @Param("ids") Collection<Long> ids);
+
+  @Query("select new com.gazpacho.recipeservice.model.RecipeSummary(r.id, r.name, r.image) "
+      + "from RecipeEntity r where r.id in :ids")
+  List<RecipeSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+  @Query("select r.image from RecipeEntity r where r.id = :id")
+  Optional<String> findImageById(@Param("id") Long id);
+
+  // recipes whose image is still stored inline as a data URI
+  @Query("select r.id from RecipeEntity r where r.image like 'data:%'")
+  List<Long> findIdsWithInlineImage();
+
+  @Modifying
+  @Transactional
+  @Query("update RecipeEntity r set r.image = :image where r.id = :id")
+  int updateImage(@Param("id") Long id, @Param("image") String image);
+
+  // Recipes with ingredients and allergens in one query; steps are then
+  // batch-fetched (hibernate.default_batch_fetch_size) to keep their order.
+  @Query("select distinct r from RecipeEntity r left join fetch r.ingredients i left join fetch i.allergens where r.id in :ids")
+  List<RecipeEntity> findAllWithIngredientsByIdIn(@Param("ids") Collection<Long> ids);
+
+  // (recipe id, ingredient name) pairs used to build the in-memory ingredient index
+  @Query("select r.id, i.name from RecipeEntity r join r.ingredients i")
+  List<Object[]> findRecipeIngredientNames();
+
+  // (recipe id, ingredient id, ingredient name) triples used to build the pantry index
+  @Query("select r.id, i.id, i.name from RecipeEntity r join r.ingredients i")
+  List<Object[]> findRecipeIngredients();
+
+  // (recipe id, save count) pairs of saved recipes, used to build the popularity index
+  @Query("select r.id, r.saveCount from RecipeEntity r where r.saveCount > 0")
+  List<Object[]> findSaveCounts();
+
+  // 0 rows when the recipe is missing
+  @Modifying
+  @Transactional
+  @Query("update RecipeEntity r set r.saveCount = :count where r.id = :id")
+  int updateSaveCount(@Param("id") Long id, @Param("count") int count);
+
+  // (id, name, description) and (id, step) rows of the given recipes, for the full-text index
+  @Query("select r.id, r.name, r.description from RecipeEntity r where r.id in :ids")
+  List<Object[]> findTextByIdIn(@Param("ids") Collection<Long> ids);
+
+  @Query("select r.id, s from RecipeEntity r join r.steps s where r.id in :ids")
+  List<Object[]> findStepsByIdIn(@Param("ids") Collection<Long> ids);
+
+  @Query("select r.id, r.name from RecipeEntity r")
+  List<Object[]> findAllIdsAndNames();
+
+  @Query("select r.id from RecipeEntity r")
+  List<Long> findAllIds();
+
+  // (recipe id, allergen id, allergen name) triples used to build the allergen bitsets
+  @Query("select distinct r.id, a.id, a.name from RecipeEntity r join r.ingredients i join i.allergens a")
+  List<Object[]> findRecipeAllergens();
   // findByID auto included in JPA
 }
@@ -0,0 +1,284 @@
+package com.gazpacho.recipeservice.search;
+
+import com.gazpacho.recipeservice.index.PostingList;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Embedded Lucene index over recipe name, description and steps, kept on local disk under
+ * recipes.search.fulltext.dir. Matches are ranked with BM25; a hit in the name weighs more than
+ * one in the description, which weighs more than one in the steps.
+ * <p>
+ * Updates are near-real-time: every write refreshes the searcher from the writer's in-memory
+ * segments, so a recipe is searchable as soon as addRecipe returns without waiting for an fsync.
+ * Pending changes are committed to disk every commit-interval and on shutdown. The index is a
+ * copy of MySQL, so changes lost in a crash are recovered: {@link #rebuild()} rereads every recipe
+ * in parallel batches, and runs before the server starts whenever the index and the table disagree
+ * on the count.
+ */
+@Component
+public class FullTextIndex implements SmartInitializingSingleton {
+
+    static final String ID = "id";
+    static final String NAME = "name";
+    static final String DESCRIPTION = "description";
+    static final String STEPS = "steps";
+
+    // per-field boosts applied on top of BM25
+    private static final Map<String, Float> BOOSTS = Map.of(NAME, 3f, DESCRIPTION, 1.5f, STEPS, 1f);
+
+    private final RecipeRepository recipeRepository;
+    private final Analyzer analyzer = new EnglishAnalyzer();
+    private final FSDirectory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final int batchSize;
+    private final int rebuildThreads;
+    private final ScheduledExecutorService committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fulltext-commit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public FullTextIndex(RecipeRepository recipeRepository,
+                         @Value("${recipes.search.fulltext.dir:data/index}") String dir,
+                         @Value("${recipes.search.fulltext.commit-interval:30s}") Duration commitInterval,
+                         @Value("${recipes.batch.chunk-size:100}") int batchSize,
+                         @Value("${recipes.search.fulltext.rebuild-threads:4}") int rebuildThreads) throws IOException {
+        this.recipeRepository = recipeRepository;
+        this.batchSize = batchSize;
+        this.rebuildThreads = rebuildThreads;
+        this.directory = FSDirectory.open(Path.of(dir));
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setSimilarity(new BM25Similarity())
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        this.writer = new IndexWriter(directory, config);
+        this.searcherManager = new SearcherManager(writer, new SearcherFactory() {
+            @Override
+            public IndexSearcher newSearcher(IndexReader reader, IndexReader previous) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                searcher.setSimilarity(new BM25Similarity());
+                return searcher;
+            }
+        });
+        long interval = commitInterval.toMillis();
+        committer.scheduleWithFixedDelay(this::commitPending, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public record Hit(long recipeId, float score) {
+    }
+
+    // what one recipe contributes to the index
+    public record RecipeText(long id, String name, String description, List<String> steps) {
+    }
+
+    // before the server starts, as for IngredientIndex
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (writer.getDocStats().numDocs != recipeRepository.count()) {
+            rebuild();
+        }
+    }
+
+    // Reindexes every recipe from MySQL: ids are split into batches of recipes.batch.chunk-size,
+    // and rebuild-threads workers each read a batch (two projection queries) and replace its
+    // documents in the shared writer. Only once every batch is in are the documents of recipes
+    // no longer in the table deleted, so a failed rebuild leaves each recipe indexed, either
+    // as before or as reread. Searches see the old index until the rebuild commits; writes
+    // wait for it.
+    public synchronized int rebuild() {
+        List<Long> ids = recipeRepository.findAllIds();
+        ExecutorService workers = Executors.newFixedThreadPool(rebuildThreads);
+        try {
+            List<Future<long[]>> batches = new ArrayList<>();
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                batches.add(workers.submit(() -> indexBatch(batch)));
+            }
+            LongStream.Builder indexed = LongStream.builder();
+            for (Future<long[]> batch : batches) {
+                LongStream.of(batch.get()).forEach(indexed);
+            }
+            long[] seen = indexed.build().toArray();
+            writer.deleteDocuments(new BooleanQuery.Builder()
+                    .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+                    .add(LongPoint.newSetQuery(ID, seen), BooleanClause.Occur.MUST_NOT)
+                    .build());
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            return seen.length;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("full-text rebuild failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("full-text rebuild interrupted", e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // ids of the recipes indexed
+    private long[] indexBatch(List<Long> ids) throws IOException {
+        Map<Long, List<String>> steps = new HashMap<>();
+        for (Object[] row : recipeRepository.findStepsByIdIn(ids)) {
+            steps.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((String) row[1]);
+        }
+        List<Object[]> rows = recipeRepository.findTextByIdIn(ids);
+        long[] indexed = new long[rows.size()];
+        for (int i = 0; i < indexed.length; i++) {
+            Object[] row = rows.get(i);
+            Long id = (Long) row[0];
+            writer.updateDocuments(LongPoint.newExactQuery(ID, id), List.of(toDocument(new RecipeText(id,
+                    (String) row[1], (String) row[2], steps.getOrDefault(id, List.of())))));
+            indexed[i] = id;
+        }
+        return indexed;
+    }
+
+    // Adds or replaces the recipes' documents; searchable on return.
+    public synchronized void addRecipes(Collection<RecipeText> recipes) {
+        try {
+            for (RecipeText recipe : recipes) {
+                writer.updateDocuments(LongPoint.newExactQuery(ID, recipe.id()), List.of(toDocument(recipe)));
+            }
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized void removeRecipe(Long recipeId) {
+        try {
+            writer.deleteDocuments(LongPoint.newExactQuery(ID, recipeId));
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The limit best matches of free text, best first. When allowed is not null, only those
+    // recipes are considered (other search criteria), as a filter that does not affect scores.
+    public List<Hit> search(String text, PostingList allowed, int limit) {
+        Query query = parse(text);
+        if (allowed != null) {
+            long[] ids = new long[allowed.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = allowed.get(i);
+            }
+            query = new BooleanQuery.Builder()
+                    .add(query, BooleanClause.Occur.MUST)
+                    .add(LongPoint.newSetQuery(ID, ids), BooleanClause.Occur.FILTER)
+                    .build();
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                StoredFields stored = searcher.storedFields();
+                List<Hit> hits = new ArrayList<>();
+                for (ScoreDoc doc : searcher.search(query, limit).scoreDocs) {
+                    long id = stored.document(doc.doc).getField(ID).numericValue().longValue();
+                    hits.add(new Hit(id, doc.score));
+                }
+                return hits;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // user text is taken literally: query syntax characters are escaped
+    private Query parse(String text) {
+        MultiFieldQueryParser parser = new MultiFieldQueryParser(
+                new String[] { NAME, DESCRIPTION, STEPS }, analyzer, BOOSTS);
+        try {
+            return parser.parse(QueryParser.escape(text));
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("unsearchable query: " + text);
+        }
+    }
+
+    private static Document toDocument(RecipeText recipe) {
+        Document document = new Document();
+        document.add(new LongPoint(ID, recipe.id()));
+        document.add(new StoredField(ID, recipe.id()));
+        if (recipe.name() != null) {
+            document.add(new TextField(NAME, recipe.name(), Field.Store.NO));
+        }
+        if (recipe.description() != null) {
+            document.add(new TextField(DESCRIPTION, recipe.description(), Field.Store.NO));
+        }
+        for (String step : recipe.steps()) {
+            if (step != null) {
+                document.add(new TextField(STEPS, step, Field.Store.NO));
+            }
+        }
+        return document;
+    }
+
+    private synchronized void commitPending() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException | RuntimeException e) {
+            // retried at the next interval; the startup check rebuilds if it never lands
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        committer.shutdownNow();
+        commitPending();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+}
@@ -0,0 +1,24 @@
+package com.gazpacho.recipeservice.search;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+// POST /actuator/fulltext reindexes every recipe from the database and returns how many were
+// indexed. It is on the localhost-only management port, not under /recipes, so the gateway never
+// exposes it.
+@Component
+@Endpoint(id = "fulltext")
+public class FullTextIndexEndpoint {
+
+    private final FullTextIndex fullTextIndex;
+
+    public FullTextIndexEndpoint(FullTextIndex fullTextIndex) {
+        this.fullTextIndex = fullTextIndex;
+    }
+
+    @WriteOperation
+    public int rebuild() {
+        return fullTextIndex.rebuild();
+    }
+}
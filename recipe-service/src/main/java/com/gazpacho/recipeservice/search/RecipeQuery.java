@@ -0,0 +1,82 @@
+package com.gazpacho.recipeservice.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A recipe search: the name contains {@code name}, every entry of {@code ingredients} is
+ * contained in the name of one of the recipe's ingredients, and no entry of
+ * {@code excludedAllergens} is contained in the name of one of its allergens. Matching
+ * ignores case; a null name or an empty list does not constrain anything.
+ * <p>
+ * Terms are normalised on construction (lower case, trimmed, deduplicated and sorted), so
+ * equal searches are equal records and can be used as cache keys.
+ */
+public record RecipeQuery(String name, List<String> ingredients, List<String> excludedAllergens) {
+
+    public RecipeQuery {
+        // names are not trimmed: the name engines match the text as given
+        name = name == null || name.isEmpty() ? null : name.toLowerCase();
+        ingredients = terms(ingredients);
+        excludedAllergens = terms(excludedAllergens);
+    }
+
+    // The single-criterion search of ?q=&type=; unknown types search by name. Allergens can be
+    // given comma separated, e.g. "peanut,milk".
+    public static RecipeQuery of(String query, String type) {
+        return of(query, type, List.of(), List.of());
+    }
+
+    // q/type plus any number of required ingredients and excluded allergens
+    public static RecipeQuery of(String query, String type,
+                                 Collection<String> ingredients, Collection<String> excludedAllergens) {
+        String name = null;
+        List<String> allIngredients = new ArrayList<>(ingredients == null ? List.of() : ingredients);
+        List<String> allAllergens = new ArrayList<>(excludedAllergens == null ? List.of() : excludedAllergens);
+        if (query != null) {
+            if ("ingredient".equalsIgnoreCase(type)) {
+                allIngredients.add(query);
+            } else if ("allergen".equalsIgnoreCase(type)) {
+                allAllergens.addAll(Arrays.asList(query.split(",")));
+            } else {
+                name = query;
+            }
+        }
+        return new RecipeQuery(name, allIngredients, allAllergens);
+    }
+
+    public boolean isNameOnly() {
+        return name != null && ingredients.isEmpty() && excludedAllergens.isEmpty();
+    }
+
+    // Whether a recipe with these names is in the result of this search.
+    public boolean matches(String recipeName, Collection<String> ingredientNames, Collection<String> allergenNames) {
+        if (name != null && (recipeName == null || !recipeName.toLowerCase().contains(name))) {
+            return false;
+        }
+        for (String term : ingredients) {
+            if (ingredientNames.stream().noneMatch(i -> i.trim().toLowerCase().contains(term))) {
+                return false;
+            }
+        }
+        return allergenNames.stream()
+                .map(a -> a.trim().toLowerCase())
+                .noneMatch(a -> excludedAllergens.stream().anyMatch(a::contains));
+    }
+
+    private static List<String> terms(Collection<String> values) {
+        if (values == null) {
+            return List.of();
+        }
+        return values.stream()
+                .filter(Objects::nonNull)
+                .map(value -> value.trim().toLowerCase())
+                .filter(value -> !value.isEmpty())
+                .distinct()
+                .sorted()
+                .toList();
+    }
+}
@@ -0,0 +1,113 @@
+package com.gazpacho.recipeservice.search;
+
+import com.gazpacho.recipeservice.index.IngredientIndex;
+import com.gazpacho.recipeservice.index.PopularityIndex;
+import com.gazpacho.recipeservice.index.PostingList;
+import com.gazpacho.recipeservice.index.TrigramIndex;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Relevance ranking of a free-text query. A recipe whose name equals the query scores highest,
+ * then names starting with it, then names containing it, then recipes with an ingredient
+ * containing it. Saves add popularityWeight * log10(1 + saves) on top, so about a hundred saves
+ * (at the default weight of 0.5) are worth one tier.
+ * <p>
+ * Candidates stream through a heap bounded at K, so ranking costs O(n log K) and only the K
+ * winners are returned, best first.
+ */
+@Component
+public class RecipeRanker {
+
+    static final double EXACT = 4;
+    static final double PREFIX = 3;
+    static final double SUBSTRING = 2;
+    static final double INGREDIENT = 1;
+
+    private final RecipeRepository recipeRepository;
+    private final IngredientIndex ingredientIndex;
+    private final TrigramIndex trigramIndex;
+    private final PopularityIndex popularityIndex;
+    private final double popularityWeight;
+
+    public RecipeRanker(RecipeRepository recipeRepository,
+                        IngredientIndex ingredientIndex,
+                        TrigramIndex trigramIndex,
+                        PopularityIndex popularityIndex,
+                        @Value("${recipes.search.popularity-weight:0.5}") double popularityWeight) {
+        this.recipeRepository = recipeRepository;
+        this.ingredientIndex = ingredientIndex;
+        this.trigramIndex = trigramIndex;
+        this.popularityIndex = popularityIndex;
+        this.popularityWeight = popularityWeight;
+    }
+
+    public record Scored(long recipeId, double score) {
+    }
+
+    // best first: higher score, then lower id
+    private static final Comparator<Scored> RANKING = Comparator
+            .comparingDouble(Scored::score).reversed()
+            .thenComparingLong(Scored::recipeId);
+
+    // The limit best matches of the query, best first. When allowed is not null, recipes outside
+    // it are skipped (other search criteria).
+    public List<Scored> topK(String query, PostingList allowed, int limit) {
+        String needle = query.trim().toLowerCase();
+        // worst of the current top K at the head
+        PriorityQueue<Scored> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        Map<Integer, String> names = nameMatches(needle);
+        names.forEach((id, name) -> offer(best, limit, allowed, id, nameTier(name.toLowerCase(), needle)));
+
+        PostingList ingredientHits = ingredientIndex.search(needle);
+        for (int i = 0; i < ingredientHits.size(); i++) {
+            int id = ingredientHits.get(i);
+            if (!names.containsKey(id)) {
+                offer(best, limit, allowed, id, INGREDIENT);
+            }
+        }
+
+        List<Scored> ranked = new ArrayList<>(best);
+        ranked.sort(RANKING);
+        return ranked;
+    }
+
+    private void offer(PriorityQueue<Scored> best, int limit, PostingList allowed, int recipeId, double tier) {
+        if (allowed != null && !allowed.contains(recipeId)) {
+            return;
+        }
+        double score = tier + popularityWeight * Math.log10(1 + popularityIndex.saves(recipeId));
+        best.add(new Scored(recipeId, score));
+        if (best.size() > limit) {
+            best.poll();
+        }
+    }
+
+    // recipe id -> name, for every recipe whose name contains the needle
+    private Map<Integer, String> nameMatches(String needle) {
+        if (trigramIndex.isEnabled()) {
+            return trigramIndex.names(trigramIndex.search(needle));
+        }
+        Map<Integer, String> names = new HashMap<>();
+        for (Object[] row : recipeRepository.findIdsAndNamesByNameContaining(needle)) {
+            names.put(Math.toIntExact((Long) row[0]), (String) row[1]);
+        }
+        return names;
+    }
+
+    private static double nameTier(String name, String needle) {
+        String trimmed = name.trim();
+        if (trimmed.equals(needle)) {
+            return EXACT;
+        }
+        return trimmed.startsWith(needle) ? PREFIX : SUBSTRING;
+    }
+}
@@ -0,0 +1,121 @@
+package com.gazpacho.recipeservice.search;
+
+import com.gazpacho.recipeservice.index.AllergenIndex;
+import com.gazpacho.recipeservice.index.IngredientIndex;
+import com.gazpacho.recipeservice.index.PostingList;
+import com.gazpacho.recipeservice.index.TrigramIndex;
+import com.gazpacho.recipeservice.repository.RecipeFilterRepository;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Turns a {@link RecipeQuery} into the ascending ids of the matching recipes.
+ * <p>
+ * With the in-memory indexes, every criterion (name, each required ingredient, the allergen
+ * exclusion) is a step with a cheap upper bound on how many recipes it matches. Only the most
+ * selective step produces a full id list; the others then check just those candidates, each
+ * against the per-recipe data of its index, so the work is bounded by the smallest result
+ * rather than by the catalogue. Name search on the sql engine has no estimate and goes last,
+ * as one id query restricted to the surviving candidates.
+ * <p>
+ * With recipes.search.filter-engine=sql the whole query is one statement and the database
+ * orders the predicates itself.
+ */
+@Component
+public class SearchPlanner {
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeFilterRepository recipeFilterRepository;
+    private final IngredientIndex ingredientIndex;
+    private final AllergenIndex allergenIndex;
+    private final TrigramIndex trigramIndex;
+    private final boolean sqlFilters;
+    private final int chunkSize;
+
+    public SearchPlanner(RecipeRepository recipeRepository,
+                         RecipeFilterRepository recipeFilterRepository,
+                         IngredientIndex ingredientIndex,
+                         AllergenIndex allergenIndex,
+                         TrigramIndex trigramIndex,
+                         @Value("${recipes.search.filter-engine:index}") String filterEngine,
+                         @Value("${recipes.batch.chunk-size:100}") int chunkSize) {
+        this.recipeRepository = recipeRepository;
+        this.recipeFilterRepository = recipeFilterRepository;
+        this.ingredientIndex = ingredientIndex;
+        this.allergenIndex = allergenIndex;
+        this.trigramIndex = trigramIndex;
+        this.sqlFilters = "sql".equalsIgnoreCase(filterEngine);
+        this.chunkSize = chunkSize;
+    }
+
+    // one criterion: an upper bound on its matches, how to list them, and how to check candidates
+    private record Step(long estimate, Supplier<PostingList> load, Function<PostingList, PostingList> filter) {
+    }
+
+    public PostingList matchingIds(RecipeQuery query) {
+        if (sqlFilters) {
+            return toPostingList(recipeFilterRepository.findIds(query));
+        }
+        List<Step> steps = plan(query);
+        if (steps.isEmpty()) {
+            // nothing to filter on: every recipe
+            return allergenIndex.excluding(List.of());
+        }
+        PostingList candidates = steps.get(0).load().get();
+        for (int i = 1; i < steps.size() && !candidates.isEmpty(); i++) {
+            candidates = steps.get(i).filter().apply(candidates);
+        }
+        return candidates;
+    }
+
+    // the query's steps, most selective first
+    private List<Step> plan(RecipeQuery query) {
+        List<Step> steps = new ArrayList<>();
+        for (String ingredient : query.ingredients()) {
+            steps.add(new Step(ingredientIndex.estimate(ingredient),
+                    () -> ingredientIndex.search(ingredient),
+                    candidates -> ingredientIndex.filter(candidates, ingredient)));
+        }
+        if (!query.excludedAllergens().isEmpty()) {
+            List<String> allergens = query.excludedAllergens();
+            steps.add(new Step(allergenIndex.countExcluding(allergens),
+                    () -> allergenIndex.excluding(allergens),
+                    candidates -> allergenIndex.filterExcluding(candidates, allergens)));
+        }
+        String name = query.name();
+        if (name != null && trigramIndex.isEnabled()) {
+            steps.add(new Step(trigramIndex.estimate(name),
+                    () -> trigramIndex.search(name),
+                    candidates -> trigramIndex.filter(candidates, name)));
+        } else if (name != null) {
+            // LIKE '%q%' scans the table whatever it matches
+            steps.add(new Step(Long.MAX_VALUE,
+                    () -> toPostingList(recipeRepository.findIdsByNameContaining(name)),
+                    candidates -> filterNamesInDatabase(candidates, name)));
+        }
+        steps.sort(Comparator.comparingLong(Step::estimate));
+        return steps;
+    }
+
+    // the candidates whose name contains the query, asked in IN chunks of recipes.batch.chunk-size
+    private PostingList filterNamesInDatabase(PostingList candidates, String name) {
+        List<Long> ids = candidates.toIdList();
+        List<Long> matching = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            matching.addAll(recipeRepository.findIdsByNameContainingAndIdIn(name, chunk));
+        }
+        return toPostingList(matching);
+    }
+
+    private static PostingList toPostingList(List<Long> recipeIds) {
+        return PostingList.of(recipeIds.stream().mapToInt(Math::toIntExact).toArray());
+    }
+}
@@ -1,17 +1,59 @@
 package com.gazpacho.recipeservice.service;
 
+import com.gazpacho.recipeservice.cache.RecipeCache;
+import com.gazpacho.recipeservice.cache.SearchResultCache;
+import com.gazpacho.recipeservice.index.AllergenIndex;
+import com.gazpacho.recipeservice.index.FuzzyIndex;
+import com.gazpacho.recipeservice.index.IngredientIndex;
+import com.gazpacho.recipeservice.index.PantryIndex;
+import com.gazpacho.recipeservice.index.PopularityIndex;
+import com.gazpacho.recipeservice.index.PostingList;
+import com.gazpacho.recipeservice.index.SimilarityIndex;
+import com.gazpacho.recipeservice.index.SuggestIndex;
+import com.gazpacho.recipeservice.index.TrigramIndex;
 import com.gazpacho.recipeservice.model.AllergenEntity;
 import com.gazpacho.recipeservice.model.IngredientEntity;
+import com.gazpacho.recipeservice.model.PantryMatch;
+import com.gazpacho.sharedlib.dto.RankedRecipeDTO;
+import com.gazpacho.recipeservice.model.RecipeSummary;
+import com.gazpacho.recipeservice.model.RecipeSummaryPage;
+import com.gazpacho.recipeservice.model.SimilarRecipe;
+import com.gazpacho.recipeservice.search.FullTextIndex;
+import com.gazpacho.recipeservice.search.RecipeQuery;
+import com.gazpacho.recipeservice.search.RecipeRanker;
+import com.gazpacho.recipeservice.search.SearchPlanner;
 import com.gazpacho.recipeservice.repository.IngredientRepository;
+import com.gazpacho.recipeservice.repository.RecipeBulkRepository;
+import com.gazpacho.recipeservice.storage.DataUri;
+import com.gazpacho.recipeservice.storage.ImageStore;
+import com.gazpacho.recipeservice.storage.ThumbnailGenerator;
 import com.gazpacho.sharedlib.dto.RecipeDTO;
+import com.gazpacho.sharedlib.dto.RecipeSummaryDTO;
 import com.gazpacho.recipeservice.model.RecipeEntity;
 import com.gazpacho.recipeservice.repository.AllergenRepository;
 import com.gazpacho.recipeservice.repository.RecipeRepository;
+import com.gazpacho.sharedlib.dto.RequestIngredientDTO;
 import com.gazpacho.sharedlib.dto.RequestRecipeDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,103 +62,471 @@ public class RecipeService {
     private final RecipeRepository recipeRepository;
     private final AllergenRepository allergenRepository;
     private final IngredientRepository ingredientRepository;
+    private final RecipeBulkRepository recipeBulkRepository;
+    private final IngredientIndex ingredientIndex;
+    private final AllergenIndex allergenIndex;
+    private final TrigramIndex trigramIndex;
+    private final PantryIndex pantryIndex;
+    private final PopularityIndex popularityIndex;
+    private final SuggestIndex suggestIndex;
+    private final FuzzyIndex fuzzyIndex;
+    private final SimilarityIndex similarityIndex;
+    private final SearchPlanner searchPlanner;
+    private final RecipeRanker recipeRanker;
+    private final FullTextIndex fullTextIndex;
+    private final ImageStore imageStore;
+    private final ThumbnailGenerator thumbnailGenerator;
+    private final RecipeCache recipeCache;
+    private final SearchResultCache searchResultCache;
+
+    @Value("${recipes.batch.max-size:200}")
+    private int maxBatchSize;
+
+    @Value("${recipes.batch.chunk-size:100}")
+    private int batchChunkSize;
+
+    @Value("${recipes.search.default-limit:50}")
+    private int defaultSearchLimit;
+
+    @Value("${recipes.search.max-limit:200}")
+    private int maxSearchLimit;
 
     public RecipeService(RecipeRepository recipeRepository,
                          AllergenRepository allergenRepository,
-                         IngredientRepository ingredientRepository) {
+                         IngredientRepository ingredientRepository,
+                         RecipeBulkRepository recipeBulkRepository,
+                         IngredientIndex ingredientIndex,
+                         AllergenIndex allergenIndex,
+                         TrigramIndex trigramIndex,
+                         PantryIndex pantryIndex,
+                         PopularityIndex popularityIndex,
+                         SuggestIndex suggestIndex,
+                         FuzzyIndex fuzzyIndex,
+                         SimilarityIndex similarityIndex,
+                         SearchPlanner searchPlanner,
+                         RecipeRanker recipeRanker,
+                         FullTextIndex fullTextIndex,
+                         ImageStore imageStore,
+                         ThumbnailGenerator thumbnailGenerator,
+                         RecipeCache recipeCache,
+                         SearchResultCache searchResultCache) {
         this.recipeRepository = recipeRepository;
         this.allergenRepository = allergenRepository;
         this.ingredientRepository = ingredientRepository;
+        this.recipeBulkRepository = recipeBulkRepository;
+        this.ingredientIndex = ingredientIndex;
+        this.allergenIndex = allergenIndex;
+        this.trigramIndex = trigramIndex;
+        this.pantryIndex = pantryIndex;
+        this.popularityIndex = popularityIndex;
+        this.suggestIndex = suggestIndex;
+        this.fuzzyIndex = fuzzyIndex;
+        this.similarityIndex = similarityIndex;
+        this.searchPlanner = searchPlanner;
+        this.recipeRanker = recipeRanker;
+        this.fullTextIndex = fullTextIndex;
+        this.imageStore = imageStore;
+        this.thumbnailGenerator = thumbnailGenerator;
+        this.recipeCache = recipeCache;
+        this.searchResultCache = searchResultCache;
     }
 
-    public Optional<RecipeEntity> viewRecipe(Long recipeId) {
-        return recipeRepository.findById(recipeId);
+    // read-through RecipeCache; only recipes that exist, and were not invalidated meanwhile, are cached
+    @Transactional(readOnly = true)
+    public Optional<RecipeDTO> viewRecipe(Long recipeId) {
+        Optional<RecipeDTO> cached = recipeCache.get(recipeId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        long version = recipeCache.version();
+        Optional<RecipeDTO> loaded = recipeRepository.findById(recipeId).map(RecipeEntity::toDto);
+        loaded.ifPresent(recipe -> recipeCache.put(recipe, version));
+        return loaded;
     }
 
     public void deleteRecipe(Long recipeId) {
         if (recipeRepository.existsById(recipeId)) {
             recipeRepository.deleteById(recipeId);
+            ingredientIndex.removeRecipe(recipeId);
+            allergenIndex.removeRecipe(recipeId);
+            trigramIndex.removeRecipe(recipeId);
+            pantryIndex.removeRecipe(recipeId);
+            popularityIndex.removeRecipe(recipeId);
+            suggestIndex.removeRecipe(recipeId);
+            fuzzyIndex.removeRecipe(recipeId);
+            similarityIndex.removeRecipe(recipeId);
+            fullTextIndex.removeRecipe(recipeId);
+            recipeCache.invalidate(recipeId);
+            searchResultCache.invalidateContaining(recipeId);
         } else {
             throw new RuntimeException("Recipe not found");
         }
     }
 
-    // Overloaded method to default to recipe search.
-    public List<RecipeDTO> searchRecipes(String query) {
-        return searchRecipes(query, "recipe");
-    }
-
-    //segmented search-- if type is not one of expected, default to recipesearch
-    public List<RecipeDTO> searchRecipes(String query, String type) {
-        if ("recipe".equalsIgnoreCase(type)) {
-            return recipeRepository.findByNameContainingIgnoreCase(query)
-                    .stream()
-                    .map(RecipeEntity::toDto)
-                    .collect(Collectors.toList());
-        } else if ("ingredient".equalsIgnoreCase(type)) {
-            return recipeRepository.findAll().stream()
-                    .filter(recipe -> recipe.getIngredients().stream()
-                            .anyMatch(ingredient ->
-                                    ingredient.getName() != null &&
-                                            ingredient.getName().toLowerCase().contains(query.toLowerCase())))
-                    .map(RecipeEntity::toDto)
-                    .collect(Collectors.toList());
-        } else if ("allergen".equalsIgnoreCase(type)) {
-            return recipeRepository.findAll().stream()
-                    .filter(recipe -> recipe.getIngredients().stream()
-                            .allMatch(ingredient -> ingredient.getAllergens().stream()
-                                    .noneMatch(all ->
-                                            all != null &&
-                                                    all.getName() != null &&
-                                                    all.getName().toLowerCase().contains(query.toLowerCase()))))
-                    .map(RecipeEntity::toDto)
-                    .collect(Collectors.toList());
-        } else {
-            //default fallback
-            return recipeRepository.findByNameContainingIgnoreCase(query)
-                    .stream()
-                    .map(RecipeEntity::toDto)
-                    .collect(Collectors.toList());
+    // one criterion, as GET /recipes/search takes it; unknown types search by name
+    @Transactional(readOnly = true)
+    public RecipeSummaryPage searchRecipes(String query, String type, Long cursor, Integer limit) {
+        return searchRecipes(RecipeQuery.of(query, type), cursor, limit);
+    }
+
+    // Keyset page of a search: results with an id above the cursor, in id order. The matching
+    // ids are computed once by the SearchPlanner and kept in the SearchResultCache, so later
+    // pages are slices of that list and each page hydrates only its own rows.
+    @Transactional(readOnly = true)
+    public RecipeSummaryPage searchRecipes(RecipeQuery query, Long cursor, Integer limit) {
+        int pageSize = resolveLimit(limit);
+        long after = cursor == null ? 0 : cursor;
+        // one id past the page tells whether there is a next one
+        List<Long> ids = searchResultCache.get(query, () -> searchPlanner.matchingIds(query))
+                .toIdList(after, pageSize + 1);
+        List<Long> pageIds = ids.subList(0, Math.min(pageSize, ids.size()));
+        Long next = ids.size() > pageSize ? pageIds.get(pageSize - 1) : null;
+        return new RecipeSummaryPage(hydrate(pageIds), next);
+    }
+
+    // The limit most relevant matches of a free-text query, best first (see RecipeRanker). Other
+    // criteria of the filter query (ingredients, excluded allergens) restrict the candidates.
+    @Transactional(readOnly = true)
+    public List<RankedRecipeDTO> rankRecipes(String query, RecipeQuery filters, Integer limit) {
+        int size = resolveLimit(limit);
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("relevance ranking needs a query");
+        }
+        PostingList allowed = filters.ingredients().isEmpty() && filters.excludedAllergens().isEmpty()
+                ? null
+                : searchResultCache.get(filters, () -> searchPlanner.matchingIds(filters));
+        return hydrateHits(recipeRanker.topK(query, allowed, size), RecipeRanker.Scored::recipeId,
+                (summary, scored) -> new RankedRecipeDTO(summary, scored.score()));
+    }
+
+    // Full-text search over name, description and steps, BM25-ranked (see FullTextIndex). As with
+    // rankRecipes, the filter query's ingredients and excluded allergens restrict the candidates.
+    @Transactional(readOnly = true)
+    public List<RankedRecipeDTO> searchFullText(String query, RecipeQuery filters, Integer limit) {
+        int size = resolveLimit(limit);
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("full-text search needs a query");
+        }
+        PostingList allowed = filters.ingredients().isEmpty() && filters.excludedAllergens().isEmpty()
+                ? null
+                : searchResultCache.get(filters, () -> searchPlanner.matchingIds(filters));
+        return hydrateHits(fullTextIndex.search(query, allowed, size), FullTextIndex.Hit::recipeId,
+                (summary, hit) -> new RankedRecipeDTO(summary, hit.score()));
+    }
+
+    // The number of users that saved the recipe, as counted by user-service; false when the recipe does not exist.
+    public boolean setSaveCount(Long recipeId, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        if (recipeRepository.updateSaveCount(recipeId, count) == 0) {
+            return false;
+        }
+        popularityIndex.set(recipeId, count);
+        suggestIndex.setSaves(recipeId, count);
+        return true;
+    }
+
+    // Fuzzy search: misspelt words of each criterion are replaced by the closest word of the
+    // matching dictionary (see FuzzyIndex) before the query runs.
+    public RecipeQuery correct(RecipeQuery query) {
+        return new RecipeQuery(
+                query.name() == null ? null : fuzzyIndex.correct(query.name(), SuggestIndex.Kind.RECIPE),
+                query.ingredients().stream()
+                        .map(ingredient -> fuzzyIndex.correct(ingredient, SuggestIndex.Kind.INGREDIENT))
+                        .toList(),
+                query.excludedAllergens().stream()
+                        .map(allergen -> fuzzyIndex.correct(allergen, SuggestIndex.Kind.ALLERGEN))
+                        .toList());
+    }
+
+    // Free text for relevance ranking, which matches both recipe and ingredient names.
+    public String correct(String query) {
+        return query == null
+                ? null
+                : fuzzyIndex.correct(query, SuggestIndex.Kind.RECIPE, SuggestIndex.Kind.INGREDIENT);
+    }
+
+    // Typeahead: names of the given type (recipe, ingredient or allergen) starting with the prefix,
+    // most popular first. Served from the SuggestIndex, so no query per keystroke.
+    public List<String> suggest(String prefix, String type, Integer limit) {
+        int size = limit == null ? suggestIndex.getMaxResults() : limit;
+        if (size < 1 || size > suggestIndex.getMaxResults()) {
+            throw new IllegalArgumentException("limit must be between 1 and " + suggestIndex.getMaxResults());
+        }
+        SuggestIndex.Kind kind;
+        try {
+            kind = SuggestIndex.Kind.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("type must be recipe, ingredient or allergen");
+        }
+        return suggestIndex.suggest(kind, prefix, size);
+    }
+
+    // Recipes using any of the ingredients on hand, best covered first (see PantryIndex).
+    // Only the returned recipes are hydrated.
+    @Transactional(readOnly = true)
+    public List<PantryMatch> matchPantry(List<String> ingredients, Integer limit) {
+        int size = resolveLimit(limit);
+        return hydrateHits(pantryIndex.match(ingredients, size), PantryIndex.Match::recipeId,
+                (summary, match) -> new PantryMatch(summary, match.coverage(), match.missing()));
+    }
+
+    // Recipes matching a taste profile of ingredient name -> weight, best first (see
+    // PantryIndex#recommend). Used by user-service with a profile built from a user's saves.
+    @Transactional(readOnly = true)
+    public List<RankedRecipeDTO> recommend(Map<String, Double> profile, Collection<Long> excluded, Integer limit) {
+        int size = resolveLimit(limit);
+        List<PantryIndex.Recommendation> recommendations = pantryIndex.recommend(
+                profile == null ? Map.of() : profile, excluded == null ? List.of() : excluded, size);
+        return hydrateHits(recommendations, PantryIndex.Recommendation::recipeId,
+                (summary, recommendation) -> new RankedRecipeDTO(summary, recommendation.score()));
+    }
+
+    // Recipes sharing most ingredients with the given one, most similar first (see
+    // SimilarityIndex); empty when the recipe does not exist.
+    @Transactional(readOnly = true)
+    public Optional<List<SimilarRecipe>> findSimilar(Long recipeId, Integer limit) {
+        int size = resolveLimit(limit);
+        if (!recipeRepository.existsById(recipeId)) {
+            return Optional.empty();
+        }
+        return Optional.of(hydrateHits(similarityIndex.similar(recipeId, size), SimilarityIndex.Match::recipeId,
+                (summary, match) -> new SimilarRecipe(summary, match.similarity())));
+    }
+
+    public Optional<String> getRecipeImage(Long recipeId) {
+        return recipeRepository.findImageById(recipeId);
+    }
+
+    // Moves images stored inline by earlier versions into the ImageStore, one row at a time so
+    // only one image is held in memory. Rows that fail to decode are left as they are.
+    @EventListener(ApplicationReadyEvent.class)
+    public void externalizeInlineImages() {
+        for (Long id : recipeRepository.findIdsWithInlineImage()) {
+            Optional<String> image = recipeRepository.findImageById(id);
+            if (image.isEmpty() || !DataUri.isDataUri(image.get())) {
+                continue;
+            }
+            try {
+                recipeRepository.updateImage(id, imageStore.externalize(image.get()));
+                recipeCache.invalidate(id);
+            } catch (IllegalArgumentException e) {
+                // still served by GET /recipes/{id}/image, which reports it as unprocessable
+            }
         }
     }
 
+    // Bulk path: ingredient and allergen names are resolved with set-based queries, the missing
+    // ones are inserted together, and recipes, join rows and steps go out as JDBC batches.
+    @Transactional
     public List<RecipeDTO> addRecipe(List<RequestRecipeDTO> requests) {
-        return requests.stream().map(request -> {
+        Map<String, AllergenEntity> allergens = resolveAllergens(requests);
+        Map<String, IngredientEntity> ingredients = resolveIngredients(requests, allergens);
+
+        List<RecipeEntity> recipes = requests.stream().map(request -> {
             RecipeEntity recipe = new RecipeEntity();
             recipe.setName(request.name());
             recipe.setDescription(request.description());
-            recipe.setImage(request.image());
+            // inline images go to the blob store; only their URL is kept on the row
+            recipe.setImage(imageStore.externalize(request.image()));
             request.steps().forEach(r -> recipe.getSteps().add(r));
-
-            Set<IngredientEntity> ingredients = request.ingredients().stream().map(i -> {
-                Set<AllergenEntity> allergens = i.allergens().stream()
-                        .map(a -> allergenRepository.findByName(a)
-                                .orElseGet(() -> {
-                                    AllergenEntity allergen = new AllergenEntity();
-                                    allergen.setName(a);
-                                    return allergenRepository.save(allergen);
-                                })
-                        ).collect(Collectors.toSet());
-
-                return ingredientRepository.findByName(i.name())
-                        .orElseGet(() -> {
-                            IngredientEntity newIngredient = new IngredientEntity();
-                            newIngredient.setName(i.name());
-                            newIngredient.setAllergens(allergens);
-                            return ingredientRepository.save(newIngredient);
-                        });
-
-            }).collect(Collectors.toSet());
-            recipe.setIngredients(ingredients);
-            return recipeRepository.save(recipe).toDto();
+            recipe.setIngredients(request.ingredients().stream()
+                    .filter(i -> i.name() != null)
+                    .map(i -> ingredients.get(i.name()))
+                    .collect(Collectors.toSet()));
+            return recipe;
         }).toList();
+
+        List<RecipeEntity> saved = recipeBulkRepository.insertAll(recipes);
+        recipeCache.invalidateAll(saved.stream().map(RecipeEntity::getId).toList());
+        saved.forEach(this::invalidateSearches);
+        // The indexes only learn about the recipes once they are committed, so a rolled-back
+        // batch leaves nothing behind. Searches are invalidated again then: one could have read
+        // the table before the new rows were visible.
+        afterCommit(() -> {
+            saved.forEach(this::indexRecipe);
+            fullTextIndex.addRecipes(saved.stream()
+                    .map(recipe -> new FullTextIndex.RecipeText(recipe.getId(), recipe.getName(),
+                            recipe.getDescription(), recipe.getSteps()))
+                    .toList());
+            saved.forEach(this::invalidateSearches);
+            // thumbnails are resized in the background; the response does not wait for them
+            saved.stream()
+                    .map(recipe -> ImageStore.hashOf(recipe.getImage()))
+                    .flatMap(Optional::stream)
+                    .distinct()
+                    .forEach(thumbnailGenerator::schedule);
+        });
+        return saved.stream().map(RecipeEntity::toDto).toList();
+    }
+
+    private void indexRecipe(RecipeEntity saved) {
+        ingredientIndex.addRecipe(saved.getId(),
+                saved.getIngredients().stream().map(IngredientEntity::getName).toList());
+        allergenIndex.addRecipe(saved.getId(),
+                saved.getIngredients().stream().flatMap(i -> i.getAllergens().stream()).toList());
+        trigramIndex.addRecipe(saved.getId(), saved.getName());
+        pantryIndex.addRecipe(saved.getId(), saved.getIngredients());
+        similarityIndex.addRecipe(saved.getId(), saved.getIngredients());
+        List<String> ingredientNames = saved.getIngredients().stream().map(IngredientEntity::getName).toList();
+        List<String> allergenNames = saved.getIngredients().stream()
+                .flatMap(i -> i.getAllergens().stream())
+                .map(AllergenEntity::getName)
+                .toList();
+        suggestIndex.addRecipe(saved.getId(), saved.getName(), ingredientNames, allergenNames);
+        fuzzyIndex.addRecipe(saved.getId(), saved.getName(), ingredientNames, allergenNames);
+    }
+
+    private void invalidateSearches(RecipeEntity saved) {
+        searchResultCache.invalidateMatching(saved.getName(),
+                saved.getIngredients().stream().map(IngredientEntity::getName).toList(),
+                saved.getIngredients().stream()
+                        .flatMap(i -> i.getAllergens().stream())
+                        .map(AllergenEntity::getName)
+                        .toList());
     }
 
+    // runs the action once the current transaction commits, or straight away outside of one
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Names are matched case-insensitively, like the unique index on allergens.name in MySQL.
+    private Map<String, AllergenEntity> resolveAllergens(List<RequestRecipeDTO> requests) {
+        Set<String> names = requests.stream()
+                .flatMap(r -> r.ingredients().stream())
+                .flatMap(i -> i.allergens().stream())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(() -> new TreeSet<>(String.CASE_INSENSITIVE_ORDER)));
+        Map<String, AllergenEntity> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (names.isEmpty()) {
+            return byName;
+        }
+        allergenRepository.findByNameIn(names).forEach(a -> byName.putIfAbsent(a.getName(), a));
+
+        List<AllergenEntity> missing = names.stream()
+                .filter(name -> !byName.containsKey(name))
+                .map(name -> {
+                    AllergenEntity allergen = new AllergenEntity();
+                    allergen.setName(name);
+                    return allergen;
+                }).toList();
+        allergenRepository.saveAll(missing).forEach(a -> byName.put(a.getName(), a));
+        return byName;
+    }
+
+    // Existing ingredients keep their allergens; new ones take the allergens of their first mention.
+    private Map<String, IngredientEntity> resolveIngredients(List<RequestRecipeDTO> requests,
+                                                             Map<String, AllergenEntity> allergens) {
+        Map<String, IngredientEntity> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Set<String> names = requests.stream()
+                .flatMap(r -> r.ingredients().stream())
+                .map(RequestIngredientDTO::name)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(() -> new TreeSet<>(String.CASE_INSENSITIVE_ORDER)));
+        if (names.isEmpty()) {
+            return byName;
+        }
+        ingredientRepository.findByNameIn(names).forEach(i -> byName.putIfAbsent(i.getName(), i));
+
+        Map<String, IngredientEntity> missing = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        requests.stream().flatMap(r -> r.ingredients().stream())
+                .filter(i -> i.name() != null && !byName.containsKey(i.name()))
+                .forEach(i -> missing.computeIfAbsent(i.name(), name -> {
+                    IngredientEntity ingredient = new IngredientEntity();
+                    ingredient.setName(name);
+                    ingredient.setAllergens(i.allergens().stream()
+                            .filter(Objects::nonNull)
+                            .map(allergens::get)
+                            .collect(Collectors.toSet()));
+                    return ingredient;
+                }));
+        ingredientRepository.saveAll(missing.values()).forEach(i -> byName.put(i.getName(), i));
+        return byName;
+    }
+
+    // Ids are deduplicated and served from the RecipeCache; only the missing ones are loaded,
+    // in bounded IN chunks. Results keep the requested order.
+    @Transactional(readOnly = true)
     public List<RecipeDTO> getRecipes(List<Long> recipeIds) {
-        return recipeIds.stream().map(recipeRepository::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .map(RecipeEntity::toDto)
+        Set<Long> distinctIds = new LinkedHashSet<>(recipeIds);
+        if (distinctIds.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " recipes can be fetched per batch");
+        }
+        Map<Long, RecipeDTO> recipes = new HashMap<>(recipeCache.getAll(distinctIds));
+        List<Long> missing = distinctIds.stream().filter(id -> !recipes.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            long version = recipeCache.version();
+            fetchGraph(missing).values().forEach(entity -> {
+                RecipeDTO dto = entity.toDto();
+                recipeCache.put(dto, version);
+                recipes.put(dto.getId(), dto);
+            });
+        }
+        return distinctIds.stream()
+                .map(recipes::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
+
+    // recipes.search.default-limit when none is given
+    private int resolveLimit(Integer limit) {
+        int size = limit == null ? defaultSearchLimit : limit;
+        if (size < 1 || size > maxSearchLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxSearchLimit);
+        }
+        return size;
+    }
+
+    // Hits from an index (pantry matches and the like) in their own order, each wrapped with the summary of
+    // its recipe. Hits whose recipe is gone since the index was read are dropped.
+    private <T, R> List<R> hydrateHits(List<T> hits, Function<T, Long> recipeIdOf,
+                                       BiFunction<RecipeSummaryDTO, T, R> wrap) {
+        Map<Long, RecipeSummaryDTO> summaries = hydrate(hits.stream().map(recipeIdOf).toList())
+                .stream()
+                .collect(Collectors.toMap(RecipeSummaryDTO::getId, summary -> summary));
+        return hits.stream()
+                .filter(hit -> summaries.containsKey(recipeIdOf.apply(hit)))
+                .map(hit -> wrap.apply(summaries.get(recipeIdOf.apply(hit)), hit))
+                .toList();
+    }
+
+    // Summaries for the given ids, keeping the (ascending) id order of the index. Recipes in the
+    // RecipeCache are summarised from there; the rest are loaded in IN chunks.
+    private List<RecipeSummaryDTO> hydrate(List<Long> recipeIds) {
+        Map<Long, RecipeSummaryDTO> summaries = new HashMap<>();
+        recipeCache.getAll(recipeIds).forEach((id, recipe) -> summaries.put(id, RecipeSummary.toDto(recipe)));
+        List<Long> missing = recipeIds.stream().filter(id -> !summaries.containsKey(id)).toList();
+        for (int from = 0; from < missing.size(); from += batchChunkSize) {
+            List<Long> chunk = missing.subList(from, Math.min(from + batchChunkSize, missing.size()));
+            recipeRepository.findSummariesByIdIn(chunk)
+                    .forEach(summary -> summaries.put(summary.id(), summary.toDto()));
+        }
+        return recipeIds.stream()
+                .map(summaries::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // One query per chunk for recipes + ingredients + allergens; steps follow in batched selects.
+    private Map<Long, RecipeEntity> fetchGraph(Collection<Long> recipeIds) {
+        List<Long> ids = new ArrayList<>(recipeIds);
+        Map<Long, RecipeEntity> recipes = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += batchChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchChunkSize, ids.size()));
+            recipeRepository.findAllWithIngredientsByIdIn(chunk)
+                    .forEach(recipe -> recipes.put(recipe.getId(), recipe));
+        }
+        return recipes;
+    }
 }
@@ -0,0 +1,28 @@
+package com.gazpacho.recipeservice.storage;
+
+import java.util.Base64;
+
+// A decoded "data:<media type>;base64,<payload>" image, as recipes used to store them inline.
+public record DataUri(String mediaType, byte[] content) {
+
+    private static final String BASE64_SUFFIX = ";base64";
+
+    public static boolean isDataUri(String value) {
+        return value != null && value.startsWith("data:");
+    }
+
+    // Throws IllegalArgumentException for non-base64 data URIs and malformed payloads.
+    public static DataUri parse(String value) {
+        int comma = value.indexOf(',');
+        if (!isDataUri(value) || comma < 0) {
+            throw new IllegalArgumentException("Not a data URI");
+        }
+        String meta = value.substring("data:".length(), comma);
+        if (!meta.endsWith(BASE64_SUFFIX)) {
+            throw new IllegalArgumentException("Only base64 data URIs are supported");
+        }
+        String mediaType = meta.substring(0, meta.length() - BASE64_SUFFIX.length());
+        return new DataUri(mediaType.isEmpty() ? "application/octet-stream" : mediaType,
+                Base64.getMimeDecoder().decode(value.substring(comma + 1)));
+    }
+}
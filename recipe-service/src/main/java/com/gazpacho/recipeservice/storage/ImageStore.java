@@ -0,0 +1,184 @@
+package com.gazpacho.recipeservice.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed blob store for recipe images on the local filesystem.
+ * Blobs are named by the SHA-256 of their bytes and fanned out over 256
+ * directories ({@code ab/abcdef...}), so identical images are stored once
+ * and a stored blob never changes.
+ */
+@Component
+public class ImageStore {
+
+    public static final String URL_PREFIX = "/recipes/images/";
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+
+    public ImageStore(@Value("${recipes.images.dir:data/images}") String dir) {
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create image directory " + root, e);
+        }
+    }
+
+    public static String url(String hash) {
+        return URL_PREFIX + hash;
+    }
+
+    // Hash of a /recipes/images/{hash} URL; empty for external URLs, data URIs and nulls.
+    public static Optional<String> hashOf(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return Optional.empty();
+        }
+        String hash = url.substring(URL_PREFIX.length());
+        return HASH.matcher(hash).matches() ? Optional.of(hash) : Optional.empty();
+    }
+
+    // Stores inline data URIs and returns their URL; URLs and nulls are returned unchanged.
+    public String externalize(String image) {
+        if (!DataUri.isDataUri(image)) {
+            return image;
+        }
+        return url(put(DataUri.parse(image).content()));
+    }
+
+    /** Writes the blob if it is not there yet and returns its hash. */
+    public String put(byte[] content) {
+        String hash = sha256(content);
+        Path target = resolve(hash);
+        if (!Files.exists(target)) {
+            write(target, content);
+        }
+        return hash;
+    }
+
+    // Variants live next to their original as {hash}-{variant}; only stored images have them.
+    public static String variantUrl(String url, ImageVariant variant) {
+        return hashOf(url).map(hash -> url + "/" + variant.suffix()).orElse(url);
+    }
+
+    public Optional<Path> findVariant(String hash, ImageVariant variant) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path path = resolve(hash, variant);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    public Path putVariant(String hash, ImageVariant variant, byte[] content) {
+        Path target = resolve(hash, variant);
+        write(target, content);
+        return target;
+    }
+
+    // For originals that need no resizing: the variant is a hard link to the original, so it
+    // costs no space and later requests skip the decode.
+    public Path linkVariant(String hash, ImageVariant variant) {
+        Path original = resolve(hash);
+        Path target = resolve(hash, variant);
+        try {
+            Files.createLink(target, original);
+        } catch (FileAlreadyExistsException e) {
+            // made by a concurrent request
+        } catch (UnsupportedOperationException | IOException e) {
+            try {
+                write(target, Files.readAllBytes(original));
+            } catch (IOException copyFailed) {
+                throw new UncheckedIOException("Cannot store image variant " + target.getFileName(), copyFailed);
+            }
+        }
+        return target;
+    }
+
+    // write-then-rename so readers never see a partial file
+    private void write(Path target, byte[] content) {
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tmp, content);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // a concurrent upload of the same bytes won the race
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot store image " + target.getFileName(), e);
+        }
+    }
+
+    // Path of a stored blob; anything that is not a well-formed hash is treated as missing.
+    public Optional<Path> find(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path path = resolve(hash);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    // Sniffs the media type from the first bytes; blobs carry no metadata of their own.
+    public String contentType(Path blob) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(12);
+        try (FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ)) {
+            while (head.hasRemaining() && channel.read(head) > 0) {
+                // fill the header buffer
+            }
+        }
+        byte[] b = head.array();
+        int n = head.position();
+        if (n >= 8 && b[0] == (byte) 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G') {
+            return "image/png";
+        }
+        if (n >= 3 && b[0] == (byte) 0xFF && b[1] == (byte) 0xD8 && b[2] == (byte) 0xFF) {
+            return "image/jpeg";
+        }
+        if (n >= 6 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F' && b[3] == '8') {
+            return "image/gif";
+        }
+        if (n >= 12 && b[0] == 'R' && b[1] == 'I' && b[2] == 'F' && b[3] == 'F'
+                && b[8] == 'W' && b[9] == 'E' && b[10] == 'B' && b[11] == 'P') {
+            return "image/webp";
+        }
+        return "application/octet-stream";
+    }
+
+    private Path resolve(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private Path resolve(String hash, ImageVariant variant) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash + "-" + variant.suffix());
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            // every JRE ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.gazpacho.recipeservice.storage;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+// Resized copies of stored images, addressed as /recipes/images/{hash}/{variant}.
+public enum ImageVariant {
+    // search results and saved-recipe lists
+    SMALL(240),
+    MEDIUM(640);
+
+    private final int width;
+
+    ImageVariant(int width) {
+        this.width = width;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public String suffix() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Optional<ImageVariant> fromSuffix(String suffix) {
+        return Arrays.stream(values()).filter(v -> v.suffix().equals(suffix)).findFirst();
+    }
+}
@@ -0,0 +1,191 @@
+package com.gazpacho.recipeservice.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Produces the {@link ImageVariant}s of stored images. New uploads are queued on a small
+ * bounded pool; anything the pool has not produced (queue full, restart, older images) is
+ * generated on the first request for it. Either way the result is kept in the ImageStore.
+ */
+@Component
+public class ThumbnailGenerator {
+
+    // originals larger than this are not decoded; their variants link to the original
+    private static final long MAX_PIXELS = 40_000_000L;
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final ImageStore imageStore;
+    private final ThreadPoolExecutor executor;
+
+    // one generation per variant at a time; concurrent requests wait for it
+    private final ConcurrentMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    public ThumbnailGenerator(ImageStore imageStore,
+                              @Value("${recipes.images.thumbnail.workers:2}") int workers,
+                              @Value("${recipes.images.thumbnail.queue-size:256}") int queueSize) {
+        this.imageStore = imageStore;
+        AtomicInteger threads = new AtomicInteger();
+        // DiscardPolicy: uploads never wait for a free worker, dropped jobs are done lazily
+        this.executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Queues every missing variant of the image and returns straight away.
+    public void schedule(String hash) {
+        for (ImageVariant variant : ImageVariant.values()) {
+            if (imageStore.findVariant(hash, variant).isEmpty()) {
+                executor.execute(() -> {
+                    try {
+                        variant(hash, variant);
+                    } catch (RuntimeException e) {
+                        // retried on the first request for the variant
+                    }
+                });
+            }
+        }
+    }
+
+    /** The stored variant, generated on the calling thread if it does not exist yet. */
+    public Optional<Path> variant(String hash, ImageVariant variant) {
+        Optional<Path> existing = imageStore.findVariant(hash, variant);
+        if (existing.isPresent() || imageStore.find(hash).isEmpty()) {
+            return existing;
+        }
+        String key = hash + "-" + variant.suffix();
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return Optional.of(running.join());
+        }
+        try {
+            Path path = imageStore.findVariant(hash, variant).orElseGet(() -> generate(hash, variant));
+            mine.complete(path);
+            return Optional.of(path);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private Path generate(String hash, ImageVariant variant) {
+        Path original = imageStore.find(hash).orElseThrow();
+        BufferedImage scaled;
+        try {
+            scaled = scale(original, variant.width());
+        } catch (IOException e) {
+            // corrupt or truncated original: serve it as it is
+            scaled = null;
+        }
+        if (scaled == null) {
+            // already small enough, or a format ImageIO cannot decode (e.g. webp)
+            return imageStore.linkVariant(hash, variant);
+        }
+        try {
+            return imageStore.putVariant(hash, variant, encode(scaled));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot encode variant of image " + hash, e);
+        }
+    }
+
+    // Returns null when the image is not resized. Large originals are subsampled while decoding
+    // (to about twice the target width) so the full-size raster is never held in memory.
+    private static BufferedImage scale(Path original, int targetWidth) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width <= targetWidth || (long) width * height > MAX_PIXELS) {
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, width / (targetWidth * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage source = reader.read(0, param);
+
+                int targetHeight = Math.max(1, (int) Math.round((double) height * targetWidth / width));
+                boolean alpha = source.getColorModel().hasAlpha();
+                BufferedImage scaled = new BufferedImage(targetWidth, targetHeight,
+                        alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = scaled.createGraphics();
+                try {
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                    g.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+                } finally {
+                    g.dispose();
+                }
+                return scaled;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // PNG keeps transparency, everything else becomes a JPEG.
+    private static byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (image.getColorModel().hasAlpha()) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
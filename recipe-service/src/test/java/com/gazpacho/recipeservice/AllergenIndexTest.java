@@ -0,0 +1,75 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.index.AllergenIndex;
+import com.gazpacho.recipeservice.model.AllergenEntity;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AllergenIndexTest {
+
+    private RecipeRepository recipeRepository;
+    private AllergenIndex allergenIndex;
+
+    @BeforeEach
+    void setUp() {
+        recipeRepository = mock(RecipeRepository.class);
+        allergenIndex = new AllergenIndex(recipeRepository);
+    }
+
+    private AllergenEntity allergen(long id, String name) {
+        AllergenEntity allergen = new AllergenEntity();
+        allergen.setId(id);
+        allergen.setName(name);
+        return allergen;
+    }
+
+    @Test
+    void testRebuildKeepsRecipesWithoutAllergens() {
+        when(recipeRepository.findAllIds()).thenReturn(List.of(1L, 2L, 3L));
+        when(recipeRepository.findRecipeAllergens()).thenReturn(Arrays.asList(
+                new Object[] { 1L, 10L, "Peanuts" },
+                new Object[] { 2L, 11L, "Milk" }));
+
+        allergenIndex.rebuild();
+
+        assertEquals(List.of(2L, 3L), allergenIndex.excluding(List.of("peanut")).toIdList());
+        assertEquals(List.of(3L), allergenIndex.excluding(List.of("peanut", "MILK")).toIdList());
+    }
+
+    @Test
+    void testBlankQueriesExcludeNothing() {
+        allergenIndex.addRecipe(1L, List.of(allergen(10L, "Peanuts")));
+        allergenIndex.addRecipe(2L, List.of());
+
+        assertEquals(List.of(1L, 2L), allergenIndex.excluding(List.of(" ", "")).toIdList());
+    }
+
+    @Test
+    void testRemoveRecipe() {
+        AllergenEntity gluten = allergen(10L, "Gluten");
+        allergenIndex.addRecipe(1L, List.of(gluten));
+        allergenIndex.addRecipe(2L, List.of());
+
+        allergenIndex.removeRecipe(2L);
+        assertTrue(allergenIndex.excluding(List.of("gluten")).isEmpty());
+
+        allergenIndex.removeRecipe(1L);
+        assertTrue(allergenIndex.excluding(List.of("soy")).isEmpty());
+    }
+
+    @Test
+    void testReAddingRecipeReplacesAllergens() {
+        allergenIndex.addRecipe(1L, List.of(allergen(10L, "Gluten")));
+        allergenIndex.addRecipe(1L, List.of(allergen(11L, "Soy")));
+
+        assertEquals(List.of(1L), allergenIndex.excluding(List.of("gluten")).toIdList());
+        assertTrue(allergenIndex.excluding(List.of("soy")).isEmpty());
+    }
+}
@@ -0,0 +1,146 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.index.PostingList;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import com.gazpacho.recipeservice.search.FullTextIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FullTextIndexTest {
+
+    @TempDir
+    Path indexDir;
+
+    private RecipeRepository recipeRepository;
+    private FullTextIndex fullTextIndex;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        recipeRepository = mock(RecipeRepository.class);
+        fullTextIndex = open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        fullTextIndex.close();
+    }
+
+    private FullTextIndex open() throws IOException {
+        return new FullTextIndex(recipeRepository, indexDir.toString(), Duration.ofMinutes(1), 2, 2);
+    }
+
+    private static List<Long> ids(List<FullTextIndex.Hit> hits) {
+        return hits.stream().map(FullTextIndex.Hit::recipeId).toList();
+    }
+
+    @Test
+    void testSearchesAllFieldsWithStemming() {
+        fullTextIndex.addRecipes(List.of(
+                new FullTextIndex.RecipeText(1L, "Gazpacho", "A cold tomato soup", List.of("Blend the tomatoes")),
+                new FullTextIndex.RecipeText(2L, "Risotto", null, List.of("Stir in the stock", "Simmer gently"))));
+
+        // searchable without a commit; "simmering" and "Simmer" share a stem
+        assertEquals(List.of(2L), ids(fullTextIndex.search("simmering", null, 10)));
+        assertEquals(List.of(1L), ids(fullTextIndex.search("cold soup", null, 10)));
+        assertTrue(fullTextIndex.search("lasagne", null, 10).isEmpty());
+    }
+
+    @Test
+    void testNameOutranksDescriptionOutranksSteps() {
+        fullTextIndex.addRecipes(List.of(
+                new FullTextIndex.RecipeText(1L, "Weeknight Dinner", "Quick and easy", List.of("Stir in pesto")),
+                new FullTextIndex.RecipeText(2L, "Pesto", "Quick and easy", List.of("Stir in cream")),
+                new FullTextIndex.RecipeText(3L, "Weeknight Dinner", "Quick and pesto", List.of("Stir in cream"))));
+
+        assertEquals(List.of(2L, 3L, 1L), ids(fullTextIndex.search("pesto", null, 10)));
+        assertEquals(List.of(2L), ids(fullTextIndex.search("pesto", null, 1)));
+    }
+
+    @Test
+    void testAllowedRestrictsWithoutRescoring() {
+        fullTextIndex.addRecipes(List.of(
+                new FullTextIndex.RecipeText(1L, "Pesto", null, List.of()),
+                new FullTextIndex.RecipeText(2L, "Pesto Pasta", null, List.of())));
+        float unfiltered = fullTextIndex.search("pesto", null, 10).get(1).score();
+
+        List<FullTextIndex.Hit> hits = fullTextIndex.search("pesto", PostingList.of(2), 10);
+        assertEquals(List.of(2L), ids(hits));
+        assertEquals(unfiltered, hits.get(0).score());
+    }
+
+    @Test
+    void testUpdateReplacesAndRemoveDeletes() {
+        fullTextIndex.addRecipes(List.of(new FullTextIndex.RecipeText(1L, "Pancakes", null, List.of())));
+        fullTextIndex.addRecipes(List.of(new FullTextIndex.RecipeText(1L, "Waffles", null, List.of())));
+
+        assertTrue(fullTextIndex.search("pancakes", null, 10).isEmpty());
+        assertEquals(List.of(1L), ids(fullTextIndex.search("waffles", null, 10)));
+
+        fullTextIndex.removeRecipe(1L);
+        assertTrue(fullTextIndex.search("waffles", null, 10).isEmpty());
+    }
+
+    @Test
+    void testQuerySyntaxIsLiteral() {
+        fullTextIndex.addRecipes(List.of(new FullTextIndex.RecipeText(1L, "Mac & Cheese", null, List.of())));
+
+        assertEquals(List.of(1L), ids(fullTextIndex.search("mac & cheese (baked)*", null, 10)));
+    }
+
+    @Test
+    void testRebuildReadsBatchesAndSurvivesReopen() throws IOException {
+        fullTextIndex.addRecipes(List.of(new FullTextIndex.RecipeText(9L, "Stale", null, List.of())));
+        when(recipeRepository.findAllIds()).thenReturn(List.of(1L, 2L, 3L));
+        when(recipeRepository.findTextByIdIn(anyList())).thenAnswer(inv -> {
+            List<Long> batch = inv.getArgument(0);
+            return batch.stream().map(id -> new Object[] { id, "Recipe " + id, "Curry number " + id }).toList();
+        });
+        when(recipeRepository.findStepsByIdIn(List.of(3L))).thenReturn(Arrays.<Object[]>asList(
+                new Object[] { 3L, "Toast the cumin" }));
+
+        assertEquals(3, fullTextIndex.rebuild());
+        // ids split into batches of two
+        verify(recipeRepository, times(2)).findTextByIdIn(anyList());
+        assertTrue(fullTextIndex.search("stale", null, 10).isEmpty());
+        assertEquals(List.of(3L), ids(fullTextIndex.search("cumin", null, 10)));
+
+        // the rebuild is committed, so a reopened index agrees with the table and is not rebuilt
+        fullTextIndex.close();
+        fullTextIndex = open();
+        when(recipeRepository.count()).thenReturn(3L);
+        fullTextIndex.afterSingletonsInstantiated();
+        verify(recipeRepository, times(1)).findAllIds();
+        assertEquals(3, fullTextIndex.search("curry", null, 10).size());
+    }
+
+    @Test
+    void testFailedRebuildKeepsTheIndex() throws IOException {
+        fullTextIndex.addRecipes(List.of(
+                new FullTextIndex.RecipeText(1L, "Lentil curry", null, List.of()),
+                new FullTextIndex.RecipeText(3L, "Chickpea curry", null, List.of())));
+        when(recipeRepository.findAllIds()).thenReturn(List.of(1L, 2L, 3L));
+        // the first batch is reread, the second fails
+        when(recipeRepository.findTextByIdIn(List.of(1L, 2L))).thenReturn(Arrays.asList(
+                new Object[] { 1L, "Lentil curry", "Red lentils" },
+                new Object[] { 2L, "Pea curry", null }));
+        when(recipeRepository.findTextByIdIn(List.of(3L))).thenThrow(new IllegalStateException("connection lost"));
+
+        assertThrows(IllegalStateException.class, () -> fullTextIndex.rebuild());
+
+        // nothing was dropped, not even once pending changes are committed on close
+        fullTextIndex.close();
+        fullTextIndex = open();
+        assertEquals(List.of(1L, 2L, 3L), ids(fullTextIndex.search("curry", null, 10)).stream().sorted().toList());
+    }
+}
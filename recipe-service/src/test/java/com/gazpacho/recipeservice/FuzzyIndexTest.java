@@ -0,0 +1,114 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.index.FuzzyIndex;
+import com.gazpacho.recipeservice.index.SuggestIndex;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FuzzyIndexTest {
+
+    private static final SuggestIndex.Kind RECIPE = SuggestIndex.Kind.RECIPE;
+    private static final SuggestIndex.Kind INGREDIENT = SuggestIndex.Kind.INGREDIENT;
+
+    private RecipeRepository recipeRepository;
+    private FuzzyIndex fuzzyIndex;
+
+    @BeforeEach
+    void setUp() {
+        recipeRepository = mock(RecipeRepository.class);
+        fuzzyIndex = new FuzzyIndex(recipeRepository);
+    }
+
+    @Test
+    void testRebuildAndCorrectWordByWord() {
+        when(recipeRepository.findAllIdsAndNames()).thenReturn(Arrays.asList(
+                new Object[] { 1L, "Gazpacho" },
+                new Object[] { 2L, "Mac & Cheese" }));
+        when(recipeRepository.findRecipeIngredientNames()).thenReturn(Arrays.<Object[]>asList(
+                new Object[] { 1L, "Tomato" }));
+        when(recipeRepository.findRecipeAllergens()).thenReturn(List.of());
+        fuzzyIndex.rebuild();
+
+        assertEquals("gazpacho", fuzzyIndex.correct("gaspacho", RECIPE));
+        // separators are kept so the corrected text still matches as a substring
+        assertEquals("Mac & cheese", fuzzyIndex.correct("Mac & chese", RECIPE));
+        assertEquals("tomato", fuzzyIndex.correct("tomatoe", INGREDIENT));
+        assertEquals("tomatoe", fuzzyIndex.correct("tomatoe", RECIPE));
+    }
+
+    @Test
+    void testDistanceIsBoundedByWordLength() {
+        fuzzyIndex.addRecipe(1L, "Rice Pudding", List.of("Rice", "Pudding"), List.of());
+
+        // one edit for short words, two for longer ones
+        assertEquals("rice", fuzzyIndex.correct("rics", RECIPE));
+        assertEquals("rxcs", fuzzyIndex.correct("rxcs", RECIPE));
+        assertEquals("pudding", fuzzyIndex.correct("pudnig", RECIPE));
+        assertEquals("pxdnigg", fuzzyIndex.correct("pxdnigg", RECIPE));
+        // too short to correct
+        assertEquals("ri", fuzzyIndex.correct("ri", RECIPE));
+    }
+
+    @Test
+    void testKnownWordsStayAndTiesGoToTheMoreUsedWord() {
+        fuzzyIndex.addRecipe(1L, "Beef Stew", List.of(), List.of());
+        fuzzyIndex.addRecipe(2L, "Beet Salad", List.of(), List.of());
+        fuzzyIndex.addRecipe(3L, "Beet Soup", List.of(), List.of());
+
+        assertEquals("beef", fuzzyIndex.correct("beef", RECIPE));
+        assertEquals("beet", fuzzyIndex.correct("beeg", RECIPE));
+    }
+
+    @Test
+    void testRemovedWordsAreNoLongerSuggested() {
+        fuzzyIndex.addRecipe(1L, "Gazpacho", List.of(), List.of());
+        fuzzyIndex.addRecipe(2L, "Goulash", List.of(), List.of());
+
+        fuzzyIndex.removeRecipe(1L);
+
+        assertEquals("gaspacho", fuzzyIndex.correct("gaspacho", RECIPE));
+        assertEquals("goulash", fuzzyIndex.correct("gulash", RECIPE));
+    }
+
+    @Test
+    void testMatchesAFullScanOverTheDictionary() {
+        List<String> words = List.of("tomato", "potato", "tomatillo", "pepper", "paprika", "papaya", "pasta",
+                "basil", "bacon", "beans", "butter", "batter", "bitter", "leek", "lime", "lemon", "melon");
+        for (int i = 0; i < words.size(); i++) {
+            fuzzyIndex.addRecipe((long) i, words.get(i), List.of(), List.of());
+        }
+
+        for (String query : List.of("tomatoo", "potatos", "peper", "papria", "basl", "batr", "lemn", "mellon", "xyzzy")) {
+            // closest within the bound, alphabetical among equals (every word is used once)
+            String expected = null;
+            int best = query.length() <= 4 ? 1 : 2;
+            for (String word : words) {
+                int d = levenshtein(query, word);
+                if (d < best || d == best && (expected == null || word.compareTo(expected) < 0)) {
+                    best = d;
+                    expected = word;
+                }
+            }
+            assertEquals(expected == null ? query : expected, fuzzyIndex.correct(query, RECIPE), query);
+        }
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                d[i][j] = i == 0 ? j : j == 0 ? i : Math.min(
+                        d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+                        Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,87 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.repository.IdSequenceInitializer;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdSequenceInitializerTest {
+
+    private static final List<String> SEQUENCES = List.of("recipe_seq", "ingredient_seq", "allergen_seq");
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        for (String table : List.of("recipes", "ingredients", "allergens")) {
+            jdbcTemplate.execute("create table " + table + " (id bigint primary key)");
+        }
+        // rows written under the old IDENTITY mapping; no allergens yet
+        jdbcTemplate.update("insert into recipes (id) values (700)");
+        jdbcTemplate.update("insert into ingredients (id) values (900)");
+    }
+
+    @Test
+    void testSeedsSequenceTablesAboveTheLargestId() {
+        // how Hibernate emulates sequences on MySQL: one next_val row per sequence
+        for (String sequence : SEQUENCES) {
+            jdbcTemplate.execute("create table " + sequence + " (next_val bigint)");
+            jdbcTemplate.update("insert into " + sequence + " values (1)");
+        }
+
+        initializer(new MySQLDialect()).afterSingletonsInstantiated();
+
+        assertTrue(firstPooledId(nextVal("recipe_seq")) > 700);
+        assertTrue(firstPooledId(nextVal("ingredient_seq")) > 900);
+        assertEquals(1, nextVal("allergen_seq"));
+    }
+
+    @Test
+    void testLeavesSeededSequenceTablesAlone() {
+        for (String sequence : SEQUENCES) {
+            jdbcTemplate.execute("create table " + sequence + " (next_val bigint)");
+            jdbcTemplate.update("insert into " + sequence + " values (5000)");
+        }
+
+        initializer(new MySQLDialect()).afterSingletonsInstantiated();
+
+        assertEquals(5000, nextVal("recipe_seq"));
+        assertEquals(5000, nextVal("ingredient_seq"));
+    }
+
+    @Test
+    void testRestartsNativeSequencesAboveTheLargestId() {
+        for (String sequence : SEQUENCES) {
+            jdbcTemplate.execute("create sequence " + sequence + " start with 1 increment by 50");
+        }
+
+        initializer(new H2Dialect()).afterSingletonsInstantiated();
+
+        assertTrue(firstPooledId(jdbcTemplate.queryForObject("select next value for recipe_seq", Long.class)) > 700);
+        assertTrue(firstPooledId(jdbcTemplate.queryForObject("select next value for ingredient_seq", Long.class)) > 900);
+    }
+
+    private IdSequenceInitializer initializer(Dialect dialect) {
+        return new IdSequenceInitializer(jdbcTemplate, dialect);
+    }
+
+    private long nextVal(String sequenceTable) {
+        return jdbcTemplate.queryForObject("select next_val from " + sequenceTable, Long.class);
+    }
+
+    // the pooled optimizer hands out the allocationSize (50) ids ending at the value it reads
+    private static long firstPooledId(long sequenceValue) {
+        return sequenceValue - 50 + 1;
+    }
+}
@@ -0,0 +1,123 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.controller.ImageController;
+import com.gazpacho.recipeservice.storage.ImageStore;
+import com.gazpacho.recipeservice.storage.ImageVariant;
+import com.gazpacho.recipeservice.storage.ThumbnailGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ImageController.class)
+public class ImageControllerTest {
+
+    private static final String HASH = "a".repeat(64);
+    private static final String ETAG = "\"" + HASH + "\"";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ImageStore imageStore;
+
+    @MockitoBean
+    private ThumbnailGenerator thumbnailGenerator;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path blob = Files.write(dir.resolve(HASH), "0123456789".getBytes());
+        Mockito.when(imageStore.find(HASH)).thenReturn(Optional.of(blob));
+        Mockito.when(imageStore.contentType(any())).thenReturn("image/png");
+    }
+
+    @Test
+    void testViewImage() throws Exception {
+        mockMvc.perform(get("/recipes/images/" + HASH))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().string("0123456789"))
+                .andExpect(header().string("ETag", ETAG))
+                .andExpect(header().string("Cache-Control", "public, max-age=31536000, immutable"))
+                .andExpect(header().string("Accept-Ranges", "bytes"));
+    }
+
+    @Test
+    void testViewImage_NotModified() throws Exception {
+        mockMvc.perform(get("/recipes/images/" + HASH).header("If-None-Match", ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testViewImage_Range() throws Exception {
+        mockMvc.perform(get("/recipes/images/" + HASH).header("Range", "bytes=2-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-4/10"))
+                .andExpect(content().string("234"));
+
+        mockMvc.perform(get("/recipes/images/" + HASH).header("Range", "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("789"));
+
+        mockMvc.perform(get("/recipes/images/" + HASH).header("Range", "bytes=7-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("789"));
+    }
+
+    @Test
+    void testViewImage_RangeNotSatisfiable() throws Exception {
+        mockMvc.perform(get("/recipes/images/" + HASH).header("Range", "bytes=10-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */10"));
+    }
+
+    @Test
+    void testViewImage_StaleIfRangeSendsWholeImage() throws Exception {
+        mockMvc.perform(get("/recipes/images/" + HASH).header("Range", "bytes=2-4").header("If-Range", "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    void testViewImage_NotFound() throws Exception {
+        Mockito.when(imageStore.find("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/recipes/images/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testViewImageVariant() throws Exception {
+        Path small = Files.write(dir.resolve(HASH + "-small"), "small".getBytes());
+        Mockito.when(thumbnailGenerator.variant(HASH, ImageVariant.SMALL)).thenReturn(Optional.of(small));
+
+        mockMvc.perform(get("/recipes/images/" + HASH + "/small"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("small"))
+                .andExpect(header().string("ETag", "\"" + HASH + "-small\""))
+                .andExpect(header().string("Cache-Control", "public, max-age=31536000, immutable"));
+    }
+
+    @Test
+    void testViewImageVariant_UnknownVariant() throws Exception {
+        mockMvc.perform(get("/recipes/images/" + HASH + "/huge"))
+                .andExpect(status().isNotFound());
+        Mockito.verifyNoInteractions(thumbnailGenerator);
+    }
+}
@@ -0,0 +1,70 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.storage.ImageStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageStoreTest {
+
+    private static final String PNG = "iVBORw0KGgoAAAANSUhEUg==";
+
+    @TempDir
+    Path dir;
+
+    private ImageStore imageStore;
+
+    @BeforeEach
+    void setUp() {
+        imageStore = new ImageStore(dir.toString());
+    }
+
+    @Test
+    void testPutIsContentAddressed() throws Exception {
+        byte[] bytes = "same bytes".getBytes();
+        String hash = imageStore.put(bytes);
+
+        assertEquals(hash, imageStore.put(bytes.clone()));
+        assertEquals(64, hash.length());
+        Path blob = imageStore.find(hash).orElseThrow();
+        assertArrayEquals(bytes, Files.readAllBytes(blob));
+        assertEquals(dir.resolve(hash.substring(0, 2)).resolve(hash), blob);
+        // only the blob is left behind, no temp files
+        assertEquals(1, Files.list(blob.getParent()).count());
+    }
+
+    @Test
+    void testFindRejectsNonHashes() {
+        assertTrue(imageStore.find("../../etc/passwd").isEmpty());
+        assertTrue(imageStore.find("ABC").isEmpty());
+        assertTrue(imageStore.find("0".repeat(64)).isEmpty());
+    }
+
+    @Test
+    void testExternalize() {
+        String url = imageStore.externalize("data:image/png;base64," + PNG);
+
+        assertTrue(url.startsWith(ImageStore.URL_PREFIX));
+        assertTrue(imageStore.find(url.substring(ImageStore.URL_PREFIX.length())).isPresent());
+        assertEquals("https://www.fakeurl.com/a.png", imageStore.externalize("https://www.fakeurl.com/a.png"));
+        assertNull(imageStore.externalize(null));
+        assertThrows(IllegalArgumentException.class, () -> imageStore.externalize("data:image/png,raw"));
+    }
+
+    @Test
+    void testContentTypeIsSniffed() throws Exception {
+        String png = imageStore.put(Base64.getDecoder().decode(PNG));
+        String jpeg = imageStore.put(new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0 });
+        String other = imageStore.put("plain text".getBytes());
+
+        assertEquals("image/png", imageStore.contentType(imageStore.find(png).orElseThrow()));
+        assertEquals("image/jpeg", imageStore.contentType(imageStore.find(jpeg).orElseThrow()));
+        assertEquals("application/octet-stream", imageStore.contentType(imageStore.find(other).orElseThrow()));
+    }
+}
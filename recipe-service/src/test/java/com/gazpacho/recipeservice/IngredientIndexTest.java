@@ -0,0 +1,102 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.index.IngredientIndex;
+import com.gazpacho.recipeservice.index.PostingList;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class IngredientIndexTest {
+
+    private RecipeRepository recipeRepository;
+    private IngredientIndex ingredientIndex;
+
+    @BeforeEach
+    void setUp() {
+        recipeRepository = mock(RecipeRepository.class);
+        ingredientIndex = new IngredientIndex(recipeRepository);
+    }
+
+    @Test
+    void testRebuildFromRepository() {
+        when(recipeRepository.findRecipeIngredientNames()).thenReturn(Arrays.asList(
+                new Object[] { 1L, "Cheddar Cheese" },
+                new Object[] { 1L, "Macaroni" },
+                new Object[] { 2L, "Parmesan Cheese" },
+                new Object[] { 3L, "Tomato" }));
+
+        ingredientIndex.rebuild();
+
+        assertEquals(List.of(1L, 2L), ingredientIndex.search("cheese").toIdList());
+        assertEquals(List.of(3L), ingredientIndex.search("TOMATO").toIdList());
+    }
+
+    @Test
+    void testAddDuringRebuildIsKept() throws InterruptedException {
+        Thread batch = new Thread(() -> ingredientIndex.addRecipe(4L, List.of("Basil")));
+        when(recipeRepository.findRecipeIngredientNames()).thenAnswer(invocation -> {
+            // a batch commits after the rows were read
+            batch.start();
+            batch.join(200);
+            return List.<Object[]>of(new Object[] { 3L, "Tomato" });
+        });
+
+        ingredientIndex.rebuild();
+        batch.join();
+
+        assertEquals(List.of(4L), ingredientIndex.search("basil").toIdList());
+        assertEquals(List.of(3L), ingredientIndex.search("tomato").toIdList());
+    }
+
+    @Test
+    void testSubstringMatchesAreUnionedAndDeduplicated() {
+        ingredientIndex.addRecipe(5L, List.of("Cheddar Cheese", "Cream Cheese"));
+        ingredientIndex.addRecipe(3L, List.of("Goat Cheese"));
+
+        PostingList result = ingredientIndex.search("chee");
+        assertArrayEquals(new int[] { 3, 5 }, result.toArray());
+    }
+
+    @Test
+    void testPostingListKeysetSlice() {
+        PostingList ids = PostingList.of(2, 4, 6, 8);
+
+        assertEquals(List.of(2L, 4L), ids.toIdList(0, 2));
+        assertEquals(List.of(6L, 8L), ids.toIdList(4, 5));
+        // the cursor need not be in the list
+        assertEquals(List.of(6L), ids.toIdList(5, 1));
+        assertEquals(List.of(), ids.toIdList(8, 2));
+    }
+
+    @Test
+    void testRemoveRecipeUnlinksPostings() {
+        ingredientIndex.addRecipe(1L, List.of("Basil"));
+        ingredientIndex.addRecipe(2L, List.of("Basil", "Garlic"));
+
+        ingredientIndex.removeRecipe(2L);
+
+        assertEquals(List.of(1L), ingredientIndex.search("basil").toIdList());
+        assertTrue(ingredientIndex.search("garlic").isEmpty());
+    }
+
+    @Test
+    void testReAddingRecipeReplacesIngredients() {
+        ingredientIndex.addRecipe(1L, List.of("Basil"));
+        ingredientIndex.addRecipe(1L, List.of("Garlic"));
+
+        assertTrue(ingredientIndex.search("basil").isEmpty());
+        assertEquals(List.of(1L), ingredientIndex.search("garlic").toIdList());
+    }
+
+    @Test
+    void testNoMatchReturnsEmptyList() {
+        ingredientIndex.addRecipe(1L, List.of("Basil"));
+        assertTrue(ingredientIndex.search("saffron").isEmpty());
+    }
+}
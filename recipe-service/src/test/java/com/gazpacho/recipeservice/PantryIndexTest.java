@@ -0,0 +1,118 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.index.PantryIndex;
+import com.gazpacho.recipeservice.model.IngredientEntity;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PantryIndexTest {
+
+    private RecipeRepository recipeRepository;
+    private PantryIndex pantryIndex;
+
+    @BeforeEach
+    void setUp() {
+        recipeRepository = mock(RecipeRepository.class);
+        pantryIndex = new PantryIndex(recipeRepository);
+    }
+
+    @Test
+    void testRanksByCoverageAndListsMissing() {
+        when(recipeRepository.findRecipeIngredients()).thenReturn(Arrays.asList(
+                new Object[] { 1L, 10L, "Rice" },
+                new Object[] { 1L, 11L, "Egg" },
+                new Object[] { 1L, 12L, "Scallion" },
+                new Object[] { 2L, 10L, "Rice" },
+                new Object[] { 2L, 11L, "Egg" },
+                new Object[] { 3L, 13L, "Rice Vinegar" },
+                new Object[] { 4L, 11L, "Egg" },
+                new Object[] { 4L, 14L, "Flour" },
+                new Object[] { 4L, 15L, "Milk" }));
+        pantryIndex.rebuild();
+
+        List<PantryIndex.Match> matches = pantryIndex.match(List.of(" RICE", "egg"), 10);
+
+        // names match exactly, so recipe 3 is not a match
+        assertEquals(List.of(
+                new PantryIndex.Match(2L, 2, 2, List.of()),
+                new PantryIndex.Match(1L, 2, 3, List.of("Scallion")),
+                new PantryIndex.Match(4L, 1, 3, List.of("Flour", "Milk"))), matches);
+        assertEquals(2.0 / 3, matches.get(1).coverage());
+    }
+
+    @Test
+    void testKeepsOnlyTheTopK() {
+        for (long id = 1; id <= 20; id++) {
+            // recipe id uses id ingredients, one of them salt
+            List<IngredientEntity> ingredients = new ArrayList<>(List.of(ingredient(100L, "Salt")));
+            for (long i = 1; i < id; i++) {
+                ingredients.add(ingredient(i, "Spice " + i));
+            }
+            pantryIndex.addRecipe(id, ingredients);
+        }
+
+        List<PantryIndex.Match> matches = pantryIndex.match(List.of("salt"), 3);
+
+        assertEquals(List.of(1L, 2L, 3L), matches.stream().map(PantryIndex.Match::recipeId).toList());
+        assertEquals(List.of("Spice 1", "Spice 2"), matches.get(2).missing());
+    }
+
+    @Test
+    void testCoverageEqualPrefersMoreIngredientsUsed() {
+        pantryIndex.addRecipe(1L, List.of(ingredient(10L, "Rice"), ingredient(12L, "Leek")));
+        pantryIndex.addRecipe(2L, List.of(ingredient(10L, "Rice"), ingredient(11L, "Egg"),
+                ingredient(12L, "Leek"), ingredient(13L, "Peas")));
+
+        List<PantryIndex.Match> matches = pantryIndex.match(List.of("rice", "egg"), 5);
+
+        assertEquals(List.of(2L, 1L), matches.stream().map(PantryIndex.Match::recipeId).toList());
+    }
+
+    @Test
+    void testRemovedRecipesAndUnusedIngredientsDrop() {
+        pantryIndex.addRecipe(1L, List.of(ingredient(10L, "Rice")));
+        pantryIndex.addRecipe(2L, List.of(ingredient(10L, "Rice"), ingredient(11L, "Saffron")));
+
+        pantryIndex.removeRecipe(2L);
+
+        assertEquals(List.of(1L), pantryIndex.match(List.of("rice"), 5).stream()
+                .map(PantryIndex.Match::recipeId).toList());
+        assertTrue(pantryIndex.match(List.of("saffron"), 5).isEmpty());
+        assertTrue(pantryIndex.match(List.of("caviar"), 5).isEmpty());
+    }
+
+    @Test
+    void testRecommendScoresCosineAndSkipsExcluded() {
+        pantryIndex.addRecipe(1L, List.of(ingredient(10L, "Tomato"), ingredient(11L, "Basil")));
+        pantryIndex.addRecipe(2L, List.of(ingredient(10L, "Tomato"), ingredient(11L, "Basil")));
+        pantryIndex.addRecipe(3L, List.of(ingredient(10L, "Tomato"), ingredient(12L, "Beef"),
+                ingredient(13L, "Onion"), ingredient(14L, "Wine")));
+        pantryIndex.addRecipe(4L, List.of(ingredient(15L, "Rice")));
+
+        List<PantryIndex.Recommendation> recommended = pantryIndex.recommend(
+                Map.of("tomato", 1.0, "BASIL", 0.5, "unknown", 2.0, "beef", 0.0), List.of(1L), 5);
+
+        // |p| = sqrt(1.25): recipe 2 covers both, recipe 3 only tomato among four ingredients
+        assertEquals(List.of(2L, 3L), recommended.stream().map(PantryIndex.Recommendation::recipeId).toList());
+        assertEquals(1.5 / (Math.sqrt(1.25) * Math.sqrt(2)), recommended.get(0).score(), 1e-9);
+        assertEquals(1.0 / (Math.sqrt(1.25) * 2), recommended.get(1).score(), 1e-9);
+        assertEquals(1, pantryIndex.recommend(Map.of("tomato", 1.0), List.of(), 1).size());
+        assertTrue(pantryIndex.recommend(Map.of(), List.of(), 5).isEmpty());
+    }
+
+    private IngredientEntity ingredient(long id, String name) {
+        IngredientEntity ingredient = new IngredientEntity();
+        ingredient.setId(id);
+        ingredient.setName(name);
+        return ingredient;
+    }
+}
@@ -2,7 +2,12 @@ package com.gazpacho.recipeservice;
 
 import com.gazpacho.recipeservice.controller.RecipeController;
 import com.gazpacho.sharedlib.dto.RecipeDTO;
+import com.gazpacho.sharedlib.dto.RecipeSummaryDTO;
 import com.gazpacho.recipeservice.model.RecipeEntity;
+import com.gazpacho.sharedlib.dto.RankedRecipeDTO;
+import com.gazpacho.recipeservice.model.RecipeSummaryPage;
+import com.gazpacho.recipeservice.model.SimilarRecipe;
+import com.gazpacho.recipeservice.search.RecipeQuery;
 import com.gazpacho.recipeservice.service.RecipeService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -10,11 +15,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.*;
 
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,7 +42,7 @@ public class RecipeControllerTest {
         recipe.setId(testID);
         recipe.setName("Spaghetti");
     
-        Mockito.when(recipeService.viewRecipe(testID)).thenReturn(Optional.of(recipe));
+        Mockito.when(recipeService.viewRecipe(testID)).thenReturn(Optional.of(recipe.toDto()));
     
         mockMvc.perform(get("/recipes/1"))
                 .andExpect(status().isOk())
@@ -46,11 +53,11 @@ public class RecipeControllerTest {
     @Test
     void testSearchRecipes_DefaultToRecipeType() throws Exception {
         long testID = 1L;
-        RecipeDTO recipe1 = new RecipeDTO(testID, "Spaghetti", "https://www.fakeurl.com", new ArrayList<>(), new HashSet<>(), new ArrayList<>(), "");
-        RecipeDTO recipe2 = new RecipeDTO(testID+1, "Spaghetti Bolognese", "https://www.fakeurl.com", new ArrayList<>(), new HashSet<>(), new ArrayList<>(), "");
-        List<RecipeDTO> recipes = Arrays.asList(recipe1, recipe2);
+        RecipeSummaryDTO recipe1 = new RecipeSummaryDTO(testID, "Spaghetti", "https://www.fakeurl.com");
+        RecipeSummaryDTO recipe2 = new RecipeSummaryDTO(testID+1, "Spaghetti Bolognese", "https://www.fakeurl.com");
+        List<RecipeSummaryDTO> recipes = Arrays.asList(recipe1, recipe2);
 
-        Mockito.when(recipeService.searchRecipes("spaghetti", "recipe")).thenReturn(recipes);
+        Mockito.when(recipeService.searchRecipes(RecipeQuery.of("spaghetti", "recipe"), null, null)).thenReturn(new RecipeSummaryPage(recipes, null));
 
         mockMvc.perform(get("/recipes/search?q=spaghetti"))
                 .andExpect(status().isOk())
@@ -58,12 +65,63 @@ public class RecipeControllerTest {
                 .andExpect(jsonPath("$[1].name").value("Spaghetti Bolognese"));
     }
     
+    @Test
+    void testSearchRecipes_NextCursorHeader() throws Exception {
+        RecipeSummaryDTO recipe = new RecipeSummaryDTO(7L, "Pea Soup", null);
+        Mockito.when(recipeService.searchRecipes(RecipeQuery.of("soup", "recipe"), 3L, 1))
+                .thenReturn(new RecipeSummaryPage(List.of(recipe), 7L));
+
+        mockMvc.perform(get("/recipes/search?q=soup&cursor=3&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "7"))
+                .andExpect(jsonPath("$[0].name").value("Pea Soup"));
+    }
+
+    @Test
+    void testSearchRecipes_LimitOutOfRange() throws Exception {
+        Mockito.when(recipeService.searchRecipes(RecipeQuery.of("soup", "recipe"), null, 1000))
+                .thenThrow(new IllegalArgumentException("limit must be between 1 and 200"));
+
+        mockMvc.perform(get("/recipes/search?q=soup&limit=1000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSearchRecipes_NdjsonStreamsEveryPage() throws Exception {
+        Mockito.when(recipeService.searchRecipes(RecipeQuery.of("soup", "recipe"), null, null))
+                .thenReturn(new RecipeSummaryPage(List.of(new RecipeSummaryDTO(1L, "Pea Soup", null)), 1L));
+        Mockito.when(recipeService.searchRecipes(RecipeQuery.of("soup", "recipe"), 1L, null))
+                .thenReturn(new RecipeSummaryPage(List.of(new RecipeSummaryDTO(2L, "Leek Soup", null)), null));
+
+        MvcResult result = mockMvc.perform(get("/recipes/search?q=soup").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1,\"name\":\"Pea Soup\",\"thumbnail\":null}\n"
+                        + "{\"id\":2,\"name\":\"Leek Soup\",\"thumbnail\":null}\n"));
+    }
+
+    @Test
+    void testSearchRecipes_NdjsonLimitCapsTotal() throws Exception {
+        Mockito.when(recipeService.searchRecipes(RecipeQuery.of("soup", "recipe"), null, null))
+                .thenReturn(new RecipeSummaryPage(List.of(new RecipeSummaryDTO(1L, "Pea Soup", null),
+                        new RecipeSummaryDTO(2L, "Leek Soup", null)), 2L));
+
+        MvcResult result = mockMvc.perform(get("/recipes/search?q=soup&limit=1").accept("application/x-ndjson"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().string("{\"id\":1,\"name\":\"Pea Soup\",\"thumbnail\":null}\n"));
+        Mockito.verify(recipeService, Mockito.never()).searchRecipes(RecipeQuery.of("soup", "recipe"), 2L, null);
+    }
+
     @Test
     void testSearchRecipes_ByIngredientType() throws Exception {
         long testID = 3L;
-        RecipeDTO recipe = new RecipeDTO(testID, "Mac & Cheese", "https://www.fakeurl.com", new ArrayList<>(), new HashSet<>(), new ArrayList<>(), "");
-        Mockito.when(recipeService.searchRecipes("cheese", "ingredient"))
-                .thenReturn(Arrays.asList(recipe));
+        RecipeSummaryDTO recipe = new RecipeSummaryDTO(testID, "Mac & Cheese", "https://www.fakeurl.com");
+        Mockito.when(recipeService.searchRecipes(RecipeQuery.of("cheese", "ingredient"), null, null))
+                .thenReturn(new RecipeSummaryPage(Arrays.asList(recipe), null));
 
         mockMvc.perform(get("/recipes/search?q=cheese&type=ingredient"))
                 .andExpect(status().isOk())
@@ -74,9 +132,9 @@ public class RecipeControllerTest {
     @Test
     void testSearchRecipes_ByAllergenType() throws Exception {
         long testID = 4L;
-        RecipeDTO recipe = new RecipeDTO(testID, "Peanut Pie", "https://www.fakeurl.com", new ArrayList<>(), new HashSet<>(), new ArrayList<>(), "");
-        Mockito.when(recipeService.searchRecipes("peanut", "allergen"))
-                .thenReturn(Arrays.asList(recipe));
+        RecipeSummaryDTO recipe = new RecipeSummaryDTO(testID, "Peanut Pie", "https://www.fakeurl.com");
+        Mockito.when(recipeService.searchRecipes(RecipeQuery.of("peanut", "allergen"), null, null))
+                .thenReturn(new RecipeSummaryPage(Arrays.asList(recipe), null));
 
         mockMvc.perform(get("/recipes/search?q=peanut&type=allergen"))
                 .andExpect(status().isOk())
@@ -84,12 +142,86 @@ public class RecipeControllerTest {
                 .andExpect(jsonPath("$[0].id").value((int)testID));
     }
     
+    @Test
+    void testSearchRecipes_CombinesCriteria() throws Exception {
+        RecipeQuery query = new RecipeQuery("soup", List.of("leek", "potato"), List.of("milk"));
+        Mockito.when(recipeService.searchRecipes(query, null, null))
+                .thenReturn(new RecipeSummaryPage(List.of(new RecipeSummaryDTO(2L, "Leek Soup", null)), null));
+
+        mockMvc.perform(get("/recipes/search?q=Soup&ingredient=Potato&ingredient=leek&excludeAllergen=milk"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Leek Soup"));
+    }
+
+    @Test
+    void testSearchRecipes_RelevanceSortReturnsScores() throws Exception {
+        RecipeQuery filters = new RecipeQuery(null, List.of(), List.of("milk"));
+        Mockito.when(recipeService.rankRecipes("pasta", filters, 5))
+                .thenReturn(List.of(new RankedRecipeDTO(2L, "Pasta", null, 4.0)));
+
+        mockMvc.perform(get("/recipes/search?q=pasta&sort=relevance&excludeAllergen=milk&limit=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Pasta"))
+                .andExpect(jsonPath("$[0].score").value(4.0));
+    }
+
+    @Test
+    void testSearchRecipes_TextType() throws Exception {
+        RecipeQuery filters = new RecipeQuery(null, List.of("basil"), List.of());
+        Mockito.when(recipeService.searchFullText("simmer", filters, null))
+                .thenReturn(List.of(new RankedRecipeDTO(3L, "Ragu", null, 2.5)));
+
+        mockMvc.perform(get("/recipes/search?q=simmer&type=text&ingredient=basil"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Ragu"))
+                .andExpect(jsonPath("$[0].score").value(2.5));
+    }
+
+    @Test
+    void testSearchRecipes_FuzzyCorrectsFirst() throws Exception {
+        RecipeQuery corrected = RecipeQuery.of("gazpacho", "recipe");
+        Mockito.when(recipeService.correct(RecipeQuery.of("gaspacho", "recipe"))).thenReturn(corrected);
+        Mockito.when(recipeService.searchRecipes(corrected, null, null))
+                .thenReturn(new RecipeSummaryPage(List.of(new RecipeSummaryDTO(1L, "Gazpacho", null)), null));
+
+        mockMvc.perform(get("/recipes/search?q=gaspacho&fuzzy=true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Gazpacho"));
+    }
+
+    @Test
+    void testSimilarRecipes() throws Exception {
+        Mockito.when(recipeService.findSimilar(1L, null))
+                .thenReturn(Optional.of(List.of(new SimilarRecipe(2L, "Bruschetta", null, 0.75))));
+        Mockito.when(recipeService.findSimilar(9L, null)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/recipes/1/similar"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Bruschetta"))
+                .andExpect(jsonPath("$[0].similarity").value(0.75));
+        mockMvc.perform(get("/recipes/9/similar"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testSuggest() throws Exception {
+        Mockito.when(recipeService.suggest("pa", "ingredient", null)).thenReturn(List.of("Pasta", "Paprika"));
+        Mockito.when(recipeService.suggest("pa", "cuisine", null))
+                .thenThrow(new IllegalArgumentException("type must be recipe, ingredient or allergen"));
+
+        mockMvc.perform(get("/recipes/suggest?q=pa&type=ingredient"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1]").value("Paprika"));
+        mockMvc.perform(get("/recipes/suggest?q=pa&type=cuisine"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testSearchRecipes_UnknownTypeFallsBack() throws Exception {
         long testID = 5L;
-        RecipeDTO recipe = new RecipeDTO(testID, "Chicken Alfredo", "https://www.fakeurl.com", new ArrayList<>(), new HashSet<>(), new ArrayList<>(), "");
-        Mockito.when(recipeService.searchRecipes("alfredo", "unknown"))
-                .thenReturn(Arrays.asList(recipe));
+        RecipeSummaryDTO recipe = new RecipeSummaryDTO(testID, "Chicken Alfredo", "https://www.fakeurl.com");
+        Mockito.when(recipeService.searchRecipes(RecipeQuery.of("alfredo", "unknown"), null, null))
+                .thenReturn(new RecipeSummaryPage(Arrays.asList(recipe), null));
 
         mockMvc.perform(get("/recipes/search?q=alfredo&type=unknown"))
                 .andExpect(status().isOk())
@@ -97,6 +229,77 @@ public class RecipeControllerTest {
                 .andExpect(jsonPath("$[0].id").value((int)testID));
     }
     
+    @Test
+    void testGetRecipesBatch() throws Exception {
+        RecipeDTO recipe1 = new RecipeDTO(2L, "Pie", "", new ArrayList<>(), new HashSet<>(), new ArrayList<>(), "");
+        RecipeDTO recipe2 = new RecipeDTO(1L, "Soup", "", new ArrayList<>(), new HashSet<>(), new ArrayList<>(), "");
+        Mockito.when(recipeService.getRecipes(List.of(2L, 1L))).thenReturn(Arrays.asList(recipe1, recipe2));
+
+        mockMvc.perform(get("/recipes/batch?ids=2,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Pie"))
+                .andExpect(jsonPath("$[1].name").value("Soup"));
+    }
+
+    @Test
+    void testGetRecipesBatch_TooLarge() throws Exception {
+        Mockito.when(recipeService.getRecipes(List.of(1L, 2L, 3L)))
+                .thenThrow(new IllegalArgumentException("At most 2 recipes can be fetched per batch"));
+
+        mockMvc.perform(get("/recipes/batch?ids=1,2,3"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("At most 2 recipes can be fetched per batch"));
+    }
+
+    @Test
+    void testViewRecipeImage_DataUri() throws Exception {
+        Mockito.when(recipeService.getRecipeImage(1L)).thenReturn(Optional.of("data:image/png;base64,iVBORw0KGgo="));
+
+        mockMvc.perform(get("/recipes/1/image"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().bytes(Base64.getDecoder().decode("iVBORw0KGgo=")));
+    }
+
+    @Test
+    void testViewRecipeImage_UrlRedirects() throws Exception {
+        Mockito.when(recipeService.getRecipeImage(1L)).thenReturn(Optional.of("https://www.fakeurl.com/pie.png"));
+
+        mockMvc.perform(get("/recipes/1/image"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", "https://www.fakeurl.com/pie.png"));
+    }
+
+    @Test
+    void testViewRecipeImage_StoredImageRedirects() throws Exception {
+        String url = "/recipes/images/" + "ab".repeat(32);
+        Mockito.when(recipeService.getRecipeImage(1L)).thenReturn(Optional.of(url));
+
+        mockMvc.perform(get("/recipes/1/image"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", url));
+    }
+
+    @Test
+    void testViewRecipeImage_NonHttpUrlIsNotRedirected() throws Exception {
+        for (String image : List.of("javascript:alert(1)", "file:///etc/passwd", "//evil.example/pie.png",
+                "https://www.fakeurl.com/a pie.png")) {
+            Mockito.when(recipeService.getRecipeImage(1L)).thenReturn(Optional.of(image));
+
+            mockMvc.perform(get("/recipes/1/image"))
+                    .andExpect(status().isUnprocessableEntity())
+                    .andExpect(header().doesNotExist("Location"));
+        }
+    }
+
+    @Test
+    void testViewRecipeImage_NotFound() throws Exception {
+        Mockito.when(recipeService.getRecipeImage(1L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/recipes/1/image"))
+                .andExpect(status().isNotFound());
+    }
+
     // -- Delete endpoint tests --
     @Test
     void testDeleteRecipe_Success() throws Exception {
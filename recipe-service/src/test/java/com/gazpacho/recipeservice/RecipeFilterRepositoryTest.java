@@ -0,0 +1,99 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.model.AllergenEntity;
+import com.gazpacho.recipeservice.model.IngredientEntity;
+import com.gazpacho.recipeservice.model.RecipeEntity;
+import com.gazpacho.recipeservice.repository.RecipeFilterRepository;
+import com.gazpacho.recipeservice.search.RecipeQuery;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Import(RecipeFilterRepository.class)
+public class RecipeFilterRepositoryTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private RecipeFilterRepository recipeFilterRepository;
+
+    private Long pesto;
+    private Long satay;
+    private Long rice;
+
+    @BeforeEach
+    void setUp() {
+        AllergenEntity nuts = allergen("Tree Nuts");
+        AllergenEntity peanut = allergen("Peanut");
+        IngredientEntity pineNuts = ingredient("Pine Nuts", nuts);
+        IngredientEntity basil = ingredient("Basil");
+        IngredientEntity peanutButter = ingredient("Peanut Butter", peanut);
+        IngredientEntity ricePlain = ingredient("Rice");
+
+        pesto = recipe("Pesto", basil, pineNuts);
+        satay = recipe("Satay", peanutButter, ricePlain);
+        rice = recipe("Plain Rice", ricePlain);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void testIngredientSearchUsesContainsAndIgnoresCase() {
+        assertEquals(List.of(satay, rice), ids(null, List.of(" RICE "), List.of()));
+        // "Pine Nuts" and "Peanut Butter" both contain it
+        assertEquals(List.of(pesto, satay), ids(null, List.of("nut"), List.of()));
+        // LIKE wildcards in the query are literal
+        assertTrue(ids(null, List.of("%"), List.of()).isEmpty());
+    }
+
+    @Test
+    void testAllergenSearchExcludesAnyMatch() {
+        assertEquals(List.of(satay, rice), ids(null, List.of(), List.of("tree")));
+        assertEquals(List.of(rice), ids(null, List.of(), List.of("tree", "PEANUT")));
+        assertEquals(List.of(pesto, satay, rice), ids(null, List.of(), List.of()));
+    }
+
+    @Test
+    void testCriteriaCombine() {
+        // every ingredient is required, and the name and allergen filters apply on top
+        assertEquals(List.of(satay), ids(null, List.of("rice", "butter"), List.of()));
+        assertEquals(List.of(rice), ids("rice", List.of("rice"), List.of("peanut")));
+        assertTrue(ids("pesto", List.of("rice"), List.of()).isEmpty());
+    }
+
+    private List<Long> ids(String name, List<String> ingredients, List<String> excludedAllergens) {
+        return recipeFilterRepository.findIds(new RecipeQuery(name, ingredients, excludedAllergens));
+    }
+
+    private AllergenEntity allergen(String name) {
+        AllergenEntity allergen = new AllergenEntity();
+        allergen.setName(name);
+        entityManager.persist(allergen);
+        return allergen;
+    }
+
+    private IngredientEntity ingredient(String name, AllergenEntity... allergens) {
+        IngredientEntity ingredient = new IngredientEntity();
+        ingredient.setName(name);
+        ingredient.getAllergens().addAll(List.of(allergens));
+        entityManager.persist(ingredient);
+        return ingredient;
+    }
+
+    private Long recipe(String name, IngredientEntity... ingredients) {
+        RecipeEntity recipe = new RecipeEntity();
+        recipe.setName(name);
+        recipe.getIngredients().addAll(List.of(ingredients));
+        entityManager.persist(recipe);
+        return recipe.getId();
+    }
+}
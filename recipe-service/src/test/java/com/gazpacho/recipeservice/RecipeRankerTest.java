@@ -0,0 +1,70 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.index.IngredientIndex;
+import com.gazpacho.recipeservice.index.PopularityIndex;
+import com.gazpacho.recipeservice.index.PostingList;
+import com.gazpacho.recipeservice.index.TrigramIndex;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import com.gazpacho.recipeservice.search.RecipeRanker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RecipeRankerTest {
+
+    private IngredientIndex ingredientIndex;
+    private TrigramIndex trigramIndex;
+    private PopularityIndex popularityIndex;
+    private RecipeRanker recipeRanker;
+
+    @BeforeEach
+    void setUp() {
+        RecipeRepository recipeRepository = mock(RecipeRepository.class);
+        ingredientIndex = new IngredientIndex(recipeRepository);
+        trigramIndex = new TrigramIndex(recipeRepository, "trigram");
+        popularityIndex = new PopularityIndex(recipeRepository);
+        recipeRanker = new RecipeRanker(recipeRepository, ingredientIndex, trigramIndex, popularityIndex, 0.5);
+
+        trigramIndex.addRecipe(1L, "Creamy Pasta Bake");
+        trigramIndex.addRecipe(2L, "Pasta");
+        trigramIndex.addRecipe(3L, "Pasta Salad");
+        trigramIndex.addRecipe(4L, "Minestrone");
+        ingredientIndex.addRecipe(4L, List.of("Pasta", "Beans"));
+        ingredientIndex.addRecipe(2L, List.of("Pasta"));
+    }
+
+    private List<Long> ids(List<RecipeRanker.Scored> ranked) {
+        return ranked.stream().map(RecipeRanker.Scored::recipeId).toList();
+    }
+
+    @Test
+    void testExactThenPrefixThenSubstringThenIngredient() {
+        List<RecipeRanker.Scored> ranked = recipeRanker.topK(" PASTA ", null, 10);
+
+        assertEquals(List.of(2L, 3L, 1L, 4L), ids(ranked));
+        assertEquals(List.of(4.0, 3.0, 2.0, 1.0), ranked.stream().map(RecipeRanker.Scored::score).toList());
+    }
+
+    @Test
+    void testSavesAddAPopularityBonus() {
+        // 99 saves are worth one tier: the substring match ties the prefix match and ranks by id
+        popularityIndex.set(1L, 99);
+        popularityIndex.set(4L, 1);
+
+        List<RecipeRanker.Scored> ranked = recipeRanker.topK("pasta", null, 10);
+
+        assertEquals(List.of(2L, 1L, 3L, 4L), ids(ranked));
+        assertEquals(3.0, ranked.get(1).score(), 1e-9);
+    }
+
+    @Test
+    void testTopKIsBoundedAndRespectsAllowed() {
+        assertEquals(List.of(2L, 3L), ids(recipeRanker.topK("pasta", null, 2)));
+        assertEquals(List.of(1L, 4L), ids(recipeRanker.topK("pasta", PostingList.of(1, 4), 5)));
+        assertTrue(recipeRanker.topK("risotto", null, 5).isEmpty());
+    }
+}
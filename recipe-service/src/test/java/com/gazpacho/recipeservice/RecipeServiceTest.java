@@ -1,19 +1,56 @@
 package com.gazpacho.recipeservice;
 
+import com.gazpacho.recipeservice.cache.RecipeCache;
+import com.gazpacho.recipeservice.cache.SearchResultCache;
+import com.gazpacho.recipeservice.index.AllergenIndex;
+import com.gazpacho.recipeservice.index.FuzzyIndex;
+import com.gazpacho.recipeservice.index.IngredientIndex;
+import com.gazpacho.recipeservice.index.PantryIndex;
+import com.gazpacho.recipeservice.index.PopularityIndex;
+import com.gazpacho.recipeservice.index.SimilarityIndex;
+import com.gazpacho.recipeservice.index.SuggestIndex;
+import com.gazpacho.recipeservice.index.TrigramIndex;
 import com.gazpacho.recipeservice.repository.AllergenRepository;
 import com.gazpacho.recipeservice.repository.IngredientRepository;
+import com.gazpacho.recipeservice.repository.RecipeBulkRepository;
+import com.gazpacho.recipeservice.repository.RecipeFilterRepository;
 import com.gazpacho.sharedlib.dto.RecipeDTO;
+import com.gazpacho.sharedlib.dto.RecipeSummaryDTO;
+import com.gazpacho.sharedlib.dto.RequestIngredientDTO;
+import com.gazpacho.sharedlib.dto.RequestRecipeDTO;
 import com.gazpacho.recipeservice.model.IngredientEntity;
 import com.gazpacho.recipeservice.model.RecipeEntity;
 import com.gazpacho.recipeservice.model.AllergenEntity;
+import com.gazpacho.recipeservice.model.PantryMatch;
+import com.gazpacho.sharedlib.dto.RankedRecipeDTO;
+import com.gazpacho.recipeservice.model.RecipeSummary;
+import com.gazpacho.recipeservice.model.RecipeSummaryPage;
+import com.gazpacho.recipeservice.model.SimilarRecipe;
+import com.gazpacho.recipeservice.search.FullTextIndex;
+import com.gazpacho.recipeservice.search.RecipeQuery;
+import com.gazpacho.recipeservice.search.RecipeRanker;
+import com.gazpacho.recipeservice.search.SearchPlanner;
 import com.gazpacho.recipeservice.repository.RecipeRepository;
 import com.gazpacho.recipeservice.service.RecipeService;
+import com.gazpacho.recipeservice.storage.ImageStore;
+import com.gazpacho.recipeservice.storage.ThumbnailGenerator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.util.unit.DataSize;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -23,14 +60,62 @@ public class RecipeServiceTest {
   private RecipeRepository recipeRepository;
   private AllergenRepository allergenRepository;
   private IngredientRepository ingredientRepository;
+  private RecipeBulkRepository recipeBulkRepository;
+  private RecipeFilterRepository recipeFilterRepository;
+  private IngredientIndex ingredientIndex;
+  private AllergenIndex allergenIndex;
+  private TrigramIndex trigramIndex;
+  private PantryIndex pantryIndex;
+  private PopularityIndex popularityIndex;
+  private SuggestIndex suggestIndex;
+  private FuzzyIndex fuzzyIndex;
+  private SimilarityIndex similarityIndex;
+  private FullTextIndex fullTextIndex;
+  private ImageStore imageStore;
+  private ThumbnailGenerator thumbnailGenerator;
+  private RecipeCache recipeCache;
+  private SearchResultCache searchResultCache;
   private RecipeService recipeService;
 
+  @TempDir
+  Path imageDir;
+
   @BeforeEach
   void setUp() {
     recipeRepository = mock(RecipeRepository.class);
     allergenRepository = mock(AllergenRepository.class);
     ingredientRepository = mock(IngredientRepository.class);
-    recipeService = new RecipeService(recipeRepository, allergenRepository, ingredientRepository);
+    recipeBulkRepository = mock(RecipeBulkRepository.class);
+    recipeFilterRepository = mock(RecipeFilterRepository.class);
+    ingredientIndex = new IngredientIndex(recipeRepository);
+    allergenIndex = new AllergenIndex(recipeRepository);
+    trigramIndex = new TrigramIndex(recipeRepository, "sql");
+    pantryIndex = new PantryIndex(recipeRepository);
+    popularityIndex = new PopularityIndex(recipeRepository);
+    suggestIndex = new SuggestIndex(recipeRepository, 3);
+    fuzzyIndex = new FuzzyIndex(recipeRepository);
+    similarityIndex = new SimilarityIndex(recipeRepository, 20, 3, 0.2);
+    fullTextIndex = mock(FullTextIndex.class);
+    imageStore = new ImageStore(imageDir.toString());
+    thumbnailGenerator = mock(ThumbnailGenerator.class);
+    recipeCache = new RecipeCache(DataSize.ofMegabytes(1));
+    searchResultCache = new SearchResultCache(DataSize.ofMegabytes(1), Duration.ofMinutes(5));
+    recipeService = new RecipeService(recipeRepository, allergenRepository, ingredientRepository, recipeBulkRepository,
+        ingredientIndex, allergenIndex, trigramIndex, pantryIndex, popularityIndex, suggestIndex, fuzzyIndex, similarityIndex, planner("index"), ranker(), fullTextIndex, imageStore, thumbnailGenerator,
+        recipeCache, searchResultCache);
+    ReflectionTestUtils.setField(recipeService, "maxBatchSize", 3);
+    ReflectionTestUtils.setField(recipeService, "batchChunkSize", 2);
+    ReflectionTestUtils.setField(recipeService, "defaultSearchLimit", 2);
+    ReflectionTestUtils.setField(recipeService, "maxSearchLimit", 3);
+  }
+
+  private RecipeRanker ranker() {
+    return new RecipeRanker(recipeRepository, ingredientIndex, trigramIndex, popularityIndex, 0.5);
+  }
+
+  private SearchPlanner planner(String filterEngine) {
+    return new SearchPlanner(recipeRepository, recipeFilterRepository, ingredientIndex, allergenIndex, trigramIndex,
+        filterEngine, 2);
   }
 
   @Test
@@ -42,17 +127,56 @@ public class RecipeServiceTest {
 
     when(recipeRepository.findById(testID)).thenReturn(Optional.of(recipe));
 
-    Optional<RecipeEntity> result = recipeService.viewRecipe(testID);
+    Optional<RecipeDTO> result = recipeService.viewRecipe(testID);
     assertTrue(result.isPresent());
     assertEquals("Spaghetti", result.get().getName());
   }
 
+    @Test
+    void testViewRecipe_SecondCallIsCached() {
+        when(recipeRepository.findById(1L)).thenReturn(Optional.of(recipe(1L, "Spaghetti")));
+
+        recipeService.viewRecipe(1L);
+        assertEquals("Spaghetti", recipeService.viewRecipe(1L).get().getName());
+        verify(recipeRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testDeleteRecipe_InvalidatesCache() {
+        when(recipeRepository.findById(1L)).thenReturn(Optional.of(recipe(1L, "Spaghetti")), Optional.empty());
+        when(recipeRepository.existsById(1L)).thenReturn(true);
+        recipeService.viewRecipe(1L);
+
+        recipeService.deleteRecipe(1L);
+
+        assertFalse(recipeService.viewRecipe(1L).isPresent());
+    }
+
+    @Test
+    void testDeleteRecipe_DuringLoadIsNotCachedAgain() {
+        when(recipeRepository.existsById(1L)).thenReturn(true);
+        // the row is read, then deleted before the loaded recipe reaches the cache
+        when(recipeRepository.findById(1L)).thenAnswer(inv -> {
+            recipeService.deleteRecipe(1L);
+            return Optional.of(recipe(1L, "Spaghetti"));
+        }).thenReturn(Optional.empty());
+        when(recipeRepository.findAllWithIngredientsByIdIn(List.of(1L))).thenAnswer(inv -> {
+            recipeService.deleteRecipe(1L);
+            return List.of(recipe(1L, "Spaghetti"));
+        }).thenReturn(List.of());
+
+        recipeService.viewRecipe(1L);
+        assertFalse(recipeService.viewRecipe(1L).isPresent());
+        recipeService.getRecipes(List.of(1L));
+        assertTrue(recipeService.getRecipes(List.of(1L)).isEmpty());
+    }
+
     @Test
     void testViewRecipe_NotFound() {
         long testID = 1L;
         when(recipeRepository.findById(testID)).thenReturn(Optional.empty());
         
-        Optional<RecipeEntity> result = recipeService.viewRecipe(testID);
+        Optional<RecipeDTO> result = recipeService.viewRecipe(testID);
         assertFalse(result.isPresent());
     }
 
@@ -62,12 +186,36 @@ public class RecipeServiceTest {
         RecipeEntity recipe = new RecipeEntity();
         recipe.setId(testID);
         recipe.setName("Spaghetti");
-        when(recipeRepository.findByNameContainingIgnoreCase("spa"))
-                .thenReturn(Collections.singletonList(recipe));
+        when(recipeRepository.findIdsByNameContaining("spa")).thenReturn(List.of(testID));
+        when(recipeRepository.findSummariesByIdIn(List.of(testID)))
+                .thenReturn(Collections.singletonList(summary(recipe)));
+
+        List<RecipeSummaryDTO> results = search("spa", "recipe");
+        assertEquals(1, results.size());
+        assertEquals("Spaghetti", results.get(0).getName());
+    }
+
+    @Test
+    void testSearchRecipes_RecipeTypeTrigramEngine() {
+        trigramIndex = new TrigramIndex(recipeRepository, "trigram");
+        recipeService = new RecipeService(recipeRepository, allergenRepository, ingredientRepository, recipeBulkRepository,
+            ingredientIndex, allergenIndex, trigramIndex, pantryIndex, popularityIndex, suggestIndex, fuzzyIndex, similarityIndex, planner("index"), ranker(), fullTextIndex, imageStore, thumbnailGenerator,
+            recipeCache, searchResultCache);
+        ReflectionTestUtils.setField(recipeService, "batchChunkSize", 2);
+        ReflectionTestUtils.setField(recipeService, "maxSearchLimit", 3);
+
+        RecipeEntity recipe = new RecipeEntity();
+        recipe.setId(1L);
+        recipe.setName("Spaghetti");
+        trigramIndex.addRecipe(1L, "Spaghetti");
+        trigramIndex.addRecipe(2L, "Gazpacho");
+
+        when(recipeRepository.findSummariesByIdIn(List.of(1L))).thenReturn(Collections.singletonList(summary(recipe)));
 
-        List<RecipeDTO> results = recipeService.searchRecipes("spa", "recipe");
+        List<RecipeSummaryDTO> results = search("GHETT", "recipe");
         assertEquals(1, results.size());
         assertEquals("Spaghetti", results.get(0).getName());
+        verify(recipeRepository, never()).findIdsByNameContaining(any());
     }
 
     @Test
@@ -82,17 +230,56 @@ public class RecipeServiceTest {
         ingredient.setId(10L);
         ingredient.setName("Cheddar Cheese");
         recipe.getIngredients().add(ingredient);
+        ingredientIndex.addRecipe(testID, List.of(ingredient.getName()));
 
-        when(recipeRepository.findAll()).thenReturn(Collections.singletonList(recipe));
+        when(recipeRepository.findSummariesByIdIn(List.of(testID))).thenReturn(Collections.singletonList(summary(recipe)));
 
-        List<RecipeDTO> results = recipeService.searchRecipes("cheese", "ingredient");
+        List<RecipeSummaryDTO> results = search("cheese", "ingredient");
         assertEquals(1, results.size());
         assertEquals("Mac & Cheese", results.get(0).getName());
     }
 
+    @Test
+    void testSearchRecipes_IngredientTypeNoMatchSkipsRepository() {
+        ingredientIndex.addRecipe(2L, List.of("Cheddar Cheese"));
+
+        List<RecipeSummaryDTO> results = search("tomato", "ingredient");
+        assertTrue(results.isEmpty());
+        verify(recipeRepository, never()).findAll();
+        verify(recipeRepository, never()).findSummariesByIdIn(any());
+    }
+
+    @Test
+    void testSearchRecipes_SqlFilterEngine() {
+        recipeService = new RecipeService(recipeRepository, allergenRepository, ingredientRepository, recipeBulkRepository,
+            ingredientIndex, allergenIndex, trigramIndex, pantryIndex, popularityIndex, suggestIndex, fuzzyIndex, similarityIndex, planner("sql"), ranker(), fullTextIndex, imageStore, thumbnailGenerator,
+            recipeCache, searchResultCache);
+        ReflectionTestUtils.setField(recipeService, "batchChunkSize", 2);
+        ReflectionTestUtils.setField(recipeService, "maxSearchLimit", 3);
+        ingredientIndex.addRecipe(1L, List.of("Cheddar Cheese"));
+        when(recipeFilterRepository.findIds(RecipeQuery.of("cheese", "ingredient"))).thenReturn(List.of(2L));
+        when(recipeFilterRepository.findIds(new RecipeQuery(null, List.of(), List.of("milk", "peanut"))))
+                .thenReturn(List.of(3L));
+        when(recipeRepository.findSummariesByIdIn(List.of(2L))).thenReturn(List.of(new RecipeSummary(2L, "Mac & Cheese", null)));
+        when(recipeRepository.findSummariesByIdIn(List.of(3L))).thenReturn(List.of(new RecipeSummary(3L, "Plain Rice", null)));
+
+        // the database answers, not the in-memory index
+        assertEquals(List.of(2L), search("cheese", "ingredient").stream().map(RecipeSummaryDTO::getId).toList());
+        assertEquals(List.of(3L), search("peanut, milk,", "allergen").stream().map(RecipeSummaryDTO::getId).toList());
+    }
+
+    @Test
+    void testDeleteRecipe_RemovesFromIngredientIndex() {
+        ingredientIndex.addRecipe(2L, List.of("Cheddar Cheese"));
+        when(recipeRepository.existsById(2L)).thenReturn(true);
+
+        recipeService.deleteRecipe(2L);
+        assertTrue(ingredientIndex.search("cheese").isEmpty());
+    }
+
     @Test
     void testSearchRecipes_AllergenType() {
-        //simulate a recipe with an ingredient that has an allergen join matching the query
+        //allergen search excludes recipes with an ingredient whose allergen matches the query
         long testID = 3L;
         RecipeEntity recipe = new RecipeEntity();
         recipe.setId(testID);
@@ -109,11 +296,43 @@ public class RecipeServiceTest {
         ingredient.getAllergens().add(allergen);
         recipe.getIngredients().add(ingredient);
 
-        when(recipeRepository.findAll()).thenReturn(Collections.singletonList(recipe));
+        RecipeEntity safeRecipe = new RecipeEntity();
+        safeRecipe.setId(testID + 1);
+        safeRecipe.setName("Tomato Soup");
+
+        allergenIndex.addRecipe(testID, List.of(allergen));
+        allergenIndex.addRecipe(testID + 1, List.of());
 
-        List<RecipeDTO> results = recipeService.searchRecipes("peanut", "allergen");
+        when(recipeRepository.findSummariesByIdIn(List.of(testID + 1))).thenReturn(Collections.singletonList(summary(safeRecipe)));
+
+        List<RecipeSummaryDTO> results = search("peanut", "allergen");
         assertEquals(1, results.size());
-        assertEquals("Peanut Pie", results.get(0).getName());
+        assertEquals("Tomato Soup", results.get(0).getName());
+        verify(recipeRepository, never()).findAll();
+    }
+
+    @Test
+    void testSearchRecipes_AllergenTypeExcludesSeveral() {
+        AllergenEntity peanut = new AllergenEntity();
+        peanut.setId(1L);
+        peanut.setName("Peanuts");
+        AllergenEntity milk = new AllergenEntity();
+        milk.setId(2L);
+        milk.setName("Milk");
+
+        RecipeEntity plain = new RecipeEntity();
+        plain.setId(12L);
+        plain.setName("Plain Rice");
+
+        allergenIndex.addRecipe(10L, List.of(peanut));
+        allergenIndex.addRecipe(11L, List.of(milk));
+        allergenIndex.addRecipe(12L, List.of());
+
+        when(recipeRepository.findSummariesByIdIn(List.of(12L))).thenReturn(Collections.singletonList(summary(plain)));
+
+        List<RecipeSummaryDTO> results = search("peanut, milk", "allergen");
+        assertEquals(1, results.size());
+        assertEquals("Plain Rice", results.get(0).getName());
     }
 
     @Test
@@ -123,27 +342,491 @@ public class RecipeServiceTest {
         RecipeEntity recipe = new RecipeEntity();
         recipe.setId(testID);
         recipe.setName("Chicken Alfredo");
-        when(recipeRepository.findByNameContainingIgnoreCase("alfredo"))
-                .thenReturn(Collections.singletonList(recipe));
+        when(recipeRepository.findIdsByNameContaining("alfredo")).thenReturn(List.of(testID));
+        when(recipeRepository.findSummariesByIdIn(List.of(testID)))
+                .thenReturn(Collections.singletonList(summary(recipe)));
 
-        List<RecipeDTO> results = recipeService.searchRecipes("alfredo", "unknown");
+        List<RecipeSummaryDTO> results = search("alfredo", "unknown");
         assertEquals(1, results.size());
         assertEquals("Chicken Alfredo", results.get(0).getName());
     }
     
     @Test
     void testSearchRecipes_DefaultSearch() {
-        //check that the overloaded default is be used here
+        //check that a missing type defaults to recipe search
         long testID = 1L;
         RecipeEntity recipe = new RecipeEntity();
         recipe.setId(testID);
         recipe.setName("Spaghetti");
 
-        when(recipeRepository.findByNameContainingIgnoreCase("spa"))
-                .thenReturn(Collections.singletonList(recipe));
+        when(recipeRepository.findIdsByNameContaining("spa")).thenReturn(List.of(testID));
+        when(recipeRepository.findSummariesByIdIn(List.of(testID)))
+                .thenReturn(Collections.singletonList(summary(recipe)));
 
-    List<RecipeDTO> results = recipeService.searchRecipes("spa");
+    List<RecipeSummaryDTO> results = search("spa", null);
     assertEquals(1, results.size());
     assertEquals("Spaghetti", results.get(0).getName());
   }
+
+    @Test
+    void testSearchRecipes_RepeatedSearchIsCached() {
+        when(recipeRepository.findIdsByNameContaining("soup")).thenReturn(List.of(7L));
+        when(recipeRepository.findSummariesByIdIn(List.of(7L)))
+                .thenReturn(List.of(new RecipeSummary(7L, "Pea Soup", null)));
+
+        search("soup", "recipe");
+        // same normalised query: ids come from the cache, only the summary is loaded
+        List<RecipeSummaryDTO> results = search("SOUP", "recipe");
+
+        assertEquals("Pea Soup", results.get(0).getName());
+        verify(recipeRepository, times(1)).findIdsByNameContaining(any());
+    }
+
+    @Test
+    void testSearchRecipes_CachedIdsHydrateFromRecipeCache() {
+        ingredientIndex.addRecipe(1L, List.of("Basil"));
+        when(recipeRepository.findById(1L)).thenReturn(Optional.of(recipe(1L, "Pesto")));
+        recipeService.viewRecipe(1L);
+
+        List<RecipeSummaryDTO> results = search(" Basil ", "ingredient");
+
+        assertEquals("Pesto", results.get(0).getName());
+        verify(recipeRepository, never()).findSummariesByIdIn(any());
+    }
+
+    @Test
+    void testDeleteRecipe_InvalidatesSearchesContainingIt() {
+        ingredientIndex.addRecipe(1L, List.of("Basil"));
+        ingredientIndex.addRecipe(2L, List.of("Thai Basil"));
+        when(recipeRepository.findSummariesByIdIn(List.of(1L, 2L)))
+                .thenReturn(List.of(new RecipeSummary(1L, "Pesto", null), new RecipeSummary(2L, "Curry", null)));
+        when(recipeRepository.findSummariesByIdIn(List.of(1L)))
+                .thenReturn(List.of(new RecipeSummary(1L, "Pesto", null)));
+        when(recipeRepository.existsById(2L)).thenReturn(true);
+        assertEquals(2, search("basil", "ingredient").size());
+
+        recipeService.deleteRecipe(2L);
+
+        assertEquals(List.of("Pesto"),
+                search("basil", "ingredient").stream().map(RecipeSummaryDTO::getName).toList());
+    }
+
+    @Test
+    void testAddRecipe_InvalidatesMatchingSearchesOnly() {
+        when(recipeRepository.findIdsByNameContaining(any())).thenReturn(List.of());
+        when(recipeBulkRepository.insertAll(any())).thenAnswer(inv -> {
+            List<RecipeEntity> recipes = inv.getArgument(0);
+            recipes.get(0).setId(100L);
+            return recipes;
+        });
+        search("soup", "recipe");
+        search("pie", "recipe");
+
+        recipeService.addRecipe(List.of(new RequestRecipeDTO("Leek Soup", null, "", List.of(), List.of())));
+        search("soup", "recipe");
+        search("pie", "recipe");
+
+        verify(recipeRepository, times(2)).findIdsByNameContaining("soup");
+        verify(recipeRepository, times(1)).findIdsByNameContaining("pie");
+    }
+
+    // first page of a search, as GET /recipes/search serves it
+    private List<RecipeSummaryDTO> search(String query, String type) {
+        return recipeService.searchRecipes(query, type, null, 3).results();
+    }
+
+    private RecipeSummary summary(RecipeEntity recipe) {
+        return new RecipeSummary(recipe.getId(), recipe.getName(), recipe.getImage());
+    }
+
+    @Test
+    void testSearchRecipes_ReturnsSummaries() {
+        when(recipeRepository.findIdsByNameContaining("soup")).thenReturn(List.of(7L, 8L, 9L));
+        when(recipeRepository.findSummariesByIdIn(List.of(7L, 8L)))
+                .thenReturn(List.of(new RecipeSummary(7L, "Tomato Soup", "/recipes/images/" + "ab".repeat(32)),
+                        new RecipeSummary(8L, "Pea Soup", null)));
+        when(recipeRepository.findSummariesByIdIn(List.of(9L)))
+                .thenReturn(List.of(new RecipeSummary(9L, "Leek Soup", "data:image/png;base64,iVBORw0KGgo=")));
+
+        List<RecipeSummaryDTO> results = search("soup", "recipe");
+        // stored images are listed with their small variant
+        assertEquals("/recipes/images/" + "ab".repeat(32) + "/small", results.get(0).getThumbnail());
+        assertNull(results.get(1).getThumbnail());
+        // inline images are never copied into a DTO
+        assertEquals("/recipes/9/image", results.get(2).getThumbnail());
+        verify(recipeRepository, never()).findByNameContainingIgnoreCase(any());
+    }
+
+    @Test
+    void testSearchRecipesPage_NameLooksUpIdsOnce() {
+        when(recipeRepository.findIdsByNameContaining("soup")).thenReturn(List.of(9L, 4L, 7L));
+        when(recipeRepository.findSummariesByIdIn(List.of(4L, 7L)))
+                .thenReturn(List.of(new RecipeSummary(4L, "Pea Soup", null), new RecipeSummary(7L, "Leek Soup", null)));
+        when(recipeRepository.findSummariesByIdIn(List.of(9L)))
+                .thenReturn(List.of(new RecipeSummary(9L, "Tomato Soup", null)));
+
+        RecipeSummaryPage first = recipeService.searchRecipes("soup", "recipe", null, null);
+        assertEquals(List.of("Pea Soup", "Leek Soup"), first.results().stream().map(RecipeSummaryDTO::getName).toList());
+        assertEquals(7L, first.nextCursor());
+
+        RecipeSummaryPage last = recipeService.searchRecipes("soup", "recipe", first.nextCursor(), null);
+        assertEquals(1, last.results().size());
+        assertNull(last.nextCursor());
+        // the second page is a slice of the cached ids
+        verify(recipeRepository, times(1)).findIdsByNameContaining(any());
+    }
+
+    @Test
+    void testSearchRecipesPage_IndexHydratesOnlyThePage() {
+        for (long id = 1; id <= 5; id++) {
+            ingredientIndex.addRecipe(id, List.of("Basil"));
+        }
+        when(recipeRepository.findSummariesByIdIn(List.of(3L, 4L)))
+                .thenReturn(List.of(new RecipeSummary(4L, "Pesto", null), new RecipeSummary(3L, "Caprese", null)));
+        when(recipeRepository.findSummariesByIdIn(List.of(5L)))
+                .thenReturn(List.of(new RecipeSummary(5L, "Basil Oil", null)));
+
+        RecipeSummaryPage page = recipeService.searchRecipes("basil", "ingredient", 2L, 2);
+        assertEquals(List.of(3L, 4L), page.results().stream().map(RecipeSummaryDTO::getId).toList());
+        assertEquals(4L, page.nextCursor());
+
+        RecipeSummaryPage last = recipeService.searchRecipes("basil", "ingredient", 4L, 2);
+        assertEquals(List.of(5L), last.results().stream().map(RecipeSummaryDTO::getId).toList());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void testSearchRecipesPage_LimitOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> recipeService.searchRecipes("soup", "recipe", null, 0));
+        assertThrows(IllegalArgumentException.class, () -> recipeService.searchRecipes("soup", "recipe", null, 4));
+    }
+
+    @Test
+    void testMatchPantry_HydratesTheRankedRecipes() {
+        IngredientEntity rice = ingredient(10L, "Rice");
+        IngredientEntity egg = ingredient(11L, "Egg");
+        IngredientEntity leek = ingredient(12L, "Leek");
+        RecipeEntity friedRice = recipe(1L, "Fried Rice");
+        friedRice.setIngredients(Set.of(rice, egg));
+        RecipeEntity risotto = recipe(2L, "Leek Risotto");
+        risotto.setIngredients(Set.of(rice, leek));
+        pantryIndex.addRecipe(1L, friedRice.getIngredients());
+        pantryIndex.addRecipe(2L, risotto.getIngredients());
+        when(recipeRepository.findSummariesByIdIn(List.of(1L, 2L)))
+                .thenReturn(List.of(new RecipeSummary(2L, "Leek Risotto", null), new RecipeSummary(1L, "Fried Rice", null)));
+
+        List<PantryMatch> matches = recipeService.matchPantry(List.of("rice", "EGG"), null);
+
+        assertEquals(List.of(
+                new PantryMatch(1L, "Fried Rice", null, 1.0, List.of()),
+                new PantryMatch(2L, "Leek Risotto", null, 0.5, List.of("Leek"))), matches);
+        assertThrows(IllegalArgumentException.class, () -> recipeService.matchPantry(List.of("rice"), 4));
+    }
+
+    @Test
+    void testRankRecipes_FiltersAndScores() {
+        ingredientIndex.addRecipe(1L, List.of("Tomato"));
+        ingredientIndex.addRecipe(2L, List.of("Tomato", "Basil"));
+        when(recipeRepository.findIdsAndNamesByNameContaining("tomato")).thenReturn(Arrays.asList(
+                new Object[] { 1L, "Tomato Soup" },
+                new Object[] { 3L, "Tomato" }));
+        when(recipeRepository.updateSaveCount(2L, 1)).thenReturn(1);
+        when(recipeRepository.findSummariesByIdIn(List.of(2L)))
+                .thenReturn(List.of(new RecipeSummary(2L, "Caprese", null)));
+
+        assertTrue(recipeService.setSaveCount(2L, 1));
+        List<RankedRecipeDTO> ranked = recipeService.rankRecipes(" Tomato",
+                RecipeQuery.of(null, "recipe", List.of("basil"), null), 3);
+
+        // only recipe 2 has basil; it is an ingredient hit with one save
+        assertEquals(List.of(new RankedRecipeDTO(2L, "Caprese", null, 1 + 0.5 * Math.log10(2))), ranked);
+        assertThrows(IllegalArgumentException.class,
+                () -> recipeService.rankRecipes(" ", RecipeQuery.of(null, "recipe"), 3));
+    }
+
+    @Test
+    void testSearchFullText_FiltersAndKeepsHitOrder() {
+        ingredientIndex.addRecipe(1L, List.of("Tomato"));
+        ingredientIndex.addRecipe(2L, List.of("Tomato", "Basil"));
+        ingredientIndex.addRecipe(3L, List.of("Basil"));
+        when(fullTextIndex.search(eq("simmer"), any(), eq(2))).thenReturn(List.of(
+                new FullTextIndex.Hit(3L, 2.5f), new FullTextIndex.Hit(2L, 1.0f)));
+        when(recipeRepository.findSummariesByIdIn(any())).thenReturn(List.of(
+                new RecipeSummary(2L, "Caprese", null), new RecipeSummary(3L, "Pesto", null)));
+
+        List<RankedRecipeDTO> results = recipeService.searchFullText("simmer",
+                RecipeQuery.of(null, "recipe", List.of("basil"), null), null);
+
+        assertEquals(List.of(new RankedRecipeDTO(3L, "Pesto", null, 2.5), new RankedRecipeDTO(2L, "Caprese", null, 1.0)),
+                results);
+        // the ingredient filter is handed to the index as the allowed ids
+        verify(fullTextIndex).search(eq("simmer"), argThat(allowed -> allowed.size() == 2
+                && allowed.contains(2) && allowed.contains(3)), eq(2));
+        assertThrows(IllegalArgumentException.class,
+                () -> recipeService.searchFullText("", RecipeQuery.of(null, "recipe"), null));
+    }
+
+    @Test
+    void testDeleteRecipe_RemovesFromFullTextIndex() {
+        when(recipeRepository.existsById(4L)).thenReturn(true);
+
+        recipeService.deleteRecipe(4L);
+        verify(fullTextIndex).removeRecipe(4L);
+    }
+
+    @Test
+    void testFindSimilar_HydratesMatchesAndRejectsUnknownRecipes() {
+        IngredientEntity tomato = ingredient(1L, "Tomato");
+        IngredientEntity basil = ingredient(2L, "Basil");
+        IngredientEntity garlic = ingredient(3L, "Garlic");
+        similarityIndex.addRecipe(1L, List.of(tomato, basil, garlic));
+        similarityIndex.addRecipe(2L, List.of(tomato, basil, garlic));
+        when(recipeRepository.existsById(1L)).thenReturn(true);
+        when(recipeRepository.findSummariesByIdIn(List.of(2L)))
+                .thenReturn(List.of(new RecipeSummary(2L, "Bruschetta", null)));
+
+        assertEquals(Optional.of(List.of(new SimilarRecipe(2L, "Bruschetta", null, 1.0))),
+                recipeService.findSimilar(1L, null));
+        assertEquals(Optional.empty(), recipeService.findSimilar(9L, null));
+        assertThrows(IllegalArgumentException.class, () -> recipeService.findSimilar(1L, 4));
+    }
+
+    @Test
+    void testSuggest_ValidatesTypeAndLimit() {
+        suggestIndex.addRecipe(1L, "Pad Thai", List.of("Peanuts"), List.of("Peanut"));
+
+        assertEquals(List.of("Peanuts"), recipeService.suggest("pea", "Ingredient", null));
+        assertEquals(List.of("Pad Thai"), recipeService.suggest("p", "recipe", 1));
+        assertThrows(IllegalArgumentException.class, () -> recipeService.suggest("p", "cuisine", null));
+        assertThrows(IllegalArgumentException.class, () -> recipeService.suggest("p", "recipe", 4));
+    }
+
+    @Test
+    void testCorrect_UsesTheDictionaryOfEachCriterion() {
+        fuzzyIndex.addRecipe(1L, "Gazpacho", List.of("Tomato", "Cucumber"), List.of("Celery"));
+
+        RecipeQuery corrected = recipeService.correct(
+                new RecipeQuery("gaspacho", List.of("tomatoe"), List.of("celry")));
+
+        assertEquals(new RecipeQuery("gazpacho", List.of("tomato"), List.of("celery")), corrected);
+        // ingredient words are not recipe names, but free text checks both
+        assertEquals("tomatoe", recipeService.correct(RecipeQuery.of("tomatoe", "recipe")).name());
+        assertEquals("tomato gazpacho", recipeService.correct("tomatoe gaspacho"));
+    }
+
+    @Test
+    void testSetSaveCount_UnknownRecipe() {
+        when(recipeRepository.updateSaveCount(9L, 1)).thenReturn(0);
+
+        assertFalse(recipeService.setSaveCount(9L, 1));
+        assertEquals(0, popularityIndex.saves(9));
+        assertThrows(IllegalArgumentException.class, () -> recipeService.setSaveCount(9L, -1));
+    }
+
+    private IngredientEntity ingredient(long id, String name) {
+        IngredientEntity ingredient = new IngredientEntity();
+        ingredient.setId(id);
+        ingredient.setName(name);
+        return ingredient;
+    }
+
+    private RecipeEntity recipe(long id, String name) {
+        RecipeEntity recipe = new RecipeEntity();
+        recipe.setId(id);
+        recipe.setName(name);
+        return recipe;
+    }
+
+    @Test
+    void testGetRecipes_DedupesChunksAndKeepsRequestedOrder() {
+        when(recipeRepository.findAllWithIngredientsByIdIn(List.of(3L, 1L)))
+                .thenReturn(Arrays.asList(recipe(1L, "Soup"), recipe(3L, "Pie")));
+        when(recipeRepository.findAllWithIngredientsByIdIn(List.of(2L)))
+                .thenReturn(Collections.singletonList(recipe(2L, "Salad")));
+
+        List<RecipeDTO> results = recipeService.getRecipes(List.of(3L, 1L, 3L, 2L, 1L));
+
+        assertEquals(List.of("Pie", "Soup", "Salad"), results.stream().map(RecipeDTO::getName).toList());
+        verify(recipeRepository, times(2)).findAllWithIngredientsByIdIn(any());
+        verify(recipeRepository, never()).findById(any());
+    }
+
+    @Test
+    void testGetRecipes_SkipsMissingIds() {
+        when(recipeRepository.findAllWithIngredientsByIdIn(List.of(1L, 99L)))
+                .thenReturn(Collections.singletonList(recipe(1L, "Soup")));
+
+        List<RecipeDTO> results = recipeService.getRecipes(List.of(1L, 99L));
+        assertEquals(1, results.size());
+        assertEquals("Soup", results.get(0).getName());
+    }
+
+    @Test
+    void testGetRecipes_LoadsOnlyUncachedIds() {
+        when(recipeRepository.findById(2L)).thenReturn(Optional.of(recipe(2L, "Salad")));
+        recipeService.viewRecipe(2L);
+        when(recipeRepository.findAllWithIngredientsByIdIn(List.of(3L, 1L)))
+                .thenReturn(Arrays.asList(recipe(1L, "Soup"), recipe(3L, "Pie")));
+
+        List<RecipeDTO> results = recipeService.getRecipes(List.of(3L, 2L, 1L));
+        assertEquals(List.of("Pie", "Salad", "Soup"), results.stream().map(RecipeDTO::getName).toList());
+
+        // everything is cached now
+        recipeService.getRecipes(List.of(1L, 2L, 3L));
+        verify(recipeRepository, times(1)).findAllWithIngredientsByIdIn(any());
+    }
+
+    @Test
+    void testGetRecipes_RejectsOversizedBatch() {
+        assertThrows(IllegalArgumentException.class,
+                () -> recipeService.getRecipes(List.of(1L, 2L, 3L, 4L)));
+        verifyNoInteractions(recipeRepository);
+    }
+
+    @Test
+    void testAddRecipe_ResolvesNamesInBulk() {
+        AllergenEntity gluten = new AllergenEntity();
+        gluten.setId(1L);
+        gluten.setName("Gluten");
+        IngredientEntity flour = new IngredientEntity();
+        flour.setId(10L);
+        flour.setName("Flour");
+        flour.getAllergens().add(gluten);
+
+        when(allergenRepository.findByNameIn(any())).thenReturn(List.of(gluten));
+        when(allergenRepository.saveAll(any())).thenAnswer(inv -> {
+            List<AllergenEntity> created = new ArrayList<>();
+            inv.<Iterable<AllergenEntity>>getArgument(0).forEach(a -> {
+                a.setId(2L);
+                created.add(a);
+            });
+            return created;
+        });
+        when(ingredientRepository.findByNameIn(any())).thenReturn(List.of(flour));
+        when(ingredientRepository.saveAll(any())).thenAnswer(inv -> {
+            List<IngredientEntity> created = new ArrayList<>();
+            inv.<Iterable<IngredientEntity>>getArgument(0).forEach(i -> {
+                i.setId(11L);
+                created.add(i);
+            });
+            return created;
+        });
+        when(recipeBulkRepository.insertAll(any())).thenAnswer(inv -> {
+            List<RecipeEntity> recipes = inv.getArgument(0);
+            long id = 100L;
+            for (RecipeEntity recipe : recipes) {
+                recipe.setId(id++);
+            }
+            return recipes;
+        });
+
+        List<RecipeDTO> results = recipeService.addRecipe(List.of(
+                new RequestRecipeDTO("Bread", "", "", List.of(
+                        new RequestIngredientDTO("Flour", List.of("Gluten"))), List.of("Bake")),
+                new RequestRecipeDTO("Peanut Bread", "", "", List.of(
+                        new RequestIngredientDTO("flour", List.of("gluten")),
+                        new RequestIngredientDTO("Peanuts", List.of("Peanut"))), List.of("Mix", "Bake"))));
+
+        assertEquals(2, results.size());
+        assertEquals(List.of("Mix", "Bake"), results.get(1).getSteps());
+        assertEquals(Set.of("Gluten", "Peanut"), results.get(1).getAllergens());
+        verify(allergenRepository, never()).findByName(any());
+        verify(ingredientRepository, never()).findByName(any());
+        verify(allergenRepository).saveAll(argThat(a -> a.iterator().next().getName().equals("Peanut")));
+        verify(ingredientRepository).saveAll(argThat(i -> i.iterator().next().getName().equals("Peanuts")));
+
+        // the new recipes are searchable straight away
+        assertEquals(List.of(101L), ingredientIndex.search("peanut").toIdList());
+    }
+
+    @Test
+    void testAddRecipe_IndexesOnlyOnCommit() {
+        stubPestoInsert();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            recipeService.addRecipe(List.of(pesto()));
+            assertTrue(ingredientIndex.search("basil").isEmpty());
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(List.of(100L), ingredientIndex.search("basil").toIdList());
+    }
+
+    @Test
+    void testAddRecipe_RolledBackBatchLeavesIndexesUntouched() {
+        stubPestoInsert();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            recipeService.addRecipe(List.of(pesto()));
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(ingredientIndex.search("basil").isEmpty());
+        assertTrue(allergenIndex.excluding(List.of("milk")).isEmpty());
+    }
+
+    private static RequestRecipeDTO pesto() {
+        return new RequestRecipeDTO("Pesto", "", "", List.of(new RequestIngredientDTO("Basil", List.of())),
+                List.of("Blend"));
+    }
+
+    private void stubPestoInsert() {
+        IngredientEntity basil = new IngredientEntity();
+        basil.setId(10L);
+        basil.setName("Basil");
+        when(ingredientRepository.findByNameIn(any())).thenReturn(List.of(basil));
+        when(recipeBulkRepository.insertAll(any())).thenAnswer(inv -> {
+            List<RecipeEntity> recipes = inv.getArgument(0);
+            recipes.get(0).setId(100L);
+            return recipes;
+        });
+    }
+
+    @Test
+    void testAddRecipe_InlineImageMovesToStore() {
+        when(recipeBulkRepository.insertAll(any())).thenAnswer(inv -> {
+            List<RecipeEntity> recipes = inv.getArgument(0);
+            long id = 100L;
+            for (RecipeEntity recipe : recipes) {
+                recipe.setId(id++);
+            }
+            return recipes;
+        });
+        String png = "data:image/png;base64,iVBORw0KGgo=";
+
+        List<RecipeDTO> results = recipeService.addRecipe(List.of(
+                new RequestRecipeDTO("Toast", png, "", List.of(), List.of()),
+                new RequestRecipeDTO("Jam Toast", png, "", List.of(), List.of()),
+                new RequestRecipeDTO("Soup", "https://www.fakeurl.com/soup.png", "", List.of(), List.of())));
+
+        String url = results.get(0).getImage();
+        assertTrue(url.startsWith(ImageStore.URL_PREFIX));
+        // identical bytes share one blob
+        assertEquals(url, results.get(1).getImage());
+        assertTrue(imageStore.find(url.substring(ImageStore.URL_PREFIX.length())).isPresent());
+        assertEquals("https://www.fakeurl.com/soup.png", results.get(2).getImage());
+        // thumbnails are queued once per distinct stored image
+        verify(thumbnailGenerator, times(1)).schedule(url.substring(ImageStore.URL_PREFIX.length()));
+        verifyNoMoreInteractions(thumbnailGenerator);
+    }
+
+    @Test
+    void testExternalizeInlineImages() {
+        when(recipeRepository.findIdsWithInlineImage()).thenReturn(List.of(1L, 2L));
+        when(recipeRepository.findImageById(1L)).thenReturn(Optional.of("data:image/png;base64,iVBORw0KGgo="));
+        when(recipeRepository.findImageById(2L)).thenReturn(Optional.of("data:text/plain,not-base64"));
+
+        recipeService.externalizeInlineImages();
+
+        verify(recipeRepository).updateImage(eq(1L), startsWith(ImageStore.URL_PREFIX));
+        verify(recipeRepository, never()).updateImage(eq(2L), any());
+    }
 }
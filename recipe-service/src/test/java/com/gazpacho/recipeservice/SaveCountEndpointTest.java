@@ -0,0 +1,28 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.controller.SaveCountEndpoint;
+import com.gazpacho.recipeservice.service.RecipeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SaveCountEndpointTest {
+
+    private final RecipeService recipeService = mock(RecipeService.class);
+    private final SaveCountEndpoint endpoint = new SaveCountEndpoint(recipeService);
+
+    @Test
+    void testSetSaveCount() {
+        when(recipeService.setSaveCount(1L, 3)).thenReturn(true);
+        when(recipeService.setSaveCount(9L, 3)).thenReturn(false);
+        when(recipeService.setSaveCount(1L, -1)).thenThrow(new IllegalArgumentException("count must not be negative"));
+
+        assertEquals(WebEndpointResponse.STATUS_NO_CONTENT, endpoint.setSaveCount(1L, 3).getStatus());
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.setSaveCount(9L, 3).getStatus());
+        WebEndpointResponse<String> negative = endpoint.setSaveCount(1L, -1);
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, negative.getStatus());
+        assertEquals("count must not be negative", negative.getBody());
+    }
+}
@@ -0,0 +1,82 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.index.AllergenIndex;
+import com.gazpacho.recipeservice.index.IngredientIndex;
+import com.gazpacho.recipeservice.index.TrigramIndex;
+import com.gazpacho.recipeservice.model.AllergenEntity;
+import com.gazpacho.recipeservice.repository.RecipeFilterRepository;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import com.gazpacho.recipeservice.search.RecipeQuery;
+import com.gazpacho.recipeservice.search.SearchPlanner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SearchPlannerTest {
+
+    private RecipeRepository recipeRepository;
+    private RecipeFilterRepository recipeFilterRepository;
+    private IngredientIndex ingredientIndex;
+    private AllergenIndex allergenIndex;
+    private TrigramIndex trigramIndex;
+
+    @BeforeEach
+    void setUp() {
+        recipeRepository = mock(RecipeRepository.class);
+        recipeFilterRepository = mock(RecipeFilterRepository.class);
+        ingredientIndex = new IngredientIndex(recipeRepository);
+        allergenIndex = new AllergenIndex(recipeRepository);
+        trigramIndex = new TrigramIndex(recipeRepository, "trigram");
+
+        AllergenEntity milk = new AllergenEntity();
+        milk.setId(1L);
+        milk.setName("Milk");
+        // 1..20 use garlic, every third also leek; 3 and 6 contain milk
+        for (long id = 1; id <= 20; id++) {
+            ingredientIndex.addRecipe(id, id % 3 == 0 ? List.of("Garlic", "Leek") : List.of("Garlic"));
+            allergenIndex.addRecipe(id, id == 3 || id == 6 ? List.of(milk) : List.of());
+            trigramIndex.addRecipe(id, id % 2 == 0 ? "Leek Soup " + id : "Stew " + id);
+        }
+    }
+
+    private SearchPlanner planner(TrigramIndex names, String filterEngine) {
+        return new SearchPlanner(recipeRepository, recipeFilterRepository, ingredientIndex, allergenIndex, names,
+                filterEngine, 100);
+    }
+
+    @Test
+    void testCombinesAllCriteria() {
+        RecipeQuery query = new RecipeQuery("soup", List.of("leek", "garlic"), List.of("milk"));
+        assertEquals(List.of(12L, 18L), planner(trigramIndex, "index").matchingIds(query).toIdList());
+    }
+
+    @Test
+    void testEmptyQueryMatchesEverything() {
+        assertEquals(20, planner(trigramIndex, "index").matchingIds(new RecipeQuery(null, List.of(), List.of())).size());
+    }
+
+    @Test
+    void testSqlNameIsCheckedLastAgainstTheCandidates() {
+        TrigramIndex sqlNames = new TrigramIndex(recipeRepository, "sql");
+        when(recipeRepository.findIdsByNameContainingAndIdIn("soup", List.of(9L, 12L, 15L, 18L)))
+                .thenReturn(List.of(12L, 18L));
+
+        RecipeQuery query = new RecipeQuery("soup", List.of("leek"), List.of("milk"));
+        assertEquals(List.of(12L, 18L), planner(sqlNames, "index").matchingIds(query).toIdList());
+        // the table-wide LIKE never runs
+        verify(recipeRepository, never()).findIdsByNameContaining(any());
+    }
+
+    @Test
+    void testSqlFilterEngineIsOneQuery() {
+        RecipeQuery query = new RecipeQuery("soup", List.of("leek"), List.of());
+        when(recipeFilterRepository.findIds(query)).thenReturn(List.of(6L, 12L));
+
+        assertEquals(List.of(6L, 12L), planner(trigramIndex, "sql").matchingIds(query).toIdList());
+        verifyNoInteractions(recipeRepository);
+    }
+}
@@ -0,0 +1,115 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.index.SimilarityIndex;
+import com.gazpacho.recipeservice.model.IngredientEntity;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SimilarityIndexTest {
+
+    private RecipeRepository recipeRepository;
+    private SimilarityIndex similarityIndex;
+
+    @BeforeEach
+    void setUp() {
+        recipeRepository = mock(RecipeRepository.class);
+        similarityIndex = new SimilarityIndex(recipeRepository, 20, 3, 0.2);
+    }
+
+    private static List<IngredientEntity> ingredients(long... ids) {
+        List<IngredientEntity> ingredients = new ArrayList<>();
+        for (long id : ids) {
+            IngredientEntity ingredient = new IngredientEntity();
+            ingredient.setId(id);
+            ingredient.setName("Ingredient " + id);
+            ingredients.add(ingredient);
+        }
+        return ingredients;
+    }
+
+    private static List<Long> ids(List<SimilarityIndex.Match> matches) {
+        return matches.stream().map(SimilarityIndex.Match::recipeId).toList();
+    }
+
+    @Test
+    void testRanksByExactJaccard() {
+        similarityIndex.addRecipe(1L, ingredients(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+        similarityIndex.addRecipe(2L, ingredients(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+        similarityIndex.addRecipe(3L, ingredients(1, 2, 3, 4, 5, 6, 7, 8, 9, 11));
+        similarityIndex.addRecipe(4L, ingredients(20, 21, 22, 23));
+
+        List<SimilarityIndex.Match> similar = similarityIndex.similar(1L, 5);
+        assertEquals(List.of(2L, 3L), ids(similar));
+        assertEquals(1.0, similar.get(0).similarity());
+        assertEquals(9.0 / 11, similar.get(1).similarity(), 1e-9);
+        assertEquals(List.of(2L), ids(similarityIndex.similar(1L, 1)));
+        assertTrue(similarityIndex.similar(4L, 5).isEmpty());
+    }
+
+    @Test
+    void testDropsCandidatesBelowMinSimilarity() {
+        // sharing one of nine ingredients is at most a chance band collision, and never reported
+        similarityIndex.addRecipe(1L, ingredients(1, 2, 3, 4, 5));
+        similarityIndex.addRecipe(2L, ingredients(1, 6, 7, 8, 9));
+
+        assertTrue(similarityIndex.similar(1L, 5).isEmpty());
+    }
+
+    @Test
+    void testUnknownOrEmptyRecipesHaveNoMatches() {
+        similarityIndex.addRecipe(1L, ingredients());
+        similarityIndex.addRecipe(2L, ingredients(1));
+
+        assertTrue(similarityIndex.similar(1L, 5).isEmpty());
+        assertTrue(similarityIndex.similar(3L, 5).isEmpty());
+        assertEquals(List.of(), ids(similarityIndex.similar(2L, 5)));
+    }
+
+    @Test
+    void testUpdateAndRemoveUnlink() {
+        similarityIndex.addRecipe(1L, ingredients(1, 2, 3));
+        similarityIndex.addRecipe(2L, ingredients(1, 2, 3));
+        similarityIndex.addRecipe(2L, ingredients(7, 8, 9));
+        assertTrue(similarityIndex.similar(1L, 5).isEmpty());
+
+        similarityIndex.addRecipe(3L, ingredients(1, 2, 3));
+        similarityIndex.removeRecipe(3L);
+        assertTrue(similarityIndex.similar(1L, 5).isEmpty());
+    }
+
+    @Test
+    void testFindsNearDuplicatesAmongManyRecipes() {
+        // 200 recipes of five ingredients each from disjoint ranges, plus a near copy of recipe 7
+        for (long recipe = 0; recipe < 200; recipe++) {
+            similarityIndex.addRecipe(recipe, ingredients(LongStream.range(recipe * 5, recipe * 5 + 5).toArray()));
+        }
+        similarityIndex.addRecipe(500L, ingredients(35, 36, 37, 38, 1000));
+
+        List<SimilarityIndex.Match> similar = similarityIndex.similar(7L, 5);
+        assertEquals(List.of(500L), ids(similar));
+        assertEquals(4.0 / 6, similar.get(0).similarity(), 1e-9);
+    }
+
+    @Test
+    void testRebuildGroupsRowsByRecipe() {
+        when(recipeRepository.findRecipeIngredients()).thenReturn(Arrays.asList(
+                new Object[] { 1L, 1L, "Tomato" },
+                new Object[] { 1L, 2L, "Basil" },
+                new Object[] { 2L, 1L, "Tomato" },
+                new Object[] { 2L, 2L, "Basil" },
+                new Object[] { 3L, 9L, "Rice" }));
+        similarityIndex.addRecipe(4L, ingredients(1, 2));
+        similarityIndex.rebuild();
+
+        assertEquals(List.of(2L), ids(similarityIndex.similar(1L, 5)));
+    }
+}
@@ -0,0 +1,84 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.index.SuggestIndex;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SuggestIndexTest {
+
+    private RecipeRepository recipeRepository;
+    private SuggestIndex suggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        recipeRepository = mock(RecipeRepository.class);
+        suggestIndex = new SuggestIndex(recipeRepository, 3);
+    }
+
+    @Test
+    void testPrefixMatchesRankByPopularity() {
+        suggestIndex.addRecipe(1L, "Pad Thai", List.of("Peanuts", "Rice Noodles"), List.of("Peanut"));
+        suggestIndex.addRecipe(2L, "Pasta", List.of("Pasta", "Parmesan"), List.of("Milk"));
+        suggestIndex.addRecipe(3L, "Pesto Pasta", List.of("Pasta", "Pine Nuts"), List.of("Tree Nuts"));
+
+        // pasta is used twice; peanuts and parmesan once, shorter first
+        assertEquals(List.of("Pasta", "Peanuts", "Parmesan"), suggestIndex.suggest(SuggestIndex.Kind.INGREDIENT, "P", 3));
+        assertEquals(List.of("Pasta", "Pad Thai"), suggestIndex.suggest(SuggestIndex.Kind.RECIPE, " pa", 5));
+        assertEquals(List.of("Tree Nuts"), suggestIndex.suggest(SuggestIndex.Kind.ALLERGEN, "tr", 3));
+        assertEquals(List.of(), suggestIndex.suggest(SuggestIndex.Kind.RECIPE, "pz", 3));
+    }
+
+    @Test
+    void testSavesAndDeletesUpdateIncrementally() {
+        suggestIndex.addRecipe(1L, "Pad Thai", List.of(), List.of());
+        suggestIndex.addRecipe(2L, "Pasta", List.of(), List.of());
+        suggestIndex.setSaves(1L, 1);
+
+        assertEquals(List.of("Pad Thai", "Pasta"), suggestIndex.suggest(SuggestIndex.Kind.RECIPE, "pa", 3));
+
+        suggestIndex.removeRecipe(1L);
+        assertEquals(List.of("Pasta"), suggestIndex.suggest(SuggestIndex.Kind.RECIPE, "p", 3));
+        suggestIndex.removeRecipe(2L);
+        assertEquals(List.of(), suggestIndex.suggest(SuggestIndex.Kind.RECIPE, "", 3));
+    }
+
+    @Test
+    void testCachedTopListsMatchAFullScan() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String name = "Dish " + Integer.toString(i * 7919 % 1000, 3);
+            names.add(name);
+            suggestIndex.addRecipe((long) i, name, List.of(), List.of());
+            suggestIndex.setSaves((long) i, i % 5);
+        }
+        for (int i = 0; i < 200; i += 3) {
+            suggestIndex.removeRecipe((long) i);
+        }
+
+        for (String prefix : List.of("dish ", "dish 1", "dish 10", "dish 2", "dish 12")) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                if (i % 3 != 0 && names.get(i).toLowerCase().startsWith(prefix)) {
+                    expected.add(names.get(i));
+                }
+            }
+            // weight 1 + saves, then shorter, then alphabetical
+            expected.sort((a, b) -> {
+                int byWeight = Integer.compare(names.indexOf(b) % 5, names.indexOf(a) % 5);
+                if (byWeight != 0) {
+                    return byWeight;
+                }
+                return a.length() != b.length() ? a.length() - b.length() : a.toLowerCase().compareTo(b.toLowerCase());
+            });
+            assertEquals(expected.subList(0, Math.min(3, expected.size())),
+                    suggestIndex.suggest(SuggestIndex.Kind.RECIPE, prefix, 3), prefix);
+        }
+    }
+}
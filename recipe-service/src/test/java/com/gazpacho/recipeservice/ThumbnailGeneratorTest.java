@@ -0,0 +1,77 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.storage.ImageStore;
+import com.gazpacho.recipeservice.storage.ImageVariant;
+import com.gazpacho.recipeservice.storage.ThumbnailGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThumbnailGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    private ImageStore imageStore;
+    private ThumbnailGenerator thumbnailGenerator;
+
+    @BeforeEach
+    void setUp() {
+        imageStore = new ImageStore(dir.toString());
+        thumbnailGenerator = new ThumbnailGenerator(imageStore, 1, 4);
+    }
+
+    @Test
+    void testLargeImageIsResized() throws Exception {
+        String hash = imageStore.put(png(1200, 600));
+
+        Path small = thumbnailGenerator.variant(hash, ImageVariant.SMALL).orElseThrow();
+        BufferedImage thumbnail = ImageIO.read(small.toFile());
+        assertEquals(ImageVariant.SMALL.width(), thumbnail.getWidth());
+        assertEquals(ImageVariant.SMALL.width() / 2, thumbnail.getHeight());
+        // kept in the store for the next request
+        assertEquals(small, imageStore.findVariant(hash, ImageVariant.SMALL).orElseThrow());
+    }
+
+    @Test
+    void testSmallOrUndecodableImageIsServedAsIs() throws Exception {
+        byte[] tiny = png(100, 50);
+        String tinyHash = imageStore.put(tiny);
+        String textHash = imageStore.put("not an image".getBytes());
+
+        assertArrayEquals(tiny, Files.readAllBytes(thumbnailGenerator.variant(tinyHash, ImageVariant.SMALL).orElseThrow()));
+        assertArrayEquals("not an image".getBytes(),
+                Files.readAllBytes(thumbnailGenerator.variant(textHash, ImageVariant.MEDIUM).orElseThrow()));
+    }
+
+    @Test
+    void testMissingOriginalHasNoVariant() {
+        assertTrue(thumbnailGenerator.variant("0".repeat(64), ImageVariant.SMALL).isEmpty());
+    }
+
+    @Test
+    void testScheduleGeneratesInBackground() throws Exception {
+        String hash = imageStore.put(png(1000, 1000));
+
+        thumbnailGenerator.schedule(hash);
+        for (int i = 0; i < 100 && imageStore.findVariant(hash, ImageVariant.MEDIUM).isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(imageStore.findVariant(hash, ImageVariant.SMALL).isPresent());
+        assertTrue(imageStore.findVariant(hash, ImageVariant.MEDIUM).isPresent());
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,76 @@
+package com.gazpacho.recipeservice;
+
+import com.gazpacho.recipeservice.index.TrigramIndex;
+import com.gazpacho.recipeservice.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TrigramIndexTest {
+
+    private RecipeRepository recipeRepository;
+    private TrigramIndex trigramIndex;
+
+    @BeforeEach
+    void setUp() {
+        recipeRepository = mock(RecipeRepository.class);
+        trigramIndex = new TrigramIndex(recipeRepository, "trigram");
+        trigramIndex.addRecipe(1L, "Spaghetti Bolognese");
+        trigramIndex.addRecipe(2L, "Spaghetti Carbonara");
+        trigramIndex.addRecipe(3L, "Tomato Soup");
+    }
+
+    @Test
+    void testSubstringSearchIgnoresCase() {
+        assertEquals(List.of(1L, 2L), trigramIndex.search("SPAGHETTI").toIdList());
+        assertEquals(List.of(2L), trigramIndex.search("carbon").toIdList());
+        assertEquals(List.of(3L), trigramIndex.search("mato").toIdList());
+    }
+
+    @Test
+    void testCandidatesAreVerified() {
+        // every trigram of "tomatom" is in "tomato soup", but the name does not contain it
+        assertTrue(trigramIndex.search("tomatom").isEmpty());
+        assertTrue(trigramIndex.search("spaghetti soup").isEmpty());
+    }
+
+    @Test
+    void testShortQueriesFallBackToNameScan() {
+        assertEquals(List.of(1L, 2L), trigramIndex.search("sp").toIdList());
+        assertEquals(List.of(1L, 2L, 3L), trigramIndex.search("").toIdList());
+    }
+
+    @Test
+    void testRemoveRecipe() {
+        trigramIndex.removeRecipe(1L);
+        assertEquals(List.of(2L), trigramIndex.search("spaghetti").toIdList());
+    }
+
+    @Test
+    void testRebuildFromRepository() {
+        when(recipeRepository.findAllIdsAndNames()).thenReturn(Arrays.asList(
+                new Object[] { 7L, "Gazpacho" },
+                new Object[] { 8L, null }));
+
+        trigramIndex.rebuild();
+
+        assertEquals(List.of(7L), trigramIndex.search("pacho").toIdList());
+        assertTrue(trigramIndex.search("spaghetti").isEmpty());
+    }
+
+    @Test
+    void testDisabledIndexStaysEmpty() {
+        TrigramIndex disabled = new TrigramIndex(recipeRepository, "sql");
+        disabled.addRecipe(1L, "Spaghetti");
+        disabled.rebuild();
+
+        assertFalse(disabled.isEnabled());
+        assertTrue(disabled.search("spa").isEmpty());
+        verify(recipeRepository, never()).findAllIdsAndNames();
+    }
+}
@@ -0,0 +1,98 @@
+package com.gazpacho.sharedlib.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often keys were seen recently.
+ * All counters are halved once the number of increments reaches ten times the
+ * table capacity, so old popularity fades. Not thread-safe; guarded by the cache.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private long[] table = new long[8];
+    private int tableMask = 7;
+    private int sampleSize = 80;
+    private int additions;
+
+    // Grows the table to about one long (16 counters) per resident key. The keys are counted
+    // again into the new table with their old estimates, so growing does not reset the
+    // popularity of what is cached (a plain copy would smear every counter over the table).
+    void ensureCapacity(Collection<?> residentKeys) {
+        int wanted = (int) Math.min(Math.max(residentKeys.size(), 8), 1 << 24);
+        if (table.length >= wanted) {
+            return;
+        }
+        Map<Object, Integer> frequencies = new HashMap<>();
+        for (Object key : residentKeys) {
+            frequencies.put(key, frequency(key));
+        }
+        table = new long[Integer.highestOneBit(wanted - 1) << 1];
+        tableMask = table.length - 1;
+        sampleSize = 10 * table.length;
+        additions = 0;
+        frequencies.forEach((key, frequency) -> {
+            for (int i = 0; i < frequency; i++) {
+                increment(key);
+            }
+        });
+    }
+
+    int frequency(Object key) {
+        int item = spread(key.hashCode());
+        int frequency = 15;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int hash = hash(item, i);
+            frequency = Math.min(frequency, (int) ((table[(hash >>> 4) & tableMask] >>> ((hash & 15) << 2)) & 15L));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int item = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int hash = hash(item, i);
+            int index = (hash >>> 4) & tableMask;
+            int offset = (hash & 15) << 2;
+            if (((table[index] >>> offset) & 15L) != 15L) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    // halves every counter; the odd bits dropped are subtracted from the addition count
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = (additions >>> 1) - (odd >>> 2);
+    }
+
+    private static int hash(int item, int i) {
+        // independent mix per row, so keys colliding in one row rarely collide in the others
+        long hash = (item ^ SEEDS[i]) * 0x9e3779b97f4a7c15L;
+        hash ^= hash >>> 32;
+        hash *= SEEDS[i];
+        hash ^= hash >>> 29;
+        return (int) hash;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
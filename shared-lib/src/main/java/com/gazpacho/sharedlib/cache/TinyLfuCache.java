@@ -0,0 +1,328 @@
+package com.gazpacho.sharedlib.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded in-process cache with W-TinyLFU eviction, limited by total entry weight.
+ * <p>
+ * New entries enter a small LRU admission window (1% of the weight). Entries pushed
+ * out of the window join the probation segment of the main space and, when the cache
+ * is full, compete with the probation LRU entry: whichever the {@link FrequencySketch}
+ * has seen more often stays. Probation entries hit again move to the protected segment
+ * (80% of the main space). One-off lookups therefore cannot flush popular entries.
+ * <p>
+ * Reads reorder the queues, so every operation takes the same monitor.
+ */
+public class TinyLfuCache<K, V> {
+
+    private static final double WINDOW_FRACTION = 0.01;
+    private static final double PROTECTED_FRACTION = 0.80;
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final ToIntFunction<? super V> weigher;
+
+    private final Map<K, Node<K, V>> data = new HashMap<>();
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final Queue<K, V> window = new Queue<>();
+    private final Queue<K, V> probation = new Queue<>();
+    private final Queue<K, V> protectedQueue = new Queue<>();
+
+    private long weightedSize;
+    private long windowWeight;
+    private long protectedWeight;
+
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private long evictionCount;
+    private long evictionWeight;
+
+    public TinyLfuCache(long maximumWeight, ToIntFunction<? super V> weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumWeight must be positive");
+        }
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_FRACTION));
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_FRACTION);
+        this.weigher = weigher;
+    }
+
+    /** Returns the cached value or null, counting a hit or a miss. */
+    public synchronized V get(K key) {
+        return get(key, value -> true);
+    }
+
+    // As get(key), but a value failing the check (e.g. expired) is dropped and counted as a miss.
+    public synchronized V get(K key, Predicate<? super V> isFresh) {
+        sketch.increment(key);
+        Node<K, V> node = data.get(key);
+        if (node != null && !isFresh.test(node.value)) {
+            remove(node);
+            node = null;
+        }
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        onHit(node);
+        return node.value;
+    }
+
+    // Cached values for the keys that are present, in key order; absent keys count as misses.
+    public synchronized Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> found = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                found.put(key, value);
+            }
+        }
+        return found;
+    }
+
+    // Values heavier than the whole cache are not stored.
+    public synchronized void put(K key, V value) {
+        int weight = weigher.applyAsInt(value);
+        Node<K, V> node = data.get(key);
+        if (weight > maximumWeight) {
+            if (node != null) {
+                remove(node);
+            }
+            return;
+        }
+        putCount++;
+        sketch.increment(key);
+        if (node != null) {
+            int delta = weight - node.weight;
+            node.value = value;
+            node.weight = weight;
+            weightedSize += delta;
+            if (node.queue == WINDOW) {
+                windowWeight += delta;
+            } else if (node.queue == PROTECTED) {
+                protectedWeight += delta;
+            }
+            onHit(node);
+        } else {
+            node = new Node<>(key, value, weight);
+            data.put(key, node);
+            window.addLast(node);
+            windowWeight += weight;
+            weightedSize += weight;
+            sketch.ensureCapacity(data.keySet());
+        }
+        evict();
+    }
+
+    public synchronized void invalidate(K key) {
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            remove(node);
+        }
+    }
+
+    public synchronized void invalidateAll(Collection<? extends K> keys) {
+        keys.forEach(this::invalidate);
+    }
+
+    // Removes every entry the predicate accepts; walks all entries, so meant for rare writes.
+    public synchronized void invalidateIf(BiPredicate<? super K, ? super V> predicate) {
+        List<Node<K, V>> matching = new ArrayList<>();
+        for (Node<K, V> node : data.values()) {
+            if (predicate.test(node.key, node.value)) {
+                matching.add(node);
+            }
+        }
+        matching.forEach(this::remove);
+    }
+
+    public synchronized void invalidateAll() {
+        data.clear();
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+        weightedSize = 0;
+        windowWeight = 0;
+        protectedWeight = 0;
+    }
+
+    public synchronized long estimatedSize() {
+        return data.size();
+    }
+
+    public synchronized long weightedSize() {
+        return weightedSize;
+    }
+
+    public long maximumWeight() {
+        return maximumWeight;
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    public synchronized long putCount() {
+        return putCount;
+    }
+
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long evictionWeight() {
+        return evictionWeight;
+    }
+
+    private void onHit(Node<K, V> node) {
+        if (node.queue == WINDOW) {
+            window.moveToBack(node);
+        } else if (node.queue == PROTECTED) {
+            protectedQueue.moveToBack(node);
+        } else {
+            // a second hit in probation earns a protected slot; protected overflow goes back to probation
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedQueue.addLast(node);
+            protectedWeight += node.weight;
+            while (protectedWeight > protectedMaximum && protectedQueue.first != node) {
+                Node<K, V> demoted = protectedQueue.first;
+                protectedQueue.remove(demoted);
+                protectedWeight -= demoted.weight;
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+            }
+        }
+    }
+
+    private void evict() {
+        // window overflow: its LRU entries become candidates at the back of probation
+        Node<K, V> candidate = null;
+        while (windowWeight > windowMaximum && window.first != null) {
+            Node<K, V> node = window.first;
+            window.remove(node);
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            if (candidate == null) {
+                candidate = node;
+            }
+        }
+        while (weightedSize > maximumWeight) {
+            Node<K, V> victim = probation.first;
+            if (candidate == null || victim == candidate) {
+                // nothing to compare: drop the least recently used entry
+                Node<K, V> lru = victim != null ? victim
+                        : protectedQueue.first != null ? protectedQueue.first : window.first;
+                if (lru == candidate) {
+                    candidate = candidate.next;
+                }
+                evictNode(lru);
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evictNode(victim);
+            } else {
+                Node<K, V> next = candidate.next;
+                evictNode(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    private void evictNode(Node<K, V> node) {
+        evictionCount++;
+        evictionWeight += node.weight;
+        remove(node);
+    }
+
+    private void remove(Node<K, V> node) {
+        data.remove(node.key);
+        weightedSize -= node.weight;
+        if (node.queue == WINDOW) {
+            window.remove(node);
+            windowWeight -= node.weight;
+        } else if (node.queue == PROTECTED) {
+            protectedQueue.remove(node);
+            protectedWeight -= node.weight;
+        } else {
+            probation.remove(node);
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        V value;
+        int weight;
+        byte queue = WINDOW;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    // intrusive LRU list: first is least recently used
+    private static final class Queue<K, V> {
+        Node<K, V> first;
+        Node<K, V> last;
+
+        void addLast(Node<K, V> node) {
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            first = null;
+            last = null;
+        }
+    }
+}
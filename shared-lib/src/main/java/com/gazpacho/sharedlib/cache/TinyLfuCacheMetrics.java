@@ -0,0 +1,64 @@
+package com.gazpacho.sharedlib.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+// Standard Micrometer cache meters for a TinyLfuCache, plus its weight and evicted weight.
+public class TinyLfuCacheMetrics extends CacheMeterBinder<TinyLfuCache<?, ?>> {
+
+    public TinyLfuCacheMetrics(TinyLfuCache<?, ?> cache, String cacheName, Iterable<Tag> tags) {
+        super(cache, cacheName, tags);
+    }
+
+    @Override
+    protected Long size() {
+        TinyLfuCache<?, ?> cache = getCache();
+        return cache == null ? null : cache.estimatedSize();
+    }
+
+    @Override
+    protected long hitCount() {
+        TinyLfuCache<?, ?> cache = getCache();
+        return cache == null ? 0 : cache.hitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        TinyLfuCache<?, ?> cache = getCache();
+        return cache == null ? null : cache.missCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        TinyLfuCache<?, ?> cache = getCache();
+        return cache == null ? null : cache.evictionCount();
+    }
+
+    @Override
+    protected long putCount() {
+        TinyLfuCache<?, ?> cache = getCache();
+        return cache == null ? 0 : cache.putCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        TinyLfuCache<?, ?> cache = getCache();
+        Gauge.builder("cache.weight", cache, TinyLfuCache::weightedSize)
+                .tags(getTagsWithCacheName())
+                .description("Estimated bytes held by the cache")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("cache.max.weight", cache, TinyLfuCache::maximumWeight)
+                .tags(getTagsWithCacheName())
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("cache.eviction.weight", cache, TinyLfuCache::evictionWeight)
+                .tags(getTagsWithCacheName())
+                .description("Estimated bytes evicted from the cache")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,10 @@
+package com.gazpacho.sharedlib.dto;
+
+// One relevance-ranked search result or recommendation; higher scores rank first. Returned by
+// recipe-service and passed on by user-service.
+public record RankedRecipeDTO(Long id, String name, String thumbnail, double score) {
+
+    public RankedRecipeDTO(RecipeSummaryDTO recipe, double score) {
+        this(recipe.getId(), recipe.getName(), recipe.getThumbnail(), score);
+    }
+}
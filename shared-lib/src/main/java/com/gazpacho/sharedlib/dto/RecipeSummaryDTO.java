@@ -0,0 +1,16 @@
+package com.gazpacho.sharedlib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// List-view shape of a recipe (search results); RecipeDTO stays the detail shape.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipeSummaryDTO {
+    private Long id;
+    private String name;
+    // URL of the image to show in lists, null when the recipe has none
+    private String thumbnail;
+}
@@ -0,0 +1,9 @@
+package com.gazpacho.sharedlib.dto;
+
+import java.util.List;
+import java.util.Map;
+
+// Taste profile sent by user-service to recipe-service: ingredient name -> weight, the recipes
+// to leave out (already saved), and how many recommendations to return.
+public record RecommendationRequestDTO(Map<String, Double> profile, List<Long> exclude, Integer limit) {
+}
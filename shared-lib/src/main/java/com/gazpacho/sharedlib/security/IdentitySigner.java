@@ -0,0 +1,94 @@
+package com.gazpacho.sharedlib.security;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.OptionalLong;
+
+/**
+ * The identity the api-gateway forwards after verifying a request's access token: the user id
+ * in {@link #USER_ID} and, in {@link #SIGNATURE}, "expiry.mac" where mac is an HMAC-SHA256 over
+ * "userId.expiry" with a secret shared by the gateway and the services. A service holding the
+ * secret can trust the id without parsing the JWT or loading the user, while a caller going
+ * around the gateway cannot forge one. Signatures expire after maxAge, limiting replays.
+ * <p>
+ * A blank secret disables signing and verification: the gateway then only strips the headers.
+ */
+public class IdentitySigner {
+
+    public static final String USER_ID = "X-User-Id";
+    public static final String SIGNATURE = "X-User-Signature";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    public IdentitySigner(String secret, Duration maxAge, Clock clock) {
+        this.key = secret == null || secret.isBlank()
+                ? null
+                : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    public IdentitySigner(String secret, Duration maxAge) {
+        this(secret, maxAge, Clock.systemUTC());
+    }
+
+    public boolean isEnabled() {
+        return key != null;
+    }
+
+    // value of the SIGNATURE header for the user
+    public String sign(long userId) {
+        if (key == null) {
+            throw new IllegalStateException("identity signing is disabled");
+        }
+        long expiry = clock.instant().plus(maxAge).getEpochSecond();
+        return expiry + "." + mac(userId + "." + expiry);
+    }
+
+    // The user id when both headers are present, the signature matches and has not expired.
+    public OptionalLong verify(String userId, String signature) {
+        if (key == null || userId == null || signature == null) {
+            return OptionalLong.empty();
+        }
+        int dot = signature.indexOf('.');
+        if (dot < 0) {
+            return OptionalLong.empty();
+        }
+        long id;
+        long expiry;
+        try {
+            id = Long.parseLong(userId);
+            expiry = Long.parseLong(signature.substring(0, dot));
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+        if (expiry < clock.instant().getEpochSecond()) {
+            return OptionalLong.empty();
+        }
+        byte[] expected = mac(id + "." + expiry).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = signature.substring(dot + 1).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual) ? OptionalLong.of(id) : OptionalLong.empty();
+    }
+
+    // Mac instances are not thread-safe; one per call is cheap next to a JWT parse.
+    private String mac(String message) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            byte[] digest = mac.doFinal(message.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
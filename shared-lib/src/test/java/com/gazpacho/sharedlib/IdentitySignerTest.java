@@ -0,0 +1,54 @@
+package com.gazpacho.sharedlib;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.gazpacho.sharedlib.security.IdentitySigner;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.OptionalLong;
+import org.junit.jupiter.api.Test;
+
+class IdentitySignerTest {
+
+  private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+  private static IdentitySigner signer(String secret, Instant now) {
+    return new IdentitySigner(secret, Duration.ofSeconds(60), Clock.fixed(now, ZoneOffset.UTC));
+  }
+
+  @Test
+  void testSignedIdVerifiesUntilExpiry() {
+    String signature = signer("shared-secret", NOW).sign(42L);
+
+    assertEquals(OptionalLong.of(42L), signer("shared-secret", NOW).verify("42", signature));
+    assertEquals(OptionalLong.of(42L), signer("shared-secret", NOW.plusSeconds(60)).verify("42", signature));
+    assertTrue(signer("shared-secret", NOW.plusSeconds(61)).verify("42", signature).isEmpty());
+  }
+
+  @Test
+  void testRejectsForgeries() {
+    IdentitySigner signer = signer("shared-secret", NOW);
+    String signature = signer.sign(42L);
+    String expiry = signature.substring(0, signature.indexOf('.'));
+
+    // another user, another secret, a pushed-out expiry, or malformed values
+    assertTrue(signer.verify("43", signature).isEmpty());
+    assertTrue(signer("other-secret", NOW).verify("42", signature).isEmpty());
+    assertTrue(signer.verify("42", (Long.parseLong(expiry) + 3600) + signature.substring(expiry.length())).isEmpty());
+    assertTrue(signer.verify("42", "no-dot").isEmpty());
+    assertTrue(signer.verify("abc", signature).isEmpty());
+    assertTrue(signer.verify(null, signature).isEmpty());
+    assertTrue(signer.verify("42", null).isEmpty());
+  }
+
+  @Test
+  void testBlankSecretDisables() {
+    IdentitySigner disabled = signer(" ", NOW);
+
+    assertFalse(disabled.isEnabled());
+    assertThrows(IllegalStateException.class, () -> disabled.sign(42L));
+    assertTrue(disabled.verify("42", signer("shared-secret", NOW).sign(42L)).isEmpty());
+  }
+}
@@ -0,0 +1,84 @@
+package com.gazpacho.sharedlib;
+
+import com.gazpacho.sharedlib.cache.TinyLfuCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TinyLfuCacheTest {
+
+    @Test
+    void testGetPutAndStats() {
+        TinyLfuCache<Long, String> cache = new TinyLfuCache<>(1000, String::length);
+        cache.put(1L, "soup");
+
+        assertEquals("soup", cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(4, cache.weightedSize());
+    }
+
+    @Test
+    void testGetAllReturnsOnlyCachedKeysInOrder() {
+        TinyLfuCache<Long, String> cache = new TinyLfuCache<>(1000, String::length);
+        cache.put(3L, "pie");
+        cache.put(1L, "soup");
+
+        Map<Long, String> found = cache.getAll(List.of(1L, 2L, 3L));
+        assertEquals(List.of(1L, 3L), List.copyOf(found.keySet()));
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void testWeightBoundIsKept() {
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(100, String::length);
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, "0123456789");
+        }
+        assertTrue(cache.weightedSize() <= 100);
+        assertEquals(40, cache.evictionCount());
+        // a value heavier than the whole cache is not stored
+        cache.put(99, "x".repeat(101));
+        assertNull(cache.get(99));
+    }
+
+    @Test
+    void testFrequentEntriesSurviveAScan() {
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(100, v -> 1);
+        for (int key = 0; key < 50; key++) {
+            cache.put(key, "hot");
+            for (int hit = 0; hit < 5; hit++) {
+                cache.get(key);
+            }
+        }
+        // a long run of one-off keys, as from a crawler walking every recipe
+        for (int key = 1000; key < 2000; key++) {
+            cache.put(key, "cold");
+        }
+        int hotLeft = 0;
+        for (int key = 0; key < 50; key++) {
+            if (cache.get(key) != null) {
+                hotLeft++;
+            }
+        }
+        assertTrue(hotLeft >= 45, "hot entries kept: " + hotLeft);
+    }
+
+    @Test
+    void testInvalidateAndReplace() {
+        TinyLfuCache<Long, String> cache = new TinyLfuCache<>(1000, String::length);
+        cache.put(1L, "soup");
+        cache.put(1L, "tomato soup");
+        assertEquals("tomato soup", cache.get(1L));
+        assertEquals(11, cache.weightedSize());
+
+        cache.invalidateAll(List.of(1L, 2L));
+        assertNull(cache.get(1L));
+        assertEquals(0, cache.weightedSize());
+        assertEquals(0, cache.estimatedSize());
+    }
+}
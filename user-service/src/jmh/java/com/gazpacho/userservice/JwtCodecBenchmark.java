@@ -0,0 +1,105 @@
+package com.gazpacho.userservice;
+
+import com.gazpacho.userservice.model.UserEntity;
+import com.gazpacho.userservice.security.TokenGenerator;
+import com.gazpacho.userservice.security.TokenPrincipal;
+import com.gazpacho.userservice.security.TokenUtils.TokenType;
+import com.gazpacho.userservice.security.TokenValidator;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.security.Key;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Issuing and verifying an access token with jjwt's generic builder and a prebuilt parser,
+ * against TokenGenerator and TokenValidator (cache off, so every call decodes). Run with the
+ * profile's default -prof gc to compare gc.alloc.rate.norm (bytes/op) alongside ops/s. On few
+ * cores the four threads compete with the JIT, so scores keep climbing for about 20s, hence
+ * the long warmup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(4)
+@Fork(1)
+public class JwtCodecBenchmark {
+
+  private static final String ACCESS_SECRET = "benchmarkaccesssecretbenchmark1234";
+  private static final String REFRESH_SECRET = "benchmarkrefreshsecretbenchmark123";
+  private static final long EXPIRATION_MILLIS = 3_600_000L;
+
+  private Key accessKey;
+  private JwtParser parser;
+  private TokenGenerator generator;
+  private TokenValidator validator;
+  private UserEntity user;
+  private String token;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    generator = new TokenGenerator();
+    ReflectionTestUtils.setField(generator, "accessSecret", ACCESS_SECRET);
+    ReflectionTestUtils.setField(generator, "accessExpTimeMillis", EXPIRATION_MILLIS);
+    ReflectionTestUtils.setField(generator, "refreshSecret", REFRESH_SECRET);
+    ReflectionTestUtils.setField(generator, "refreshExpTimeMillis", EXPIRATION_MILLIS);
+    generator.init();
+
+    validator = new TokenValidator();
+    ReflectionTestUtils.setField(validator, "accessSecret", ACCESS_SECRET);
+    ReflectionTestUtils.setField(validator, "refreshSecret", REFRESH_SECRET);
+    ReflectionTestUtils.setField(validator, "cacheMaxEntries", 0);
+    validator.init();
+
+    accessKey = Keys.hmacShaKeyFor(ACCESS_SECRET.getBytes());
+    parser = Jwts.parserBuilder().setSigningKey(accessKey).build();
+    user = new UserEntity();
+    user.setId(42L);
+    token = generator.generateAccessToken(user);
+  }
+
+  @Benchmark
+  public String encodeJjwt() {
+    return Jwts.builder()
+        .setSubject(user.getId().toString())
+        .claim("type", "access")
+        .setIssuedAt(new Date())
+        .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_MILLIS))
+        .signWith(accessKey)
+        .compact();
+  }
+
+  @Benchmark
+  public String encodeCodec() {
+    return generator.generateAccessToken(user);
+  }
+
+  @Benchmark
+  public Long decodeJjwt() {
+    Claims claims = parser.parseClaimsJws(token).getBody();
+    return "access".equals(claims.get("type", String.class)) ? Long.valueOf(claims.getSubject()) : null;
+  }
+
+  @Benchmark
+  public Optional<TokenPrincipal> decodeCodec() {
+    return validator.verify(token, TokenType.ACCESS);
+  }
+}
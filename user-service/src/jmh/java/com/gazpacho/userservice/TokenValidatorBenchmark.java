@@ -0,0 +1,95 @@
+package com.gazpacho.userservice;
+
+import com.gazpacho.userservice.model.UserEntity;
+import com.gazpacho.userservice.security.TokenGenerator;
+import com.gazpacho.userservice.security.TokenPrincipal;
+import com.gazpacho.userservice.security.TokenUtils.TokenType;
+import com.gazpacho.userservice.security.TokenValidator;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.security.Key;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Validating an access token and reading its user id, as fetchUserByToken does:
+ * the previous path (a parser built per call, the token parsed twice), verify with every
+ * call a cache miss, and verify repeating a cached token. The previous path builds a parser per
+ * call and keeps getting faster for about 20s, hence the long warmup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class TokenValidatorBenchmark {
+
+  private static final String ACCESS_SECRET = "benchmarkaccesssecretbenchmark1234";
+  private static final String REFRESH_SECRET = "benchmarkrefreshsecretbenchmark123";
+
+  private Key accessKey;
+  private TokenValidator validator;
+  private TokenValidator uncached;
+  private String token;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    TokenGenerator generator = new TokenGenerator();
+    ReflectionTestUtils.setField(generator, "accessSecret", ACCESS_SECRET);
+    ReflectionTestUtils.setField(generator, "accessExpTimeMillis", 3_600_000L);
+    ReflectionTestUtils.setField(generator, "refreshSecret", REFRESH_SECRET);
+    ReflectionTestUtils.setField(generator, "refreshExpTimeMillis", 3_600_000L);
+    generator.init();
+    UserEntity user = new UserEntity();
+    user.setId(42L);
+    token = generator.generateAccessToken(user);
+
+    accessKey = Keys.hmacShaKeyFor(ACCESS_SECRET.getBytes());
+    validator = validator(10_000);
+    // cache off, so every call parses
+    uncached = validator(0);
+  }
+
+  private static TokenValidator validator(int cacheMaxEntries) {
+    TokenValidator validator = new TokenValidator();
+    ReflectionTestUtils.setField(validator, "accessSecret", ACCESS_SECRET);
+    ReflectionTestUtils.setField(validator, "refreshSecret", REFRESH_SECRET);
+    ReflectionTestUtils.setField(validator, "cacheMaxEntries", cacheMaxEntries);
+    validator.init();
+    return validator;
+  }
+
+  @Benchmark
+  public Long previousValidateThenGetUserId() {
+    Claims claims = Jwts.parserBuilder().setSigningKey(accessKey).build().parseClaimsJws(token).getBody();
+    if (!"access".equalsIgnoreCase(claims.get("type", String.class))) {
+      return null;
+    }
+    claims = Jwts.parserBuilder().setSigningKey(accessKey).build().parseClaimsJws(token).getBody();
+    return Long.valueOf(claims.getSubject());
+  }
+
+  @Benchmark
+  public Optional<TokenPrincipal> verifyCacheMiss() {
+    return uncached.verify(token, TokenType.ACCESS);
+  }
+
+  @Benchmark
+  public Optional<TokenPrincipal> verifyCacheHit() {
+    return validator.verify(token, TokenType.ACCESS);
+  }
+}
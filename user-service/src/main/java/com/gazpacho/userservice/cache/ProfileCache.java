@@ -0,0 +1,50 @@
+package com.gazpacho.userservice.cache;
+
+import com.gazpacho.sharedlib.cache.TinyLfuCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Taste profiles by user id, bounded by an estimate of their heap size
+// (users.recommendations.profile-cache.max-weight). Saving or unsaving a recipe invalidates the
+// user's profile; a profile is also only used while it was built from the user's current saves,
+// so one computed concurrently with a save cannot outlive it.
+@Component
+public class ProfileCache {
+
+  // ingredient name -> weight, built from the saved recipes given
+  public record Profile(Set<Long> recipeIds, Map<String, Double> weights) {
+  }
+
+  private final TinyLfuCache<Long, Profile> cache;
+
+  public ProfileCache(@Value("${users.recommendations.profile-cache.max-weight:8MB}") DataSize maxWeight) {
+    this.cache = new TinyLfuCache<>(maxWeight.toBytes(), ProfileCache::weigh);
+  }
+
+  public Optional<Profile> get(Long userId, List<Long> savedRecipeIds) {
+    return Optional.ofNullable(cache.get(userId, profile -> profile.recipeIds().equals(Set.copyOf(savedRecipeIds))));
+  }
+
+  public void put(Long userId, Profile profile) {
+    cache.put(userId, profile);
+  }
+
+  public void invalidate(Long userId) {
+    cache.invalidate(userId);
+  }
+
+  // Rough heap footprint in bytes: map entries with their names, plus the boxed ids.
+  static int weigh(Profile profile) {
+    long bytes = 64 + 24L * profile.recipeIds().size();
+    for (String name : profile.weights().keySet()) {
+      bytes += 80 + 2L * name.length();
+    }
+    return (int) Math.min(bytes, Integer.MAX_VALUE);
+  }
+}
@@ -0,0 +1,114 @@
+package com.gazpacho.userservice.client;
+
+import com.gazpacho.sharedlib.dto.RankedRecipeDTO;
+import com.gazpacho.sharedlib.dto.RecipeDTO;
+import com.gazpacho.sharedlib.dto.RecommendationRequestDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Calls to recipe-service. Save counts are reported so its relevance ranking can weigh
+// popularity; best effort: the saves themselves live here, and each report carries the full
+// count, so a missed one only skews ranking until the recipe is next saved or unsaved.
+// Reads (recipes, recommendations) throw RestClientException when recipe-service is unavailable.
+// Every call gives up after recipes.service.connect-timeout / read-timeout.
+@Component
+public class RecipeServiceClient {
+
+  private final RestClient restClient;
+  private final RestClient managementClient;
+  private final int batchSize;
+  private final ThreadPoolExecutor reporter;
+
+  public RecipeServiceClient(RestClient.Builder builder,
+      @Value("${recipes.service.url:http://localhost:8082}") String baseUrl,
+      @Value("${recipes.service.management-url:http://localhost:9082}") String managementUrl,
+      @Value("${recipes.service.batch-size:200}") int batchSize,
+      @Value("${recipes.service.connect-timeout:2s}") Duration connectTimeout,
+      @Value("${recipes.service.read-timeout:5s}") Duration readTimeout,
+      @Value("${recipes.service.report-queue-size:1000}") int reportQueueSize) {
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    requestFactory.setConnectTimeout(connectTimeout);
+    requestFactory.setReadTimeout(readTimeout);
+    this.restClient = builder.clone().baseUrl(baseUrl).requestFactory(requestFactory).build();
+    this.managementClient = builder.clone().baseUrl(managementUrl).requestFactory(requestFactory).build();
+    this.batchSize = batchSize;
+    // One worker, so reports go out in the order they were made. When recipe-service is slow
+    // and the queue fills, the oldest report is dropped: a later one carries a newer count.
+    this.reporter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(reportQueueSize),
+        runnable -> {
+          Thread thread = new Thread(runnable, "recipe-save-counts");
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.DiscardOldestPolicy());
+  }
+
+  // Queues a report of the recipe's save count, read just before it is sent, and returns at
+  // once. Goes to recipe-service's saves actuator endpoint, on its localhost-only management port.
+  public void reportSaveCount(Long recipeId, LongSupplier count) {
+    reporter.execute(() -> send(managementClient.post().uri("/actuator/saves/{id}", recipeId)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(Map.of("count", count.getAsLong()))));
+  }
+
+  // The recipes that still exist, via GET /recipes/batch; one request per batch-size ids
+  // (recipe-service's recipes.batch.max-size).
+  public List<RecipeDTO> getRecipes(List<Long> recipeIds) {
+    List<RecipeDTO> recipes = new ArrayList<>(recipeIds.size());
+    for (int from = 0; from < recipeIds.size(); from += batchSize) {
+      List<Long> batch = recipeIds.subList(from, Math.min(from + batchSize, recipeIds.size()));
+      List<RecipeDTO> found = restClient.get()
+          .uri(uri -> uri.path("/recipes/batch").queryParam("ids", batch).build())
+          .retrieve()
+          .body(new ParameterizedTypeReference<List<RecipeDTO>>() {});
+      if (found != null) {
+        recipes.addAll(found);
+      }
+    }
+    return recipes;
+  }
+
+  public List<RankedRecipeDTO> recommend(RecommendationRequestDTO request) {
+    try {
+      List<RankedRecipeDTO> recommendations = restClient.post()
+          .uri("/recipes/recommendations")
+          .body(request)
+          .retrieve()
+          .body(new ParameterizedTypeReference<List<RankedRecipeDTO>>() {});
+      return recommendations == null ? List.of() : recommendations;
+    } catch (HttpClientErrorException.BadRequest e) {
+      // limit out of range
+      throw new IllegalArgumentException(e.getResponseBodyAsString());
+    }
+  }
+
+  private static void send(RestClient.RequestHeadersSpec<?> request) {
+    try {
+      request.retrieve().toBodilessEntity();
+    } catch (RestClientException e) {
+      // recipe-service down or the recipe gone; nothing to undo
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    reporter.shutdownNow();
+  }
+}
@@ -1,15 +1,20 @@
 package com.gazpacho.userservice.controller;
 
 import com.gazpacho.sharedlib.dto.*;
+import com.gazpacho.userservice.exception.TooManyLoginAttemptsException;
 import com.gazpacho.userservice.model.UserEntity;
+import com.gazpacho.userservice.security.IdentityFilter;
 import com.gazpacho.userservice.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.RestClientException;
 
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/users")
@@ -39,13 +44,28 @@ public class UserController {
    */
   @PostMapping("/register")
   public ResponseEntity<PublicUserDTO> registerUser(@Valid @RequestBody LoginDTO dto) {
-    PublicUserDTO newUser = userService.registerUser(dto);
+    PublicUserDTO newUser;
+    try {
+      newUser = userService.registerUser(dto);
+    } catch (RejectedExecutionException e) {
+      return passwordHashingBusy();
+    }
     return ResponseEntity.status(HttpStatus.CREATED).body(newUser);
   }
 
   @PostMapping("/login")
-  public ResponseEntity<TokenResponseDTO> loginUser(@Valid @RequestBody LoginDTO dto) {
-    Optional<TokenResponseDTO> token = userService.loginUser(dto);
+  public ResponseEntity<TokenResponseDTO> loginUser(@Valid @RequestBody LoginDTO dto, HttpServletRequest request) {
+    Optional<TokenResponseDTO> token;
+    try {
+      // the client's address, also behind the api-gateway (server.forward-headers-strategy)
+      token = userService.loginUser(dto, request.getRemoteAddr());
+    } catch (TooManyLoginAttemptsException e) {
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+          .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+          .build();
+    } catch (RejectedExecutionException e) {
+      return passwordHashingBusy();
+    }
 
     return token
         .map(t -> ResponseEntity.ok(t))
@@ -63,9 +83,13 @@ public class UserController {
 
   @GetMapping("")
   public ResponseEntity<PublicUserDTO> fetchUser(
-          @RequestHeader(name = HttpHeaders.AUTHORIZATION) String authHeader
+          @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authHeader,
+          @RequestAttribute(name = IdentityFilter.USER_ID, required = false) Long verifiedUserId
   ) {
-    Optional<PublicUserDTO> user = userService.fetchUser(authHeader);
+    if (verifiedUserId == null && authHeader == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    Optional<PublicUserDTO> user = verifiedUserId != null
+            ? userService.fetchUser(verifiedUserId)
+            : userService.fetchUser(authHeader);
     return user
             .map(ResponseEntity::ok)
             .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
@@ -74,12 +98,13 @@ public class UserController {
   //endpoint for saving a recipe to a user
   @PostMapping("/recipes/{recipeId}")
   public ResponseEntity<?> saveRecipe(
-          @RequestHeader(name = HttpHeaders.AUTHORIZATION) String authHeader,
+          @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authHeader,
+          @RequestAttribute(name = IdentityFilter.USER_ID, required = false) Long verifiedUserId,
           @PathVariable("recipeId") Long recipeId) {
-    Optional<UserEntity> userOptional = userService.fetchUserByToken(authHeader);
-    if (userOptional.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    Optional<Long> userId = authenticate(verifiedUserId, authHeader);
+    if (userId.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     try {
-      userService.saveRecipeForUser(userOptional.get().getId(), recipeId);
+      userService.saveRecipeForUser(userId.get(), recipeId);
       return ResponseEntity.ok("Recipe saved successfully");
     } catch (RuntimeException e) {
       return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
@@ -88,15 +113,47 @@ public class UserController {
 
   @DeleteMapping("/recipes/{recipeId}")
   public ResponseEntity<?> deleteSavedRecipe(
-          @RequestHeader(name = HttpHeaders.AUTHORIZATION) String authHeader,
+          @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authHeader,
+          @RequestAttribute(name = IdentityFilter.USER_ID, required = false) Long verifiedUserId,
           @PathVariable("recipeId") Long recipeId) {
-    Optional<UserEntity> userOptional = userService.fetchUserByToken(authHeader);
-    if (userOptional.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    Optional<Long> userId = authenticate(verifiedUserId, authHeader);
+    if (userId.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     try {
-      userService.removeSavedRecipe(userOptional.get().getId(), recipeId);
+      userService.removeSavedRecipe(userId.get(), recipeId);
       return ResponseEntity.ok("Recipe saved successfully");
     } catch (RuntimeException e) {
       return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
     }
   }
+
+  // Personalised recommendations from the user's saved recipes, best first with their scores.
+  @GetMapping("/recommendations")
+  public ResponseEntity<?> recommendRecipes(
+          @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authHeader,
+          @RequestAttribute(name = IdentityFilter.USER_ID, required = false) Long verifiedUserId,
+          @RequestParam(name = "limit", required = false) Integer limit) {
+    Optional<Long> userId = authenticate(verifiedUserId, authHeader);
+    if (userId.isEmpty()) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    try {
+      return ResponseEntity.ok(userService.recommendRecipes(userId.get(), limit));
+    } catch (IllegalArgumentException e) {
+      // limit outside recipe-service's 1..recipes.search.max-limit
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (RestClientException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+  }
+
+  // every password hashing worker is busy and its queue is full (see PasswordHasher)
+  private static <T> ResponseEntity<T> passwordHashingBusy() {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+  }
+
+  // The caller's id: as verified by the api-gateway (see IdentityFilter) when it forwarded one,
+  // otherwise from the access token, which costs a JWT parse and a user lookup.
+  private Optional<Long> authenticate(Long verifiedUserId, String authHeader) {
+    if (verifiedUserId != null) return Optional.of(verifiedUserId);
+    if (authHeader == null) return Optional.empty();
+    return userService.fetchUserByToken(authHeader).map(UserEntity::getId);
+  }
 }
@@ -0,0 +1,15 @@
+package com.gazpacho.userservice.exception;
+
+import java.time.Duration;
+import lombok.Getter;
+
+// Thrown for a login turned away by LoginThrottle; retryAfter is when trying again may succeed.
+@Getter
+public class TooManyLoginAttemptsException extends RuntimeException {
+  private final Duration retryAfter;
+
+  public TooManyLoginAttemptsException(Duration retryAfter) {
+    super("Too many failed login attempts");
+    this.retryAfter = retryAfter;
+  }
+}
@@ -2,6 +2,8 @@ package com.gazpacho.userservice.repository;
 
 import com.gazpacho.userservice.model.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,4 +13,8 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
   Optional<UserEntity> findByEmail(String email);
 
   boolean existsByEmail(String email);
+
+  // users that saved the recipe, i.e. its rows in user_saved_recipes
+  @Query("select count(u) from UserEntity u where :recipeId member of u.savedRecipeIds")
+  long countSavesOf(@Param("recipeId") Long recipeId);
 }
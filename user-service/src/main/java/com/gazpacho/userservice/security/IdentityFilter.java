@@ -0,0 +1,41 @@
+package com.gazpacho.userservice.security;
+
+import com.gazpacho.sharedlib.security.IdentitySigner;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+// Accepts the user id the api-gateway forwards after verifying the access token: when the
+// X-User-Id signature checks out, the id is put in the USER_ID request attribute, and
+// controllers skip the JWT parse and the user lookup. Unsigned or forged headers are ignored.
+@Component
+public class IdentityFilter extends OncePerRequestFilter {
+
+  public static final String USER_ID = "gazpacho.userId";
+
+  private final IdentitySigner signer;
+
+  public IdentityFilter(@Value("${identity.secret:}") String secret,
+      @Value("${identity.max-age:60s}") Duration maxAge) {
+    this.signer = new IdentitySigner(secret, maxAge);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    OptionalLong userId = signer.verify(request.getHeader(IdentitySigner.USER_ID),
+        request.getHeader(IdentitySigner.SIGNATURE));
+    if (userId.isPresent()) {
+      request.setAttribute(USER_ID, userId.getAsLong());
+    }
+    chain.doFilter(request, response);
+  }
+}
@@ -0,0 +1,371 @@
+package com.gazpacho.userservice.security;
+
+import com.gazpacho.userservice.security.TokenUtils.TokenType;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.Arrays;
+import java.util.Base64;
+import javax.crypto.Mac;
+
+/**
+ * Encodes and decodes our HMAC-signed JWTs without jjwt's generic claim maps, Jackson trees and
+ * Dates. The tokens carry exactly sub, type, iat and exp, and the output is byte for byte what
+ * jjwt writes for those claims, so tokens issued either way verify either way.
+ * <p>
+ * Each thread keeps its own Mac and scratch buffers. The header segment is fixed per key and
+ * precomputed, the payload JSON is written straight into bytes, and Base64URL is encoded and
+ * decoded in place; a token costs little more than its final String.
+ */
+final class JwtCodec {
+
+  /** The claims of a correctly signed token. */
+  record Claims(long subject, TokenType type, long expiresAt) {
+  }
+
+  // returned by decode for tokens outside the layout encode writes, which it leaves to jjwt
+  static final Claims FOREIGN = new Claims(0, null, 0);
+
+  // longer tokens are never ours, and are not worth growing the scratch buffers for
+  private static final int MAX_TOKEN_LENGTH = 1024;
+
+  private static final byte[] BASE64_URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+      .getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] BASE64_URL_VALUES = new byte[128];
+
+  static {
+    Arrays.fill(BASE64_URL_VALUES, (byte) -1);
+    for (int i = 0; i < BASE64_URL.length; i++) {
+      BASE64_URL_VALUES[BASE64_URL[i]] = (byte) i;
+    }
+  }
+
+  private static final byte[] SUB = ascii("\"sub\"");
+  private static final byte[] TYPE = ascii("\"type\"");
+  private static final byte[] IAT = ascii("\"iat\"");
+  private static final byte[] EXP = ascii("\"exp\"");
+  private static final byte[] ACCESS = ascii("access");
+  private static final byte[] REFRESH = ascii("refresh");
+
+  private final Key key;
+  private final String header;
+  private final byte[] headerBytes;
+  private final int macLength;
+  private final ThreadLocal<Scratch> scratch;
+
+  // per-thread Mac and buffers, sized for the longest token seen
+  private static final class Scratch {
+    final Mac mac;
+    final byte[] signature;
+    byte[] bytes = new byte[256];
+    byte[] decoded = new byte[256];
+
+    Scratch(Mac mac) {
+      this.mac = mac;
+      this.signature = new byte[mac.getMacLength()];
+    }
+  }
+
+  // key as made by Keys.hmacShaKeyFor, whose algorithm (HmacSHA256/384/512) follows its length
+  JwtCodec(Key key) {
+    this.key = key;
+    String alg = "HS" + key.getAlgorithm().substring("HmacSHA".length());
+    this.header = Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(("{\"alg\":\"" + alg + "\"}").getBytes(StandardCharsets.US_ASCII));
+    this.headerBytes = ascii(header);
+    this.macLength = newMac().getMacLength();
+    this.scratch = ThreadLocal.withInitial(() -> new Scratch(newMac()));
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = Mac.getInstance(key.getAlgorithm());
+      mac.init(key);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("cannot sign with " + key.getAlgorithm(), e);
+    }
+  }
+
+  // issuedAt and expiresAt in epoch seconds
+  String encode(long subject, TokenType type, long issuedAt, long expiresAt) {
+    Scratch s = scratch.get();
+    // {"sub":"42","type":"access","iat":1700000000,"exp":1700003600}
+    byte[] json = s.bytes;
+    int n = 0;
+    json[n++] = '{';
+    n = putKey(json, n, SUB);
+    json[n++] = '"';
+    n = putLong(json, n, subject);
+    json[n++] = '"';
+    json[n++] = ',';
+    n = putKey(json, n, TYPE);
+    json[n++] = '"';
+    n = put(json, n, type == TokenType.ACCESS ? ACCESS : REFRESH);
+    json[n++] = '"';
+    json[n++] = ',';
+    n = putKey(json, n, IAT);
+    n = putLong(json, n, issuedAt);
+    json[n++] = ',';
+    n = putKey(json, n, EXP);
+    n = putLong(json, n, expiresAt);
+    json[n++] = '}';
+
+    byte[] token = new byte[headerBytes.length + 1 + encodedLength(n) + 1 + encodedLength(macLength)];
+    int length = put(token, 0, headerBytes);
+    token[length++] = '.';
+    length = encode(json, n, token, length);
+    s.mac.update(token, 0, length);
+    try {
+      s.mac.doFinal(s.signature, 0);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+    token[length++] = '.';
+    length = encode(s.signature, macLength, token, length);
+    return new String(token, 0, length, StandardCharsets.ISO_8859_1);
+  }
+
+  // The claims of a token in the layout encode writes, FOREIGN for any other JWT layout, or null
+  // when the token is malformed or its signature does not match. Expiry is left to the caller.
+  Claims decode(String token) {
+    int length = token.length();
+    int firstDot = token.indexOf('.');
+    int secondDot = token.indexOf('.', firstDot + 1);
+    if (firstDot < 0 || secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+      return null;
+    }
+    if (firstDot != header.length() || !token.startsWith(header) || length > MAX_TOKEN_LENGTH) {
+      return FOREIGN;
+    }
+
+    Scratch s = scratch.get();
+    if (s.bytes.length < length) {
+      s.bytes = new byte[length];
+      s.decoded = new byte[length];
+    }
+    byte[] bytes = s.bytes;
+    for (int i = 0; i < length; i++) {
+      char c = token.charAt(i);
+      if (c >= 128) {
+        return null;
+      }
+      bytes[i] = (byte) c;
+    }
+    s.mac.update(bytes, 0, secondDot);
+    try {
+      s.mac.doFinal(s.signature, 0);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+    byte[] decoded = s.decoded;
+    int signatureLength = decode(bytes, secondDot + 1, length, decoded);
+    if (signatureLength != macLength || !constantTimeEquals(s.signature, decoded, macLength)) {
+      return null;
+    }
+
+    int payloadLength = decode(bytes, firstDot + 1, secondDot, decoded);
+    if (payloadLength < 0) {
+      return FOREIGN;
+    }
+    return parsePayload(decoded, payloadLength);
+  }
+
+  // A flat JSON object of string and integer values. Anything richer (escapes, fractions,
+  // nested values, nbf, a type other than access or refresh) is FOREIGN; a missing sub or exp
+  // makes the token invalid.
+  private static Claims parsePayload(byte[] json, int length) {
+    long subject = -1;
+    long expiresAt = -1;
+    TokenType type = null;
+    int i = 0;
+    if (length < 2 || json[i++] != '{') {
+      return FOREIGN;
+    }
+    while (i < length && json[i] != '}') {
+      if (i > 1 && json[i++] != ',') {
+        return FOREIGN;
+      }
+      int keyStart = i;
+      int keyEnd = stringEnd(json, i, length);
+      if (keyEnd < 0 || keyEnd + 1 >= length || json[keyEnd + 1] != ':') {
+        return FOREIGN;
+      }
+      i = keyEnd + 2;
+      if (i >= length) {
+        return FOREIGN;
+      }
+      if (json[i] == '"') {
+        int valueEnd = stringEnd(json, i, length);
+        if (valueEnd < 0) {
+          return FOREIGN;
+        }
+        if (matches(json, keyStart, keyEnd + 1, SUB)) {
+          subject = parseLong(json, i + 1, valueEnd);
+          if (subject < 0) {
+            return FOREIGN;
+          }
+        } else if (matches(json, keyStart, keyEnd + 1, TYPE)) {
+          if (matches(json, i + 1, valueEnd, ACCESS)) {
+            type = TokenType.ACCESS;
+          } else if (matches(json, i + 1, valueEnd, REFRESH)) {
+            type = TokenType.REFRESH;
+          } else {
+            return FOREIGN;
+          }
+        }
+        i = valueEnd + 1;
+      } else {
+        int valueEnd = i;
+        while (valueEnd < length && json[valueEnd] != ',' && json[valueEnd] != '}') {
+          valueEnd++;
+        }
+        long value = parseLong(json, i, valueEnd);
+        if (value < 0 || !matches(json, keyStart, keyEnd + 1, IAT) && !matches(json, keyStart, keyEnd + 1, EXP)) {
+          return FOREIGN;
+        }
+        if (matches(json, keyStart, keyEnd + 1, EXP)) {
+          expiresAt = value;
+        }
+        i = valueEnd;
+      }
+    }
+    if (i != length - 1) {
+      return FOREIGN;
+    }
+    return subject < 0 || expiresAt < 0 ? null : new Claims(subject, type, expiresAt);
+  }
+
+  // index of the closing quote of the escape-free string opening at start, or -1
+  private static int stringEnd(byte[] json, int start, int length) {
+    if (start >= length || json[start] != '"') {
+      return -1;
+    }
+    for (int i = start + 1; i < length; i++) {
+      if (json[i] == '"') {
+        return i;
+      }
+      if (json[i] == '\\') {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  // non-negative decimal of at most 18 digits, or -1
+  private static long parseLong(byte[] bytes, int from, int to) {
+    if (to <= from || to - from > 18) {
+      return -1;
+    }
+    long value = 0;
+    for (int i = from; i < to; i++) {
+      if (bytes[i] < '0' || bytes[i] > '9') {
+        return -1;
+      }
+      value = value * 10 + (bytes[i] - '0');
+    }
+    return value;
+  }
+
+  private static boolean matches(byte[] bytes, int from, int to, byte[] expected) {
+    if (to - from != expected.length) {
+      return false;
+    }
+    for (int i = 0; i < expected.length; i++) {
+      if (bytes[from + i] != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean constantTimeEquals(byte[] a, byte[] b, int length) {
+    int difference = 0;
+    for (int i = 0; i < length; i++) {
+      difference |= a[i] ^ b[i];
+    }
+    return difference == 0;
+  }
+
+  private static int putKey(byte[] out, int at, byte[] key) {
+    at = put(out, at, key);
+    out[at++] = ':';
+    return at;
+  }
+
+  private static int put(byte[] out, int at, byte[] bytes) {
+    System.arraycopy(bytes, 0, out, at, bytes.length);
+    return at + bytes.length;
+  }
+
+  private static int putLong(byte[] out, int at, long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("negative claim: " + value);
+    }
+    int digits = 1;
+    for (long rest = value / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    for (int i = at + digits - 1; i >= at; i--) {
+      out[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    return at + digits;
+  }
+
+  private static int encodedLength(int length) {
+    return (length * 4 + 2) / 3;
+  }
+
+  // unpadded Base64URL of in[0, length) written at out[at]; returns the end
+  private static int encode(byte[] in, int length, byte[] out, int at) {
+    int i = 0;
+    for (; i + 3 <= length; i += 3) {
+      int bits = (in[i] & 0xff) << 16 | (in[i + 1] & 0xff) << 8 | (in[i + 2] & 0xff);
+      out[at++] = BASE64_URL[bits >>> 18];
+      out[at++] = BASE64_URL[bits >>> 12 & 0x3f];
+      out[at++] = BASE64_URL[bits >>> 6 & 0x3f];
+      out[at++] = BASE64_URL[bits & 0x3f];
+    }
+    if (length - i == 1) {
+      int bits = (in[i] & 0xff) << 16;
+      out[at++] = BASE64_URL[bits >>> 18];
+      out[at++] = BASE64_URL[bits >>> 12 & 0x3f];
+    } else if (length - i == 2) {
+      int bits = (in[i] & 0xff) << 16 | (in[i + 1] & 0xff) << 8;
+      out[at++] = BASE64_URL[bits >>> 18];
+      out[at++] = BASE64_URL[bits >>> 12 & 0x3f];
+      out[at++] = BASE64_URL[bits >>> 6 & 0x3f];
+    }
+    return at;
+  }
+
+  // decodes unpadded Base64URL in[from, to) into out; returns the length, or -1 if not canonical
+  // Base64URL
+  private static int decode(byte[] in, int from, int to, byte[] out) {
+    if ((to - from) % 4 == 1) {
+      return -1;
+    }
+    int bits = 0;
+    int pending = 0;
+    int n = 0;
+    for (int i = from; i < to; i++) {
+      int value = BASE64_URL_VALUES[in[i]];
+      if (value < 0) {
+        return -1;
+      }
+      bits = bits << 6 | value;
+      pending += 6;
+      if (pending >= 8) {
+        pending -= 8;
+        out[n++] = (byte) (bits >>> pending);
+      }
+    }
+    // canonical only: the unused low bits of the last character are zero
+    return (bits & ((1 << pending) - 1)) == 0 ? n : -1;
+  }
+
+  private static byte[] ascii(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,196 @@
+package com.gazpacho.userservice.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Failed logins per email and per client IP over a sliding window, checked before a login
+ * touches the database or BCrypt. A key with max-failures-per-email (or -per-ip) failures in the
+ * last window is turned away until enough of them age out.
+ * <p>
+ * The window slides as two fixed windows: failures in the previous one count in proportion to
+ * how much of it still overlaps the sliding window. Counters live in a fixed table of
+ * users.login-throttle.slots packed longs per key kind, updated by CAS, so memory stays bounded
+ * however many emails or addresses are tried and nothing needs cleaning up: a slot whose window
+ * has passed simply reads as zero. Each key is counted in two rows under different random seeds
+ * and reads as the smaller count (a count-min sketch), so an unrelated key landing in the same
+ * slot rarely throttles anyone. Collisions can only overcount, never let an attacker through.
+ */
+@Component
+public class LoginThrottle implements MeterBinder {
+
+  private final Sketch emails;
+  private final Sketch addresses;
+  private final int maxFailuresPerEmail;
+  private final int maxFailuresPerIp;
+  private final long windowMillis;
+  private final Clock clock;
+
+  private final LongAdder checks = new LongAdder();
+  private final LongAdder emailRejections = new LongAdder();
+  private final LongAdder ipRejections = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+
+  public LoginThrottle(int maxFailuresPerEmail, int maxFailuresPerIp, Duration window, int slots, Clock clock) {
+    SecureRandom random = new SecureRandom();
+    this.emails = new Sketch(slots, random);
+    this.addresses = new Sketch(slots, random);
+    this.maxFailuresPerEmail = maxFailuresPerEmail;
+    this.maxFailuresPerIp = maxFailuresPerIp;
+    this.windowMillis = window.toMillis();
+    this.clock = clock;
+  }
+
+  @Autowired
+  public LoginThrottle(@Value("${users.login-throttle.max-failures-per-email:10}") int maxFailuresPerEmail,
+      @Value("${users.login-throttle.max-failures-per-ip:100}") int maxFailuresPerIp,
+      @Value("${users.login-throttle.window:15m}") Duration window,
+      @Value("${users.login-throttle.slots:16384}") int slots) {
+    this(maxFailuresPerEmail, maxFailuresPerIp, window, slots, Clock.systemUTC());
+  }
+
+  // Empty when the login may go ahead, otherwise roughly how long until it is worth retrying.
+  // clientIp may be null when unknown.
+  public Optional<Duration> check(String email, String clientIp) {
+    checks.increment();
+    long now = clock.millis();
+    long window = now / windowMillis;
+    // share of the previous window still inside the sliding one
+    double previousWeight = 1 - (double) (now % windowMillis) / windowMillis;
+    Duration retryAfter = Duration.ofMillis(windowMillis - now % windowMillis);
+    if (emails.estimate(normalize(email), window, previousWeight) >= maxFailuresPerEmail) {
+      emailRejections.increment();
+      return Optional.of(retryAfter);
+    }
+    if (clientIp != null && addresses.estimate(clientIp, window, previousWeight) >= maxFailuresPerIp) {
+      ipRejections.increment();
+      return Optional.of(retryAfter);
+    }
+    return Optional.empty();
+  }
+
+  // an unknown email or a wrong password
+  public void recordFailure(String email, String clientIp) {
+    failures.increment();
+    long window = clock.millis() / windowMillis;
+    emails.increment(normalize(email), window);
+    if (clientIp != null) {
+      addresses.increment(clientIp, window);
+    }
+  }
+
+  private static String normalize(String email) {
+    return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+  }
+
+  // login.throttle.checks and login.throttle.rejections{key=email|ip} give the throttle hit rate
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("login.throttle.checks", checks, LongAdder::sum)
+        .description("Logins checked against the failure limits")
+        .register(registry);
+    FunctionCounter.builder("login.throttle.rejections", emailRejections, LongAdder::sum)
+        .tag("key", "email")
+        .description("Logins turned away before any database or BCrypt work")
+        .register(registry);
+    FunctionCounter.builder("login.throttle.rejections", ipRejections, LongAdder::sum)
+        .tag("key", "ip")
+        .description("Logins turned away before any database or BCrypt work")
+        .register(registry);
+    FunctionCounter.builder("login.throttle.failures", failures, LongAdder::sum)
+        .description("Failed logins counted against the limits")
+        .register(registry);
+  }
+
+  // Two rows of packed counters: window number (high 32 bits), failures in that window (next 16
+  // bits) and failures in the window before it (low 16 bits). Counts saturate at 65535.
+  private static final class Sketch {
+    private static final int ROWS = 2;
+    private static final long MAX_COUNT = 0xffff;
+
+    private final AtomicLongArray[] rows = new AtomicLongArray[ROWS];
+    private final long[] seeds = new long[ROWS];
+    private final int mask;
+
+    Sketch(int slots, SecureRandom random) {
+      int size = Integer.highestOneBit(Math.max(slots, 2) - 1) << 1;
+      this.mask = size - 1;
+      for (int row = 0; row < ROWS; row++) {
+        rows[row] = new AtomicLongArray(size);
+        seeds[row] = random.nextLong();
+      }
+    }
+
+    void increment(String key, long window) {
+      for (int row = 0; row < ROWS; row++) {
+        AtomicLongArray counters = rows[row];
+        int slot = slot(key, row);
+        long packed;
+        long updated;
+        do {
+          packed = counters.get(slot);
+          long current = count(packed, window);
+          long previous = previousCount(packed, window);
+          updated = pack(window, Math.min(current + 1, MAX_COUNT), previous);
+        } while (!counters.compareAndSet(slot, packed, updated));
+      }
+    }
+
+    double estimate(String key, long window, double previousWeight) {
+      double estimate = Double.MAX_VALUE;
+      for (int row = 0; row < ROWS; row++) {
+        long packed = rows[row].get(slot(key, row));
+        double count = count(packed, window) + previousCount(packed, window) * previousWeight;
+        estimate = Math.min(estimate, count);
+      }
+      return estimate;
+    }
+
+    // failures in the given window
+    private static long count(long packed, long window) {
+      return (int) (packed >>> 32) == (int) window ? packed >>> 16 & MAX_COUNT : 0;
+    }
+
+    // failures in the window before the given one
+    private static long previousCount(long packed, long window) {
+      int stored = (int) (packed >>> 32);
+      if (stored == (int) window) {
+        return packed & MAX_COUNT;
+      }
+      return stored == (int) (window - 1) ? packed >>> 16 & MAX_COUNT : 0;
+    }
+
+    private static long pack(long window, long current, long previous) {
+      return (window & 0xffffffffL) << 32 | current << 16 | previous;
+    }
+
+    private int slot(String key, int row) {
+      long hash = seeds[row];
+      for (int i = 0; i < key.length(); i++) {
+        hash = mix(hash ^ key.charAt(i));
+      }
+      return (int) mix(hash) & mask;
+    }
+
+    // 64-bit finaliser of MurmurHash3
+    private static long mix(long x) {
+      x ^= x >>> 33;
+      x *= 0xff51afd7ed558ccdL;
+      x ^= x >>> 33;
+      x *= 0xc4ceb9fe1a85ec53L;
+      x ^= x >>> 33;
+      return x;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.gazpacho.userservice.security;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * BCrypt hashing and checking on a dedicated pool of users.passwords.threads workers (default:
+ * one per core) instead of on request threads, so a burst of logins cannot take every Tomcat
+ * worker and starve cheap endpoints. At most users.passwords.queue-size calls wait for a worker;
+ * beyond that hash and matches throw RejectedExecutionException straight away, which the
+ * controller answers with 503.
+ * <p>
+ * The work factor is users.passwords.cost, or when that is 0, calibrated at startup as the
+ * highest cost between min-cost and max-cost whose hash takes no longer than target-latency on
+ * this machine. Stored hashes of another cost are rehashed on the next successful login
+ * ({@link #needsRehash}).
+ */
+@Component
+public class PasswordHasher {
+
+  private final int cost;
+  private final BCryptPasswordEncoder encoder;
+  private final ThreadPoolExecutor executor;
+
+  @Autowired
+  public PasswordHasher(@Value("${users.passwords.threads:0}") int threads,
+      @Value("${users.passwords.queue-size:64}") int queueSize,
+      @Value("${users.passwords.cost:0}") int cost,
+      @Value("${users.passwords.min-cost:10}") int minCost,
+      @Value("${users.passwords.max-cost:14}") int maxCost,
+      @Value("${users.passwords.target-latency:250ms}") Duration targetLatency) {
+    this.cost = cost > 0 ? cost : calibrate(minCost, maxCost, targetLatency);
+    this.encoder = new BCryptPasswordEncoder(this.cost);
+    int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    AtomicInteger count = new AtomicInteger();
+    // AbortPolicy: callers are told at once when the queue is full rather than waiting for it
+    this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueSize),
+        runnable -> {
+          Thread thread = new Thread(runnable, "bcrypt-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  // fixed cost, no calibration
+  public PasswordHasher(int threads, int queueSize, int cost) {
+    this(threads, queueSize, cost, cost, cost, Duration.ZERO);
+  }
+
+  // Raises the cost while the measured hash time stays within the target; each step doubles it.
+  private static int calibrate(int minCost, int maxCost, Duration targetLatency) {
+    long target = targetLatency.toNanos();
+    // first run pays for class loading and JIT, so is not measured
+    time(minCost);
+    int chosen = minCost;
+    long elapsed = time(minCost);
+    while (chosen < maxCost && elapsed * 2 <= target) {
+      chosen++;
+      elapsed = time(chosen);
+    }
+    return elapsed > target && chosen > minCost ? chosen - 1 : chosen;
+  }
+
+  private static long time(int cost) {
+    long start = System.nanoTime();
+    new BCryptPasswordEncoder(cost).encode("calibration");
+    return System.nanoTime() - start;
+  }
+
+  public int cost() {
+    return cost;
+  }
+
+  public String hash(String rawPassword) {
+    return run(() -> encoder.encode(rawPassword));
+  }
+
+  public boolean matches(String rawPassword, String hash) {
+    return run(() -> encoder.matches(rawPassword, hash));
+  }
+
+  // true when the hash was made with a different work factor than the current one
+  public boolean needsRehash(String hash) {
+    // $2a$10$... : the cost is the two digits after the version
+    if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$') {
+      return false;
+    }
+    try {
+      return Integer.parseInt(hash.substring(4, 6)) != cost;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private <T> T run(Callable<T> task) {
+    Future<T> future = executor.submit(task);
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("interrupted waiting for a password hash", e);
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    executor.shutdownNow();
+  }
+}
@@ -3,14 +3,12 @@ package com.gazpacho.userservice.security;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
 
 import com.gazpacho.userservice.security.TokenUtils.TokenType;
 import com.gazpacho.userservice.model.UserEntity;
 import lombok.Getter;
-import java.util.Date;
 import java.security.Key;
 
 @Component
@@ -35,21 +33,24 @@ public class TokenGenerator {
   private String refreshSecret;
   private Key refreshKey;
 
+  private JwtCodec accessCodec;
+  private JwtCodec refreshCodec;
+
   @PostConstruct
   public void init() {
     this.accessKey = Keys.hmacShaKeyFor(accessSecret.getBytes());
     this.refreshKey = Keys.hmacShaKeyFor(refreshSecret.getBytes());
+    this.accessCodec = new JwtCodec(accessKey);
+    this.refreshCodec = new JwtCodec(refreshKey);
   }
 
+  // Same claims and wire format as Jwts.builder() would produce (sub, type, iat, exp in whole
+  // seconds), written by JwtCodec without the intermediate maps and JSON tree.
   private String generateToken(UserEntity user, TokenType type) {
-    return Jwts.builder()
-        .setSubject(user.getId().toString())
-        .claim("type", type == TokenType.ACCESS ? "access" : "refresh")
-        .setIssuedAt(new Date())
-        .setExpiration(new Date(System.currentTimeMillis()
-            + (type == TokenType.ACCESS ? accessExpTimeMillis : refreshExpTimeMillis)))
-        .signWith(type == TokenType.ACCESS ? accessKey : refreshKey)
-        .compact();
+    long now = System.currentTimeMillis();
+    long expiresAt = now + (type == TokenType.ACCESS ? accessExpTimeMillis : refreshExpTimeMillis);
+    return (type == TokenType.ACCESS ? accessCodec : refreshCodec)
+        .encode(user.getId(), type, now / 1000, expiresAt / 1000);
   }
 
   public String generateAccessToken(UserEntity user) {
@@ -0,0 +1,9 @@
+package com.gazpacho.userservice.security;
+
+import com.gazpacho.userservice.security.TokenUtils.TokenType;
+
+import java.time.Instant;
+
+// Who a verified token belongs to, what kind of token it is and when it stops being valid.
+public record TokenPrincipal(Long userId, TokenType type, Instant expiresAt) {
+}
@@ -1,13 +1,32 @@
 package com.gazpacho.userservice.security;
 
+import com.gazpacho.sharedlib.cache.TinyLfuCache;
 import com.gazpacho.userservice.security.TokenUtils.TokenType;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
 import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Component;
 import org.springframework.beans.factory.annotation.Value;
 
+/**
+ * Verifies access and refresh tokens. {@link #verify} checks the signature, expiry and type
+ * claim in one pass and returns the principal. Tokens in the layout TokenGenerator writes are
+ * decoded by JwtCodec; any other JWT goes through jjwt, whose parsers are built once at startup.
+ * <p>
+ * Verified tokens are cached by the SHA-256 of the token (the token itself is never kept), up
+ * to tokens.cache.max-entries, so a client repeating its token skips the HMAC and JSON decode.
+ * An entry is only used until the token's own expiry; invalid tokens are not cached. A
+ * max-entries of 0 turns the cache off.
+ */
 @Component
 public class TokenValidator {
   @Value("${JWT_ACCESS_SECRET}")
@@ -18,47 +37,98 @@ public class TokenValidator {
   private String refreshSecret;
   private Key refreshKey;
 
+  @Value("${tokens.cache.max-entries:10000}")
+  private int cacheMaxEntries = 10_000;
+
+  private JwtCodec accessCodec;
+  private JwtCodec refreshCodec;
+  private JwtParser accessParser;
+  private JwtParser refreshParser;
+  private TinyLfuCache<String, TokenPrincipal> verified;
+
   @PostConstruct
   public void init() {
     this.accessKey = io.jsonwebtoken.security.Keys.hmacShaKeyFor(accessSecret.getBytes());
     this.refreshKey = io.jsonwebtoken.security.Keys.hmacShaKeyFor(refreshSecret.getBytes());
+    this.accessCodec = new JwtCodec(accessKey);
+    this.refreshCodec = new JwtCodec(refreshKey);
+    // parsers are immutable and thread-safe
+    this.accessParser = Jwts.parserBuilder().setSigningKey(accessKey).build();
+    this.refreshParser = Jwts.parserBuilder().setSigningKey(refreshKey).build();
+    this.verified = cacheMaxEntries > 0 ? new TinyLfuCache<>(cacheMaxEntries, principal -> 1) : null;
+  }
+
+  // The token's principal when it is a valid, unexpired token of the given type.
+  public Optional<TokenPrincipal> verify(String token, TokenType type) {
+    if (token == null) {
+      return Optional.empty();
+    }
+    if (verified == null) {
+      return Optional.ofNullable(parse(token, type));
+    }
+    String key = hash(token);
+    TokenPrincipal cached = verified.get(key, principal -> principal.expiresAt().isAfter(Instant.now()));
+    if (cached != null) {
+      return cached.type() == type ? Optional.of(cached) : Optional.empty();
+    }
+    TokenPrincipal principal = parse(token, type);
+    if (principal == null) {
+      return Optional.empty();
+    }
+    verified.put(key, principal);
+    return Optional.of(principal);
   }
 
   public boolean validateAccessToken(String token) {
-    return validateToken(token, TokenType.ACCESS);
+    return verify(token, TokenType.ACCESS).isPresent();
   }
 
   public boolean validateRefreshToken(String token) {
-    return validateToken(token, TokenType.REFRESH);
+    return verify(token, TokenType.REFRESH).isPresent();
   }
 
   public Long getUserIdFromAccessToken(String token) {
-    return getUserId(token, TokenType.ACCESS);
+    return verify(token, TokenType.ACCESS).map(TokenPrincipal::userId).orElse(null);
   }
 
   public Long getUserIdFromRefreshToken(String token) {
-    return getUserId(token, TokenType.REFRESH);
+    return verify(token, TokenType.REFRESH).map(TokenPrincipal::userId).orElse(null);
   }
 
-  private boolean validateToken(String token, TokenType type) {
-    Claims claims = getClaims(token, type);
-    return claims != null && type.name().equalsIgnoreCase(claims.get("type", String.class));
-  }
-
-  private Long getUserId(String token, TokenType type) {
-    Claims claims = getClaims(token, type);
-    return claims != null ? Long.valueOf(claims.getSubject()) : null;
+  // null unless the signature, expiry and type claim all check out
+  private TokenPrincipal parse(String token, TokenType type) {
+    JwtCodec.Claims claims = (type == TokenType.ACCESS ? accessCodec : refreshCodec).decode(token);
+    if (claims == JwtCodec.FOREIGN) {
+      return parseGeneric(token, type);
+    }
+    // as jjwt: expired once now is past exp
+    if (claims == null || claims.type() != type || System.currentTimeMillis() > claims.expiresAt() * 1000) {
+      return null;
+    }
+    return new TokenPrincipal(claims.subject(), type, Instant.ofEpochSecond(claims.expiresAt()));
   }
 
-  private Claims getClaims(String token, TokenType type) {
+  private TokenPrincipal parseGeneric(String token, TokenType type) {
     try {
-      return Jwts.parserBuilder()
-          .setSigningKey(type == TokenType.ACCESS ? accessKey : refreshKey)
-          .build()
+      Claims claims = (type == TokenType.ACCESS ? accessParser : refreshParser)
           .parseClaimsJws(token)
           .getBody();
+      Date expiration = claims.getExpiration();
+      if (expiration == null || !type.name().equalsIgnoreCase(claims.get("type", String.class))) {
+        return null;
+      }
+      return new TokenPrincipal(Long.valueOf(claims.getSubject()), type, expiration.toInstant());
     } catch (Exception e) {
       return null;
     }
   }
+
+  private static String hash(String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
 }
@@ -1,17 +1,28 @@
 package com.gazpacho.userservice.service;
 
 import com.gazpacho.sharedlib.dto.*;
+import com.gazpacho.userservice.cache.ProfileCache;
+import com.gazpacho.userservice.client.RecipeServiceClient;
 import com.gazpacho.userservice.model.UserEntity;
 import com.gazpacho.userservice.repository.UserRepository;
 import com.gazpacho.recipeservice.model.RecipeEntity;
 import com.gazpacho.recipeservice.repository.RecipeRepository;
+import com.gazpacho.userservice.exception.TooManyLoginAttemptsException;
+import com.gazpacho.userservice.security.LoginThrottle;
+import com.gazpacho.userservice.security.PasswordHasher;
 import com.gazpacho.userservice.security.TokenGenerator;
+import com.gazpacho.userservice.security.TokenPrincipal;
+import com.gazpacho.userservice.security.TokenUtils.TokenType;
 import com.gazpacho.userservice.security.TokenValidator;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
@@ -21,15 +32,21 @@ public class UserService {
   private final UserRepository userRepository;
   private final TokenValidator tokenValidator;
   private final TokenGenerator tokenGenerator;
-  private final BCryptPasswordEncoder passwordEncoder;
+  private final PasswordHasher passwordHasher;
+  private final LoginThrottle loginThrottle;
+  private final RecipeServiceClient recipeServiceClient;
+  private final ProfileCache profileCache;
 
   public UserService(UserRepository userRepository,
-      TokenGenerator tokenGenerator, TokenValidator tokenValidator) {
+      TokenGenerator tokenGenerator, TokenValidator tokenValidator, PasswordHasher passwordHasher,
+      LoginThrottle loginThrottle, RecipeServiceClient recipeServiceClient, ProfileCache profileCache) {
     this.userRepository = userRepository;
     this.tokenGenerator = tokenGenerator;
     this.tokenValidator = tokenValidator;
-    this.passwordEncoder = new BCryptPasswordEncoder();
-  
+    this.passwordHasher = passwordHasher;
+    this.loginThrottle = loginThrottle;
+    this.recipeServiceClient = recipeServiceClient;
+    this.profileCache = profileCache;
   }
 
   public PublicUserDTO registerUser(LoginDTO newUser) {
@@ -38,7 +55,7 @@ public class UserService {
 
     UserEntity user = new UserEntity();
     user.setEmail(newUser.getEmail());
-    String hashedPassword = passwordEncoder.encode(newUser.getPassword());
+    String hashedPassword = passwordHasher.hash(newUser.getPassword());
     user.setPassword(hashedPassword);
 
     UserEntity savedUser = userRepository.save(user);
@@ -46,14 +63,33 @@ public class UserService {
     return new PublicUserDTO(savedUser.getId(), savedUser.getEmail(), null);
   }
 
-  public Optional<TokenResponseDTO> loginUser(LoginDTO userDto) {
-    if (!userRepository.existsByEmail(userDto.getEmail()))
-      return Optional.empty();
+  // clientIp may be null when unknown; throws TooManyLoginAttemptsException when the email or
+  // address has failed too often recently, before any database or BCrypt work
+  public Optional<TokenResponseDTO> loginUser(LoginDTO userDto, String clientIp) {
+    loginThrottle.check(userDto.getEmail(), clientIp).ifPresent(retryAfter -> {
+      throw new TooManyLoginAttemptsException(retryAfter);
+    });
 
-    UserEntity user = userRepository.findByEmail(userDto.getEmail()).orElseThrow();
+    UserEntity user = userRepository.findByEmail(userDto.getEmail()).orElse(null);
+    if (user == null) {
+      loginThrottle.recordFailure(userDto.getEmail(), clientIp);
+      return Optional.empty();
+    }
     //compare the users inputed plain text password with the stored hash
-    if (!passwordEncoder.matches(userDto.getPassword(), user.getPassword()))
+    if (!passwordHasher.matches(userDto.getPassword(), user.getPassword())) {
+      loginThrottle.recordFailure(userDto.getEmail(), clientIp);
       return Optional.empty();
+    }
+
+    // bring hashes made at an older work factor up to the current one
+    if (passwordHasher.needsRehash(user.getPassword())) {
+      try {
+        user.setPassword(passwordHasher.hash(userDto.getPassword()));
+        userRepository.save(user);
+      } catch (RejectedExecutionException e) {
+        // hashing pool is saturated; the next login tries again
+      }
+    }
 
     String acessToken = tokenGenerator.generateAccessToken(user);
     String refreshToken = tokenGenerator.generateRefreshToken(user);
@@ -66,11 +102,12 @@ public class UserService {
 
   public Optional<TokenResponseDTO> refreshToken(RefreshRequestDTO dto) {
     // TODO: (Potentially) add logging to track invalid refresh requests
-    if (!tokenValidator.validateRefreshToken(dto.getRefreshToken())) {
+    Optional<TokenPrincipal> principal = tokenValidator.verify(dto.getRefreshToken(), TokenType.REFRESH);
+    if (principal.isEmpty()) {
       return Optional.empty();
     }
 
-    UserEntity user = userRepository.findById(tokenValidator.getUserIdFromRefreshToken(dto.getRefreshToken()))
+    UserEntity user = userRepository.findById(principal.get().userId())
         .orElse(null);
     if (user == null) {
       return Optional.empty();
@@ -85,10 +122,11 @@ public class UserService {
   public Optional<UserEntity> fetchUserByToken(String token) {
     if (!token.startsWith("Bearer ")) return Optional.empty();
     token = token.substring(7);
-    if (!tokenValidator.validateAccessToken(token)) return Optional.empty();
+    Optional<TokenPrincipal> principal = tokenValidator.verify(token, TokenType.ACCESS);
+    if (principal.isEmpty()) return Optional.empty();
 
     UserEntity user = userRepository
-            .findById(tokenValidator.getUserIdFromAccessToken(token))
+            .findById(principal.get().userId())
             .orElse(null);
     if (user == null) return Optional.empty();
     else return Optional.of(user);
@@ -97,10 +135,11 @@ public class UserService {
   public Optional<PublicUserDTO> fetchUser(String token) {
     if (!token.startsWith("Bearer ")) return Optional.empty();
     token = token.substring(7);
-    if (!tokenValidator.validateAccessToken(token)) return Optional.empty();
+    Optional<TokenPrincipal> principal = tokenValidator.verify(token, TokenType.ACCESS);
+    if (principal.isEmpty()) return Optional.empty();
 
     UserEntity user = userRepository
-            .findById(tokenValidator.getUserIdFromAccessToken(token))
+            .findById(principal.get().userId())
             .orElse(null);
     if (user == null) return Optional.empty();
 
@@ -111,6 +150,12 @@ public class UserService {
     ));
   }
 
+  // For callers already authenticated (identity forwarded by the api-gateway).
+  public Optional<PublicUserDTO> fetchUser(Long userId) {
+    return userRepository.findById(userId)
+        .map(user -> new PublicUserDTO(user.getId(), user.getEmail(), user.getSavedRecipeIds()));
+  }
+
   // New implementation using join entity for saving a recipe.
   public void saveRecipeForUser(Long userId, Long recipeId) {
     Optional<UserEntity> maybeUser = userRepository.findById(userId);
@@ -131,6 +176,8 @@ public class UserService {
       // Create a new join entity.
       user.getSavedRecipeIds().add(recipeId);
       userRepository.save(user);
+      profileCache.invalidate(userId);
+      recipeServiceClient.reportSaveCount(recipeId, () -> userRepository.countSavesOf(recipeId));
     }
   }
 
@@ -148,6 +195,8 @@ public class UserService {
     if (saved) {
       user.getSavedRecipeIds().remove(recipeId);
       userRepository.save(user);
+      profileCache.invalidate(userId);
+      recipeServiceClient.reportSaveCount(recipeId, () -> userRepository.countSavesOf(recipeId));
     }
   }
 
@@ -157,4 +206,36 @@ public class UserService {
              .map(UserEntity::getSavedRecipeIds)
              .orElse(Collections.emptyList());
   }
+
+  // Recipes to try next, scored by recipe-service against the user's taste profile and leaving
+  // out what they already saved. Nothing is recommended before the first save.
+  public List<RankedRecipeDTO> recommendRecipes(Long userId, Integer limit) {
+    UserEntity user = userRepository.findById(userId)
+        .orElseThrow(() -> new RuntimeException("User not found"));
+    List<Long> saved = List.copyOf(user.getSavedRecipeIds());
+    if (saved.isEmpty()) {
+      return List.of();
+    }
+    ProfileCache.Profile profile = profileCache.get(userId, saved).orElseGet(() -> {
+      ProfileCache.Profile built = buildProfile(saved);
+      profileCache.put(userId, built);
+      return built;
+    });
+    return recipeServiceClient.recommend(new RecommendationRequestDTO(profile.weights(), saved, limit));
+  }
+
+  // Ingredient name -> the share of the saved recipes using it, from one batch fetch of those
+  // recipes. Names are lowercased so "Basil" and "basil" count as one.
+  private ProfileCache.Profile buildProfile(List<Long> saved) {
+    List<RecipeDTO> recipes = recipeServiceClient.getRecipes(saved);
+    Map<String, Double> weights = new HashMap<>();
+    for (RecipeDTO recipe : recipes) {
+      Set<String> ingredients = new HashSet<>();
+      if (recipe.getIngredients() != null) {
+        recipe.getIngredients().forEach(name -> ingredients.add(name.trim().toLowerCase()));
+      }
+      ingredients.forEach(name -> weights.merge(name, 1.0 / recipes.size(), Double::sum));
+    }
+    return new ProfileCache.Profile(Set.copyOf(saved), weights);
+  }
 }
@@ -0,0 +1,99 @@
+package com.gazpacho.userservice;
+
+import com.gazpacho.userservice.security.LoginThrottle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleTest {
+
+  // start of a window, so the previous one no longer overlaps
+  private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+  private Instant now;
+  private LoginThrottle loginThrottle;
+
+  @BeforeEach
+  void setUp() {
+    now = START;
+    Clock clock = new Clock() {
+      @Override
+      public ZoneId getZone() {
+        return ZoneId.of("UTC");
+      }
+
+      @Override
+      public Clock withZone(ZoneId zone) {
+        return this;
+      }
+
+      @Override
+      public Instant instant() {
+        return now;
+      }
+    };
+    loginThrottle = new LoginThrottle(3, 5, Duration.ofMinutes(10), 1024, clock);
+  }
+
+  private void fail(String email, String ip, int times) {
+    for (int i = 0; i < times; i++) {
+      loginThrottle.recordFailure(email, ip);
+    }
+  }
+
+  @Test
+  void testThrottlesAnEmailAtTheLimit() {
+    fail("a@example.com", null, 2);
+    assertTrue(loginThrottle.check("a@example.com", null).isEmpty());
+
+    fail("A@Example.com", null, 1);
+    assertEquals(Duration.ofMinutes(10), loginThrottle.check("a@example.com", "198.51.100.1").orElseThrow());
+    assertTrue(loginThrottle.check("b@example.com", null).isEmpty());
+  }
+
+  @Test
+  void testThrottlesAnAddressAcrossEmails() {
+    for (int i = 0; i < 5; i++) {
+      fail("user" + i + "@example.com", "203.0.113.7", 1);
+    }
+
+    assertTrue(loginThrottle.check("new@example.com", "203.0.113.7").isPresent());
+    assertTrue(loginThrottle.check("new@example.com", "203.0.113.8").isEmpty());
+  }
+
+  @Test
+  void testFailuresDecayAsTheWindowSlides() {
+    fail("a@example.com", null, 4);
+
+    // halfway through the next window, half of the previous one's four failures still count
+    now = START.plus(Duration.ofMinutes(15));
+    assertTrue(loginThrottle.check("a@example.com", null).isEmpty());
+    fail("a@example.com", null, 1);
+    assertTrue(loginThrottle.check("a@example.com", null).isPresent());
+
+    // two windows on, everything has aged out
+    now = START.plus(Duration.ofMinutes(30));
+    assertTrue(loginThrottle.check("a@example.com", null).isEmpty());
+  }
+
+  @Test
+  void testCountsChecksAndRejections() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    loginThrottle.bindTo(registry);
+    fail("a@example.com", "203.0.113.7", 3);
+
+    loginThrottle.check("a@example.com", null);
+    loginThrottle.check("b@example.com", null);
+
+    assertEquals(2, registry.get("login.throttle.checks").functionCounter().count());
+    assertEquals(1, registry.get("login.throttle.rejections").tag("key", "email").functionCounter().count());
+    assertEquals(0, registry.get("login.throttle.rejections").tag("key", "ip").functionCounter().count());
+    assertEquals(3, registry.get("login.throttle.failures").functionCounter().count());
+  }
+}
@@ -0,0 +1,65 @@
+package com.gazpacho.userservice;
+
+import com.gazpacho.userservice.security.PasswordHasher;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+  private PasswordHasher passwordHasher;
+
+  @AfterEach
+  void tearDown() {
+    passwordHasher.close();
+  }
+
+  @Test
+  void testHashesAndMatchesAtTheConfiguredCost() {
+    passwordHasher = new PasswordHasher(1, 4, 4);
+
+    String hash = passwordHasher.hash("password123");
+    assertTrue(hash.startsWith("$2a$04$"));
+    assertTrue(passwordHasher.matches("password123", hash));
+    assertFalse(passwordHasher.matches("password124", hash));
+  }
+
+  @Test
+  void testNeedsRehashWhenTheCostDiffers() {
+    passwordHasher = new PasswordHasher(1, 4, 5);
+
+    assertFalse(passwordHasher.needsRehash(passwordHasher.hash("password123")));
+    assertTrue(passwordHasher.needsRehash(new PasswordHasher(1, 4, 4).hash("password123")));
+    assertFalse(passwordHasher.needsRehash("not-a-bcrypt-hash"));
+  }
+
+  @Test
+  void testCalibratesWithinBounds() {
+    // nothing is fast enough for a zero target, and anything is for a minute
+    passwordHasher = new PasswordHasher(1, 4, 0, 4, 6, Duration.ZERO);
+    assertEquals(4, passwordHasher.cost());
+    passwordHasher.close();
+
+    passwordHasher = new PasswordHasher(1, 4, 0, 4, 6, Duration.ofMinutes(1));
+    assertEquals(6, passwordHasher.cost());
+  }
+
+  @Test
+  void testRejectsOnceWorkersAndQueueAreFull() throws Exception {
+    // one worker and one queue slot; a cost-14 hash keeps them busy for a second or more
+    passwordHasher = new PasswordHasher(1, 1, 14);
+    CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordHasher.hash("first"));
+    Thread.sleep(100);
+    CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordHasher.hash("second"));
+    Thread.sleep(100);
+
+    assertThrows(RejectedExecutionException.class, () -> passwordHasher.hash("third"));
+    // the accepted calls still complete
+    assertTrue(running.get().startsWith("$2a$14$"));
+    assertTrue(queued.get().startsWith("$2a$14$"));
+  }
+}
@@ -0,0 +1,146 @@
+package com.gazpacho.userservice;
+
+import com.gazpacho.userservice.model.UserEntity;
+import com.gazpacho.userservice.security.TokenGenerator;
+import com.gazpacho.userservice.security.TokenUtils.TokenType;
+import com.gazpacho.userservice.security.TokenValidator;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Base64;
+import java.util.Date;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// TokenGenerator and TokenValidator stay wire-compatible with tokens built and parsed by jjwt
+class TokenGeneratorTest {
+
+  private final String testAccessSecret = "thisisnottheactualsecurekey12345"; // 32+ chars
+  // 48+ chars, so signed with HS384
+  private final String testRefreshSecret = "thisisalsoafakekeybutforrefreshingandlongerstill";
+
+  private TokenGenerator tokenGenerator;
+  private TokenValidator tokenValidator;
+  private Key accessKey;
+  private Key refreshKey;
+  private UserEntity user;
+
+  @BeforeEach
+  void setup() {
+    tokenGenerator = new TokenGenerator();
+    ReflectionTestUtils.setField(tokenGenerator, "accessSecret", testAccessSecret);
+    ReflectionTestUtils.setField(tokenGenerator, "accessExpTimeMillis", 3600000L);
+    ReflectionTestUtils.setField(tokenGenerator, "refreshSecret", testRefreshSecret);
+    ReflectionTestUtils.setField(tokenGenerator, "refreshExpTimeMillis", 604800000L);
+    tokenGenerator.init();
+
+    tokenValidator = new TokenValidator();
+    ReflectionTestUtils.setField(tokenValidator, "accessSecret", testAccessSecret);
+    ReflectionTestUtils.setField(tokenValidator, "refreshSecret", testRefreshSecret);
+    tokenValidator.init();
+
+    accessKey = Keys.hmacShaKeyFor(testAccessSecret.getBytes());
+    refreshKey = Keys.hmacShaKeyFor(testRefreshSecret.getBytes());
+    user = new UserEntity();
+    user.setId(1234567L);
+  }
+
+  private static String segment(String token, int index) {
+    return new String(Base64.getUrlDecoder().decode(token.split("\\.")[index]), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void testGeneratedTokensMatchJjwt() {
+    long before = System.currentTimeMillis() / 1000;
+    String token = tokenGenerator.generateAccessToken(user);
+    Claims claims = Jwts.parserBuilder().setSigningKey(accessKey).build().parseClaimsJws(token).getBody();
+
+    assertEquals("1234567", claims.getSubject());
+    assertEquals("access", claims.get("type", String.class));
+    long issuedAt = claims.getIssuedAt().getTime() / 1000;
+    assertTrue(issuedAt >= before);
+    assertEquals(issuedAt + 3600, claims.getExpiration().getTime() / 1000);
+
+    // byte for byte what jjwt writes for the same claims
+    String expected = Jwts.builder()
+        .setSubject("1234567")
+        .claim("type", "access")
+        .setIssuedAt(claims.getIssuedAt())
+        .setExpiration(claims.getExpiration())
+        .signWith(accessKey)
+        .compact();
+    assertEquals(expected, token);
+  }
+
+  @Test
+  void testRefreshTokensUseTheLongerKeysAlgorithm() {
+    String token = tokenGenerator.generateRefreshToken(user);
+
+    assertEquals("{\"alg\":\"HS384\"}", segment(token, 0));
+    Claims claims = Jwts.parserBuilder().setSigningKey(refreshKey).build().parseClaimsJws(token).getBody();
+    assertEquals("refresh", claims.get("type", String.class));
+    assertEquals(1234567L, tokenValidator.getUserIdFromRefreshToken(token));
+  }
+
+  @Test
+  void testValidatesTokensBuiltByJjwt() {
+    String token = Jwts.builder()
+        .setSubject("99")
+        .claim("type", "access")
+        .setIssuedAt(new Date())
+        .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+        .signWith(accessKey)
+        .compact();
+
+    assertEquals(99L, tokenValidator.getUserIdFromAccessToken(token));
+    assertFalse(tokenValidator.validateRefreshToken(token));
+  }
+
+  @Test
+  void testOtherLayoutsFallBackToJjwt() {
+    // a typ header and an extra claim; still a valid access token
+    String withExtras = Jwts.builder()
+        .setHeaderParam("typ", "JWT")
+        .setSubject("7")
+        .claim("type", "access")
+        .claim("roles", "cook")
+        .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+        .signWith(accessKey)
+        .compact();
+    assertEquals(7L, tokenValidator.getUserIdFromAccessToken(withExtras));
+
+    // not yet valid, which only jjwt checks
+    String notBefore = Jwts.builder()
+        .setSubject("7")
+        .claim("type", "access")
+        .setNotBefore(new Date(System.currentTimeMillis() + 60_000))
+        .setExpiration(new Date(System.currentTimeMillis() + 120_000))
+        .signWith(accessKey)
+        .compact();
+    assertFalse(tokenValidator.validateAccessToken(notBefore));
+  }
+
+  @Test
+  void testRejectsForgedPayloads() {
+    String token = tokenGenerator.generateAccessToken(user);
+    String[] parts = token.split("\\.");
+    String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(
+        segment(token, 1).replace("1234567", "1").getBytes(StandardCharsets.UTF_8));
+
+    assertFalse(tokenValidator.validateAccessToken(parts[0] + "." + forged + "." + parts[2]));
+    assertFalse(tokenValidator.validateAccessToken(parts[0] + "." + parts[1] + "."));
+    assertFalse(tokenValidator.validateAccessToken(parts[0] + "." + parts[1]));
+
+    // the last of 43 signature characters carries two unused bits; setting one must not pass
+    String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+    char last = parts[2].charAt(parts[2].length() - 1);
+    char padded = alphabet.charAt(alphabet.indexOf(last) ^ 1);
+    String signature = parts[2].substring(0, parts[2].length() - 1) + padded;
+    assertFalse(tokenValidator.validateAccessToken(parts[0] + "." + parts[1] + "." + signature));
+  }
+}
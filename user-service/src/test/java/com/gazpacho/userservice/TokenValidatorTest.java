@@ -1,6 +1,8 @@
 package com.gazpacho.userservice;
 
 import com.gazpacho.userservice.security.TokenGenerator;
+import com.gazpacho.userservice.security.TokenPrincipal;
+import com.gazpacho.userservice.security.TokenUtils.TokenType;
 import com.gazpacho.userservice.security.TokenValidator;
 
 import com.gazpacho.userservice.model.UserEntity;
@@ -8,6 +10,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Instant;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class TokenValidatorTest {
@@ -175,4 +179,44 @@ class TokenValidatorTest {
     assertFalse(tokenValidator.validateAccessToken(token));
     assertNull(tokenValidator.getUserIdFromAccessToken(token));
   }
-}
\ No newline at end of file
+
+  @Test
+  void testVerifyReturnsPrincipal() {
+    String token = tokenGenerator.generateAccessToken(user);
+
+    TokenPrincipal principal = tokenValidator.verify(token, TokenType.ACCESS).orElseThrow();
+    assertEquals(1L, principal.userId());
+    assertEquals(TokenType.ACCESS, principal.type());
+    assertTrue(principal.expiresAt().isAfter(Instant.now()));
+  }
+
+  @Test
+  void testVerifyServesRepeatsFromCache() {
+    String token = tokenGenerator.generateAccessToken(user);
+
+    TokenPrincipal first = tokenValidator.verify(token, TokenType.ACCESS).orElseThrow();
+    assertSame(first, tokenValidator.verify(token, TokenType.ACCESS).orElseThrow());
+  }
+
+  @Test
+  void testCachedTokenStillChecksType() {
+    String token = tokenGenerator.generateAccessToken(user);
+
+    assertTrue(tokenValidator.verify(token, TokenType.ACCESS).isPresent());
+    assertTrue(tokenValidator.verify(token, TokenType.REFRESH).isEmpty());
+  }
+
+  @Test
+  void testCachedTokenExpiresWithToken() throws InterruptedException {
+    TokenGenerator shortTokenGenerator = new TokenGenerator();
+    ReflectionTestUtils.setField(shortTokenGenerator, "accessSecret", testAccessSecret);
+    ReflectionTestUtils.setField(shortTokenGenerator, "accessExpTimeMillis", 2000); // exp has whole-second precision
+    ReflectionTestUtils.setField(shortTokenGenerator, "refreshSecret", testRefreshSecret);
+    shortTokenGenerator.init();
+    String token = shortTokenGenerator.generateAccessToken(user);
+
+    assertTrue(tokenValidator.verify(token, TokenType.ACCESS).isPresent());
+    Thread.sleep(2100);
+    assertTrue(tokenValidator.verify(token, TokenType.ACCESS).isEmpty());
+  }
+}
@@ -1,24 +1,32 @@
 package com.gazpacho.userservice;
 
+import com.gazpacho.sharedlib.dto.RankedRecipeDTO;
 import com.gazpacho.sharedlib.dto.PublicUserDTO;
+import com.gazpacho.sharedlib.security.IdentitySigner;
 import com.gazpacho.userservice.controller.UserController;
 import com.gazpacho.userservice.model.UserEntity;
 import com.gazpacho.userservice.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.client.ResourceAccessException;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(UserController.class)
+@TestPropertySource(properties = "identity.secret=test-identity-secret")
 public class UserControllerSaveRecipeTest {
 
     @Autowired
@@ -68,4 +76,46 @@ public class UserControllerSaveRecipeTest {
                .andExpect(content().string("Recipe not found"));
     }*/
 
+
+    @Test
+    void testRecommendations() throws Exception {
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        when(userService.fetchUserByToken("Bearer valid.token.string")).thenReturn(Optional.of(user));
+        when(userService.recommendRecipes(1L, 3))
+                .thenReturn(List.of(new RankedRecipeDTO(12L, "Caprese", null, 0.9)));
+        when(userService.recommendRecipes(1L, null))
+                .thenThrow(new ResourceAccessException("recipe-service down"));
+
+        mockMvc.perform(get("/users/recommendations?limit=3").header("Authorization", "Bearer valid.token.string"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$[0].name").value("Caprese"));
+        mockMvc.perform(get("/users/recommendations").header("Authorization", "Bearer valid.token.string"))
+               .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void testSaveRecipe_TrustsSignedGatewayIdentity() throws Exception {
+        IdentitySigner gateway = new IdentitySigner("test-identity-secret", Duration.ofSeconds(60));
+
+        mockMvc.perform(post("/users/recipes/10")
+                        .header(IdentitySigner.USER_ID, "42")
+                        .header(IdentitySigner.SIGNATURE, gateway.sign(42L)))
+               .andExpect(status().isOk());
+
+        // no token parse or user lookup on this path
+        verify(userService).saveRecipeForUser(42L, 10L);
+        verify(userService, never()).fetchUserByToken(any());
+    }
+
+    @Test
+    void testSaveRecipe_IgnoresForgedIdentity() throws Exception {
+        IdentitySigner forger = new IdentitySigner("guessed-secret", Duration.ofSeconds(60));
+
+        mockMvc.perform(post("/users/recipes/10")
+                        .header(IdentitySigner.USER_ID, "42")
+                        .header(IdentitySigner.SIGNATURE, forger.sign(42L)))
+               .andExpect(status().isUnauthorized());
+        verify(userService, never()).saveRecipeForUser(any(), any());
+    }
 }
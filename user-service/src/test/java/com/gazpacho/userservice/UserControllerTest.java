@@ -4,14 +4,17 @@ import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.gazpacho.sharedlib.dto.LoginDTO;
 import com.gazpacho.sharedlib.dto.PublicUserDTO;
 import com.gazpacho.sharedlib.dto.RefreshRequestDTO;
 import com.gazpacho.sharedlib.dto.TokenResponseDTO;
 import com.gazpacho.userservice.controller.UserController;
+import com.gazpacho.userservice.exception.TooManyLoginAttemptsException;
 import com.gazpacho.userservice.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -53,7 +56,7 @@ class UserControllerTest {
 
   @Test
   void testLoginUser() throws Exception {
-    when(userService.loginUser(any(LoginDTO.class)))
+    when(userService.loginUser(any(LoginDTO.class), any()))
         .thenReturn(Optional
             .of(TokenResponseDTO.builder()
                 .accessToken("jtw-access-token-abc123")
@@ -70,7 +73,7 @@ class UserControllerTest {
 
   @Test
   void testLoginUser_IncorrectPassword401() throws Exception {
-    when(userService.loginUser(any(LoginDTO.class))).thenReturn(Optional.empty());
+    when(userService.loginUser(any(LoginDTO.class), any())).thenReturn(Optional.empty());
 
     mockMvc
         .perform(post("/users/login")
@@ -80,9 +83,36 @@ class UserControllerTest {
         .andExpect(status().isForbidden());
   }
 
+  @Test
+  void testLoginUser_HashingSaturated503() throws Exception {
+    when(userService.loginUser(any(LoginDTO.class), any())).thenThrow(new RejectedExecutionException());
+
+    mockMvc
+        .perform(post("/users/login")
+            .contentType("application/json")
+            .content("{\"email\":\"existingUser@example.com\", " +
+                "\"password\": \"password123\"}"))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "1"));
+  }
+
+  @Test
+  void testLoginUser_Throttled429() throws Exception {
+    when(userService.loginUser(any(LoginDTO.class), any()))
+        .thenThrow(new TooManyLoginAttemptsException(Duration.ofSeconds(90)));
+
+    mockMvc
+        .perform(post("/users/login")
+            .contentType("application/json")
+            .content("{\"email\":\"existingUser@example.com\", " +
+                "\"password\": \"password123\"}"))
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().string("Retry-After", "90"));
+  }
+
   @Test
   void testLoginUser_UserNotFound401() throws Exception {
-    when(userService.loginUser(any(LoginDTO.class))).thenReturn(Optional.empty());
+    when(userService.loginUser(any(LoginDTO.class), any())).thenReturn(Optional.empty());
 
     mockMvc
         .perform(post("/users/login")
@@ -94,7 +124,7 @@ class UserControllerTest {
 
   @Test
   void testLoginUser_InvalidInput400() throws Exception {
-    when(userService.loginUser(any(LoginDTO.class))).thenReturn(Optional.empty());
+    when(userService.loginUser(any(LoginDTO.class), any())).thenReturn(Optional.empty());
 
     mockMvc
         .perform(post("/users/login")
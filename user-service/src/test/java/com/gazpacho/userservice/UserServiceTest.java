@@ -8,14 +8,31 @@ import com.gazpacho.sharedlib.dto.LoginDTO;
 import com.gazpacho.sharedlib.dto.PublicUserDTO;
 import com.gazpacho.sharedlib.dto.RefreshRequestDTO;
 import com.gazpacho.sharedlib.dto.TokenResponseDTO;
+import com.gazpacho.sharedlib.dto.RankedRecipeDTO;
+import com.gazpacho.sharedlib.dto.RecipeDTO;
+import com.gazpacho.sharedlib.dto.RecommendationRequestDTO;
+import com.gazpacho.userservice.cache.ProfileCache;
+import com.gazpacho.userservice.client.RecipeServiceClient;
 import com.gazpacho.userservice.model.UserEntity;
 import com.gazpacho.userservice.repository.UserRepository;
 import com.gazpacho.recipeservice.repository.RecipeRepository;
+import com.gazpacho.userservice.exception.TooManyLoginAttemptsException;
+import com.gazpacho.userservice.security.LoginThrottle;
+import com.gazpacho.userservice.security.PasswordHasher;
 import com.gazpacho.userservice.security.TokenGenerator;
+import com.gazpacho.userservice.security.TokenPrincipal;
+import com.gazpacho.userservice.security.TokenUtils.TokenType;
 import com.gazpacho.userservice.security.TokenValidator;
 import com.gazpacho.userservice.service.UserService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.LongSupplier;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.util.unit.DataSize;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -27,6 +44,10 @@ class UserServiceTest {
   private UserService userService;
   private TokenGenerator tokenGenerator;
   private TokenValidator tokenValidator;
+  private RecipeServiceClient recipeServiceClient;
+  private ProfileCache profileCache;
+  private PasswordHasher passwordHasher;
+  private LoginThrottle loginThrottle;
   private BCryptPasswordEncoder encoder;
 
   @BeforeEach
@@ -34,10 +55,19 @@ class UserServiceTest {
     userRepository = mock(UserRepository.class);
     tokenGenerator = mock(TokenGenerator.class);
     tokenValidator = mock(TokenValidator.class);
-    userService = new UserService(userRepository, tokenGenerator, tokenValidator);
+    recipeServiceClient = mock(RecipeServiceClient.class);
+    profileCache = new ProfileCache(DataSize.ofMegabytes(1));
+    passwordHasher = new PasswordHasher(2, 16, 4);
+    loginThrottle = new LoginThrottle(3, 100, Duration.ofMinutes(15), 1024);
+    userService = new UserService(userRepository, tokenGenerator, tokenValidator, passwordHasher,
+        loginThrottle, recipeServiceClient, profileCache);
     encoder = new BCryptPasswordEncoder();
   }
 
+  private static Optional<TokenPrincipal> principal(Long userId, TokenType type) {
+    return Optional.of(new TokenPrincipal(userId, type, Instant.now().plusSeconds(60)));
+  }
+
   @Test
   void registerUser_UniqueEmail() {
     LoginDTO dto = new LoginDTO("test@example.com", "password123");
@@ -94,7 +124,7 @@ class UserServiceTest {
         .thenReturn("jwt-token-abc123");
     when(tokenGenerator.getAccessExpTimeMillis()).thenReturn(0L);
 
-    Optional<TokenResponseDTO> result = userService.loginUser(dto);
+    Optional<TokenResponseDTO> result = userService.loginUser(dto, "203.0.113.7");
 
     assertTrue(result.isPresent());
     TokenResponseDTO tokenResponse = result.get();
@@ -119,12 +149,34 @@ class UserServiceTest {
     when(userRepository.findByEmail(dto.getEmail()))
         .thenReturn(Optional.of(user));
 
-    Optional<TokenResponseDTO> result = userService.loginUser(dto);
+    Optional<TokenResponseDTO> result = userService.loginUser(dto, "203.0.113.7");
 
     assertFalse(result.isPresent());
     verifyNoInteractions(tokenGenerator);
   }
 
+  @Test
+  void loginUser_RehashesOtherCost() {
+    LoginDTO dto = new LoginDTO("test@example.com", "password123");
+    UserEntity user = new UserEntity();
+    user.setId(1L);
+    user.setEmail(dto.getEmail());
+    user.setPassword(new BCryptPasswordEncoder(5).encode("password123"));
+    when(userRepository.existsByEmail(dto.getEmail())).thenReturn(true);
+    when(userRepository.findByEmail(dto.getEmail())).thenReturn(Optional.of(user));
+
+    assertTrue(userService.loginUser(dto, "203.0.113.7").isPresent());
+
+    // now at the hasher's cost of 4, and still the same password
+    assertTrue(user.getPassword().startsWith("$2a$04$"));
+    assertTrue(encoder.matches("password123", user.getPassword()));
+    verify(userRepository).save(user);
+
+    // already current: nothing more to save
+    assertTrue(userService.loginUser(dto, "203.0.113.7").isPresent());
+    verify(userRepository, times(1)).save(user);
+  }
+
   @Test
   void loginUser_NonExistentUser() {
     LoginDTO dto = new LoginDTO("nonexistent@example.com", "password123");
@@ -133,17 +185,34 @@ class UserServiceTest {
     when(userRepository.findByEmail(dto.getEmail()))
         .thenReturn(Optional.empty());
 
-    Optional<TokenResponseDTO> result = userService.loginUser(dto);
+    Optional<TokenResponseDTO> result = userService.loginUser(dto, "203.0.113.7");
 
     assertFalse(result.isPresent());
     verifyNoInteractions(tokenGenerator);
   }
 
+  @Test
+  void loginUser_ThrottledBeforeAnyLookup() {
+    LoginDTO dto = new LoginDTO("Victim@example.com", "guess");
+    UserEntity user = new UserEntity();
+    user.setEmail("victim@example.com");
+    user.setPassword(passwordHasher.hash("password123"));
+    when(userRepository.findByEmail(dto.getEmail())).thenReturn(Optional.of(user));
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(userService.loginUser(dto, "203.0.113.7").isEmpty());
+    }
+    // the same email in another case, from another address, is still over the limit
+    LoginDTO correct = new LoginDTO("victim@example.com ", "password123");
+    assertThrows(TooManyLoginAttemptsException.class, () -> userService.loginUser(correct, "198.51.100.1"));
+    verify(userRepository, times(3)).findByEmail(any());
+  }
+
   @Test
   void testRefreshToken_InvalidToken_ReturnsEmpty() {
     String invalidRefreshToken = "invalid.token";
 
-    when(tokenValidator.validateRefreshToken(invalidRefreshToken)).thenReturn(false);
+    when(tokenValidator.verify(invalidRefreshToken, TokenType.REFRESH)).thenReturn(Optional.empty());
 
     RefreshRequestDTO request = new RefreshRequestDTO();
     request.setRefreshToken(invalidRefreshToken);
@@ -151,7 +220,7 @@ class UserServiceTest {
     Optional<TokenResponseDTO> result = userService.refreshToken(request);
 
     assertTrue(result.isEmpty());
-    verify(tokenValidator).validateRefreshToken(invalidRefreshToken);
+    verify(tokenValidator).verify(invalidRefreshToken, TokenType.REFRESH);
     verifyNoInteractions(userRepository, tokenGenerator);
   }
 
@@ -161,8 +230,7 @@ class UserServiceTest {
     String validRefreshToken = "valid.refresh.token";
     Long userId = 42L;
 
-    when(tokenValidator.validateRefreshToken(validRefreshToken)).thenReturn(true);
-    when(tokenValidator.getUserIdFromRefreshToken(validRefreshToken)).thenReturn(userId);
+    when(tokenValidator.verify(validRefreshToken, TokenType.REFRESH)).thenReturn(principal(userId, TokenType.REFRESH));
     when(userRepository.findById(userId)).thenReturn(Optional.empty());
 
     RefreshRequestDTO request = new RefreshRequestDTO();
@@ -171,7 +239,7 @@ class UserServiceTest {
     Optional<TokenResponseDTO> result = userService.refreshToken(request);
 
     assertTrue(result.isEmpty());
-    verify(tokenValidator).validateRefreshToken(validRefreshToken);
+    verify(tokenValidator).verify(validRefreshToken, TokenType.REFRESH);
     verify(userRepository).findById(userId);
   }
 
@@ -183,8 +251,7 @@ class UserServiceTest {
     String newAccessToken = "new.access.token";
     String newRefreshToken = "new.refresh.token";
 
-    when(tokenValidator.validateRefreshToken(validRefreshToken)).thenReturn(true);
-    when(tokenValidator.getUserIdFromRefreshToken(validRefreshToken)).thenReturn(userId);
+    when(tokenValidator.verify(validRefreshToken, TokenType.REFRESH)).thenReturn(principal(userId, TokenType.REFRESH));
     when(userRepository.findById(userId)).thenReturn(Optional.of(user));
     when(tokenGenerator.generateAccessToken(user)).thenReturn(newAccessToken);
     when(tokenGenerator.generateRefreshToken(user)).thenReturn(newRefreshToken);
@@ -199,8 +266,7 @@ class UserServiceTest {
     assertEquals(newAccessToken, response.getAccessToken());
     assertEquals(newRefreshToken, response.getRefreshToken());
 
-    verify(tokenValidator).validateRefreshToken(validRefreshToken);
-    verify(tokenValidator).getUserIdFromRefreshToken(validRefreshToken);
+    verify(tokenValidator, times(1)).verify(validRefreshToken, TokenType.REFRESH);
     verify(userRepository).findById(userId);
     verify(tokenGenerator).generateAccessToken(user);
     verify(tokenGenerator).generateRefreshToken(user);
@@ -214,8 +280,7 @@ class UserServiceTest {
     user.setId(userId);
     user.setEmail("testemail@gmail.com");
     user.setPassword("password");
-    when(tokenValidator.validateAccessToken(validAccessToken)).thenReturn(true);
-    when(tokenValidator.getUserIdFromAccessToken(validAccessToken)).thenReturn(userId);
+    when(tokenValidator.verify(validAccessToken, TokenType.ACCESS)).thenReturn(principal(userId, TokenType.ACCESS));
     when(userRepository.findById(userId)).thenReturn(Optional.of(user));
 
     String authHeader = "Bearer " + validAccessToken;
@@ -228,7 +293,7 @@ class UserServiceTest {
   @Test
   void fetchUser_InvalidToken() {
     String invalidAccessToken = "invalid.access.token";
-    when(tokenValidator.validateAccessToken(invalidAccessToken)).thenReturn(false);
+    when(tokenValidator.verify(invalidAccessToken, TokenType.ACCESS)).thenReturn(Optional.empty());
 
     String authHeader = "Bearer " + invalidAccessToken;
     Optional<PublicUserDTO> result = userService.fetchUser(authHeader);
@@ -239,10 +304,85 @@ class UserServiceTest {
   @Test
   void fetchUser_InvalidTokenPrefix() {
     String validAccessToken = "valid.access.token";
-    when(tokenValidator.validateAccessToken(validAccessToken)).thenReturn(true); // to ensure this is not the cause of the error
+    when(tokenValidator.verify(validAccessToken, TokenType.ACCESS))
+        .thenReturn(principal(1L, TokenType.ACCESS)); // to ensure this is not the cause of the error
     String authHeader = "Bearr " + validAccessToken;
     Optional<PublicUserDTO> result = userService.fetchUser(authHeader);
 
     assertTrue(result.isEmpty());
   }
+
+  @Test
+  void testSaveRecipe_ReportsOnlyNewSaves() {
+    UserEntity user = new UserEntity();
+    user.setId(1L);
+    when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+    when(userRepository.countSavesOf(10L)).thenReturn(3L, 2L);
+
+    userService.saveRecipeForUser(1L, 10L);
+    userService.saveRecipeForUser(1L, 10L);
+    userService.removeSavedRecipe(1L, 10L);
+    userService.removeSavedRecipe(1L, 10L);
+
+    // one report per change, each recounting the saves when it is sent
+    ArgumentCaptor<LongSupplier> counts = ArgumentCaptor.forClass(LongSupplier.class);
+    verify(recipeServiceClient, times(2)).reportSaveCount(eq(10L), counts.capture());
+    assertEquals(3L, counts.getAllValues().get(0).getAsLong());
+    assertEquals(2L, counts.getAllValues().get(1).getAsLong());
+  }
+
+  private static RecipeDTO recipe(Long id, String... ingredients) {
+    return new RecipeDTO(id, "Recipe " + id, null, List.of(ingredients), null, List.of(), null);
+  }
+
+  @Test
+  void testRecommendRecipes_BuildsProfileOncePerSaveSet() {
+    UserEntity user = new UserEntity();
+    user.setId(1L);
+    user.setSavedRecipeIds(new ArrayList<>(List.of(10L, 11L)));
+    when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+    when(recipeServiceClient.getRecipes(List.of(10L, 11L)))
+        .thenReturn(List.of(recipe(10L, "Tomato", "Basil"), recipe(11L, "tomato", "Rice")));
+    List<RankedRecipeDTO> recommended = List.of(new RankedRecipeDTO(12L, "Caprese", null, 0.9));
+    when(recipeServiceClient.recommend(any())).thenReturn(recommended);
+
+    assertEquals(recommended, userService.recommendRecipes(1L, 5));
+    assertEquals(recommended, userService.recommendRecipes(1L, 5));
+
+    // one fan-out for both calls; names merge case-insensitively into shares of the saves
+    verify(recipeServiceClient, times(1)).getRecipes(any());
+    ArgumentCaptor<RecommendationRequestDTO> request = ArgumentCaptor.forClass(RecommendationRequestDTO.class);
+    verify(recipeServiceClient, times(2)).recommend(request.capture());
+    assertEquals(new RecommendationRequestDTO(Map.of("tomato", 1.0, "basil", 0.5, "rice", 0.5),
+        List.of(10L, 11L), 5), request.getValue());
+  }
+
+  @Test
+  void testRecommendRecipes_SaveInvalidatesProfile() {
+    UserEntity user = new UserEntity();
+    user.setId(1L);
+    user.setSavedRecipeIds(new ArrayList<>(List.of(10L)));
+    when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+    when(recipeServiceClient.getRecipes(any())).thenReturn(List.of(recipe(10L, "Tomato")));
+
+    userService.recommendRecipes(1L, null);
+    userService.saveRecipeForUser(1L, 11L);
+    userService.recommendRecipes(1L, null);
+    userService.removeSavedRecipe(1L, 11L);
+    userService.recommendRecipes(1L, null);
+
+    // rebuilt after each change, never reused across one
+    verify(recipeServiceClient, times(2)).getRecipes(List.of(10L));
+    verify(recipeServiceClient).getRecipes(List.of(10L, 11L));
+  }
+
+  @Test
+  void testRecommendRecipes_NothingSavedSkipsRecipeService() {
+    UserEntity user = new UserEntity();
+    user.setId(1L);
+    when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+    assertTrue(userService.recommendRecipes(1L, null).isEmpty());
+    verifyNoInteractions(recipeServiceClient);
+  }
 }